@@ -17,7 +17,6 @@ module org.kr.finmonitor {
     requires org.apache.httpcomponents.client5.httpclient5;
     requires org.apache.commons.codec;
     requires htmlunit;
-    requires commons.collections;
 
 
     opens org.kr.stocksmonitor to javafx.fxml;
@@ -4,8 +4,6 @@ import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
-import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -18,19 +16,23 @@ import javafx.util.StringConverter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.kr.stocksmonitor.config.ConfigManager;
-import org.kr.stocksmonitor.exceptions.RestCallException;
 import org.kr.stocksmonitor.polygon.NewsArticle;
 import org.kr.stocksmonitor.polygon.PolygonAPI;
 import org.kr.stocksmonitor.polygon.Ticker;
+import org.kr.stocksmonitor.polygon.TickerFacetIndex;
+import org.kr.stocksmonitor.polygon.TickerSearchIndex;
+import org.kr.stocksmonitor.polygon.TickerUniverse;
 import org.kr.stocksmonitor.utils.FileUtils;
 import org.kr.stocksmonitor.utils.LogUtils;
+import org.kr.stocksmonitor.utils.SearchScheduler;
 
 import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntPredicate;
 import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
 
 public class PolygonController implements PolygonAPI.ProgressCallback {
 
@@ -38,10 +40,17 @@ public class PolygonController implements PolygonAPI.ProgressCallback {
     private final StocksMonitorController controller;
     private final PolygonAPI api = new PolygonAPI();
 
-    private Set<Ticker> tickers = new HashSet<>();
-    private final Set<String> assetClasses = new HashSet<>();
-    private final Map<String, Set<String>> tickerTypesPerAssetClass = new HashMap<>();
+    private static final int TICKER_SUGGESTIONS = 100;
+
+    private TickerUniverse tickers = TickerUniverse.EMPTY;
+    private volatile CompletableFuture<TickerSearchIndex> searchIndex =
+            CompletableFuture.completedFuture(new TickerSearchIndex(TickerUniverse.EMPTY));
+    private volatile IntPredicate tickerFilter = _ -> true;
+    private final SearchScheduler<String, List<Ticker>> tickerSearch =
+            new SearchScheduler<>(this::searchTickers, this::showTickerSuggestions, Platform::runLater);
+    private volatile TickerFacetIndex facets = TickerFacetIndex.EMPTY;
     private String lastSelectedAsset = "";
+    private CompletableFuture<Void> pendingNews;
 
     public PolygonController(StocksMonitorController controller) {
         this.controller = controller;
@@ -152,7 +161,7 @@ public class PolygonController implements PolygonAPI.ProgressCallback {
 
     private void loadTickers() {
         try {
-            tickers = FileUtils.readFromFile();
+            setTickers(FileUtils.readFromFile());
             loadAssetClassesCombobox();
         } catch (Exception e) {
             log.error(e);
@@ -161,57 +170,76 @@ public class PolygonController implements PolygonAPI.ProgressCallback {
     }
 
     private void downloadTickers() {
-        Task<Set<Ticker>> task = new Task<>() {
-            @Override
-            protected Set<Ticker> call() {
-                try {
-                    tickers = api.loadAllTickers(PolygonController.this);
-                } catch (Exception e) {
-                    controller.showAlert(e, "Error while downloading tickers");
-                }
-                return tickers;
-            }
-        };
-
-        task.setOnRunning(_ -> {
-            controller.progressIndicator.setVisible(true);
-            controller.progressLabel.setVisible(true);
-            controller.tabSettings.getTabPane().getSelectionModel().select(controller.tabSettings);
-        });
-        task.setOnSucceeded(_ -> {
+        controller.progressIndicator.setVisible(true);
+        controller.progressLabel.setVisible(true);
+        controller.tabSettings.getTabPane().getSelectionModel().select(controller.tabSettings);
+
+        // facets of tickers not known yet are filled page by page, so they can be browsed while downloading
+        final TickerFacetIndex downloading = new TickerFacetIndex(tickers);
+        facets = downloading;
+        api.loadAllTickersAsync(this, page -> {
+            final int markets = downloading.getMarkets().size();
+            downloading.add(page);
+            if (downloading.getMarkets().size() != markets) Platform.runLater(this::loadAssetClassesCombobox);
+        }).whenComplete((result, error) -> Platform.runLater(() -> {
             controller.progressIndicator.setVisible(false);
             controller.progressLabel.setVisible(false);
-            tickers = task.getValue();
-        });
+            if (null != error)
+                controller.showAlert("Error while downloading tickers", error.getMessage(),
+                        Arrays.toString(error.getStackTrace()));
+            else
+                setTickers(TickerUniverse.of(result));
+        }));
+    }
 
-        controller.executorService.submit(task);
+    private void setTickers(TickerUniverse universe) {
+        tickers = universe;
+        facets = new TickerFacetIndex(universe);
+        // index off the FX thread, searches submitted meanwhile wait for it on their own thread
+        searchIndex = CompletableFuture.supplyAsync(() -> new TickerSearchIndex(universe),
+                task -> Thread.ofVirtual().name("ticker-index").start(task));
     }
 
     private void loadAssetClassesCombobox() {
-        if (tickers.isEmpty()) return;
-        if (assetClasses.isEmpty()) {
-            Set<String> filteredValues = tickers.stream().map(Ticker::getMarket).collect(Collectors.toSet());
-            assetClasses.addAll(filteredValues);
-        }
-        controller.cbxAssetClass.getItems().clear();
-        controller.cbxAssetClass.getItems().addAll(assetClasses);
+        final List<String> assetClasses = facets.getMarkets();
+        if (assetClasses.isEmpty()) return;
+        controller.cbxAssetClass.getItems().setAll(assetClasses);
     }
 
     private void loadTickerNews(List<Ticker> tickers) {
         if (!controller.tabNews.isSelected())
             return;
 
+        // a newer selection supersedes whatever is still loading
+        if (null != pendingNews) pendingNews.cancel(true);
+
         LocalDate start = controller.startDatePicker.getValue();
         LocalDate end = controller.endDatePicker.getValue();
-        List<NewsArticle> news = new ArrayList<>();
+        // the futures of the calls themselves, so that cancelling them releases their queued requests
+        List<CompletableFuture<List<NewsArticle>>> calls = new ArrayList<>(tickers.size());
+        List<CompletableFuture<List<NewsArticle>>> results = new ArrayList<>(tickers.size());
         for (Ticker t : tickers) {
-            try {
-                news.addAll(api.getTickerNews(t, start, end));
-            } catch (RestCallException e) {
-                log.error(e);
-            }
+            final CompletableFuture<List<NewsArticle>> call = api.getTickerNewsAsync(t, start, end);
+            calls.add(call);
+            results.add(call.exceptionally(e -> {
+                if (!call.isCancelled()) log.error("failed to load news for {}", t.getTicker(), e);
+                return Collections.emptyList();
+            }));
         }
-        refreshNewsTab(news);
+
+        final CompletableFuture<Void> all = CompletableFuture.allOf(results.toArray(CompletableFuture[]::new));
+        all.whenComplete((_, _) -> {
+            if (all.isCancelled()) calls.forEach(call -> call.cancel(true));
+        });
+        all.thenRun(() -> {
+            List<NewsArticle> news = new ArrayList<>();
+            for (CompletableFuture<List<NewsArticle>> result : results)
+                news.addAll(result.join());
+            Platform.runLater(() -> {
+                if (!all.isCancelled()) refreshNewsTab(news);
+            });
+        });
+        pendingNews = all;
     }
 
     private void refreshNewsTab(List<NewsArticle> news) {
@@ -246,34 +274,11 @@ public class PolygonController implements PolygonAPI.ProgressCallback {
         String assetClass = controller.cbxAssetClass.getSelectionModel().getSelectedItem();
         if (assetClass.equals(lastSelectedAsset)) return;
         lastSelectedAsset = assetClass;
-        controller.cbxTickerType.getItems().clear();
-
-        if (tickerTypesPerAssetClass.isEmpty())
-            loadMarketTickerTypes(tickers);
-
-        controller.cbxTickerType.getItems().addAll(tickerTypesPerAssetClass.getOrDefault(assetClass, Collections.emptySet()));
+        controller.cbxTickerType.getItems().setAll(facets.getTypes(assetClass));
         reloadTickerCombobox();
         LogUtils.debugDuration(log, start, "handleCbxAssetClassChanged");
     }
 
-    private void loadMarketTickerTypes(Set<Ticker> tickers) {
-        Instant start = Instant.now();
-        synchronized (tickerTypesPerAssetClass) {
-            if (!tickerTypesPerAssetClass.isEmpty()) return;
-            for (Ticker t : tickers) {
-                var set = tickerTypesPerAssetClass.get(t.getMarket());
-                if (null == set) {
-                    set = new HashSet<>();
-                    set.add(t.getType());
-                    tickerTypesPerAssetClass.put(t.getMarket(), set);
-                } else {
-                    set.add(t.getType());
-                }
-            }
-        }
-        LogUtils.debugDuration(log, start, "forming the map tickerTypesPerAssetClass");
-    }
-
     protected void cbxTickerTypeChanged(ActionEvent actionEvent) {
         reloadTickerCombobox();
     }
@@ -285,36 +290,31 @@ public class PolygonController implements PolygonAPI.ProgressCallback {
         Object objTickerType = controller.cbxTickerType.getSelectionModel().getSelectedItem();
         String tickerType = null == objTickerType ? "" : objTickerType.toString();
 
-        List<Ticker> data;
-        if (tickerType.isEmpty()) {
-            //load all tickers for this asset class
-            data = tickers.stream().filter(t -> t.getMarket().equals(assetClass)).toList();
-        } else {
-            //load tickers for this asset class and this particular ticker type
-            data = tickers.stream().filter(t -> t.getMarket().equals(assetClass) && t.getType().equals(tickerType)).toList();
-        }
-
+        final TickerFacetIndex index = facets;
+        List<Ticker> data = tickerType.isEmpty() ? index.slice(assetClass) : index.slice(assetClass, tickerType);
         if (data.isEmpty()) return;
 
+        final TickerUniverse universe = index.getUniverse();
+        final int marketId = universe.marketIdOf(assetClass);
+        final boolean anyType = tickerType.isEmpty();
+        final int typeId = universe.typeIdOf(tickerType);
+        tickerFilter = i -> universe.getMarketId(i) == marketId && (anyType || universe.getTypeId(i) == typeId);
         ObservableList<Ticker> observableList = FXCollections.observableArrayList(data);
-        FilteredList<Ticker> filteredData = new FilteredList<>(observableList);
-        controller.cbxTicker.setItems(filteredData);
-        updateTickerCombobox(filteredData);
+        controller.cbxTicker.setItems(observableList);
+        updateTickerCombobox(observableList);
         LogUtils.debugDuration(log, start, "reloadTickerCombobox");
     }
 
-    private void updateTickerCombobox(FilteredList<Ticker> filteredData) {
+    private void updateTickerCombobox(ObservableList<Ticker> items) {
         Instant start = Instant.now();
         UnaryOperator<TextFormatter.Change> filter = change -> {
             if (change.getSelection().getStart() == 0 && change.getSelection().getEnd() == 0) return change;
             String newText = change.getControlNewText();
             if (newText.isEmpty()) {
+                tickerSearch.cancel();
                 controller.cbxTicker.hide();
             } else {
-                filteredData.setPredicate(ticker ->
-                        ticker.getTicker().toLowerCase().contains(newText.toLowerCase()) ||
-                                ticker.getName().toLowerCase().contains(newText.toLowerCase()));
-                controller.cbxTicker.show();
+                tickerSearch.submit(newText);
             }
             return change;
         };
@@ -336,11 +336,21 @@ public class PolygonController implements PolygonAPI.ProgressCallback {
             }
         });
 
-        // Bind the filtered list to the ComboBox's items
-        controller.cbxTicker.setItems(filteredData);
+        controller.cbxTicker.setItems(items);
         LogUtils.debugDuration(log, start, "updating the cbxTicker");
     }
 
+    private List<Ticker> searchTickers(String text) {
+        final IntPredicate filter = tickerFilter;
+        return searchIndex.join().search(text, TICKER_SUGGESTIONS, filter);
+    }
+
+    private void showTickerSuggestions(List<Ticker> suggestions) {
+        controller.cbxTicker.getItems().setAll(suggestions);
+        if (suggestions.isEmpty()) controller.cbxTicker.hide();
+        else controller.cbxTicker.show();
+    }
+
     private void handleSelectedTickers(List<Ticker> tickers) {
         log.debug(tickers);
         loadTickerNews(tickers);
@@ -378,6 +388,7 @@ public class PolygonController implements PolygonAPI.ProgressCallback {
     }
 
     protected void shutdown() throws IOException {
+        tickerSearch.cancel();
         if (!tickers.isEmpty()) FileUtils.saveToFile(tickers);
         updateApiKey();
         saveFavoriteTickers();
@@ -391,7 +402,7 @@ public class PolygonController implements PolygonAPI.ProgressCallback {
     private void loadFavoriteTickers() {
         log.debug("loading favorite tickers...");
         List<String> favoriteTickerSymbols = ConfigManager.getInstance().readFavoriteTickerSymbols();
-        var favoriteTickers = tickers.stream().filter(t -> favoriteTickerSymbols.contains(t.getTicker())).toList();
+        var favoriteTickers = favoriteTickerSymbols.stream().map(tickers::find).flatMap(Optional::stream).toList();
         log.debug("adding favorite tickers to the table: {}; {}", favoriteTickerSymbols, favoriteTickers);
         controller.tblTickers.getItems().addAll(favoriteTickers);
     }
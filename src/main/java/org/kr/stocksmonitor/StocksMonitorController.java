@@ -20,12 +20,13 @@ import javafx.util.StringConverter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.kr.stocksmonitor.config.ConfigManager;
-import org.kr.stocksmonitor.utils.LogUtils;
+import org.kr.stocksmonitor.utils.HttpTransport;
+import org.kr.stocksmonitor.utils.SearchScheduler;
 import org.kr.stocksmonitor.yahoo.QuoteItem;
 import org.kr.stocksmonitor.yahoo.YahooAPI;
 
 import java.io.IOException;
-import java.time.Instant;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.*;
@@ -35,6 +36,8 @@ public class StocksMonitorController implements Initializable {
 
     private static final Logger log = LogManager.getLogger(StocksMonitorController.class);
     protected static final ExecutorService executorService = Executors.newFixedThreadPool(16);
+    // wait for a pause in typing before asking Yahoo
+    private static final Duration YAHOO_SEARCH_DEBOUNCE = Duration.ofMillis(250);
     public DatePicker yahooStartDatePicker;
     public DatePicker yahooEndDatePicker;
     public Slider yahooDateRangeSlider;
@@ -43,6 +46,10 @@ public class StocksMonitorController implements Initializable {
 
     protected HostServices hostServices;
 
+    private final SearchScheduler<String, List<QuoteItem>> yahooSearch = new SearchScheduler<>(
+            query -> YahooAPI.getInstance().getQuotes(query), this::reloadYahooQuotesCombobox,
+            Platform::runLater, YAHOO_SEARCH_DEBOUNCE);
+
     protected void injectHostServices(HostServices hostServices) {
         this.hostServices = hostServices;
     }
@@ -170,25 +177,17 @@ public class StocksMonitorController implements Initializable {
             if (items.contains(selected)) return;
             items.add(selected);
         });
-        executorService.submit(() -> reloadYahooTickerCombobox("ACN"));
+        reloadYahooTickerCombobox("ACN");
     }
 
     private void reloadYahooTickerCombobox(String value) {
-        if (value.isEmpty())
+        if (value.isEmpty()) {
+            yahooSearch.cancel();
             return;
+        }
         log.debug("reloading yahoo quotes data: {}", value);
-        executorService.submit(() -> {
-            Platform.runLater(() -> {
-                Instant start = Instant.now();
-                try {
-                    reloadYahooQuotesCombobox(YahooAPI.getInstance().getQuotes(value));
-                } catch (Exception e) {
-                    log.error("Error while reloading the yahoo quotes", e);
-                } finally {
-                    LogUtils.debugDuration(log, start, "reloading yahoo quotes");
-                }
-            });
-        });
+        // debounced and run on a virtual thread, only the result for the latest text reaches the combobox
+        yahooSearch.submit(value);
     }
 
     private void reloadYahooQuotesCombobox(List<QuoteItem> quotes) {
@@ -239,7 +238,9 @@ public class StocksMonitorController implements Initializable {
     
     public void shutdown() throws IOException {
         log.debug("shutting down the controller");
+        yahooSearch.cancel();
         executorService.shutdown();
+        HttpTransport.getInstance().close();
         var favoriteQuotes = yahooTableFavoriteQuotes.getItems();
         ConfigManager.getInstance().saveFavoriteQuotes(favoriteQuotes);
     }
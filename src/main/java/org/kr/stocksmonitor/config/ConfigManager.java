@@ -7,6 +7,7 @@ import org.apache.commons.configuration2.JSONConfiguration;
 import org.apache.commons.configuration2.builder.FileBasedConfigurationBuilder;
 import org.apache.commons.configuration2.builder.fluent.Parameters;
 import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.ex.ConversionException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.json.JSONArray;
@@ -34,6 +35,12 @@ public class ConfigManager {
     private static final String POLYGON_API_KEY = String.format("%s.%s", POLYGON_SECTION, API_KEY);
     private static final String MAX_CALLS_PER_MINUTE = "max_calls_per_minute";
     private static final String POLYGON_MAX_CALLS_PER_MINUTE = String.format("%s.%s", POLYGON_SECTION, MAX_CALLS_PER_MINUTE);
+    private static final String HTTP_SECTION = "http";
+    private static final String HTTP_CONNECT_TIMEOUT_MS = String.format("%s.%s", HTTP_SECTION, "connect_timeout_ms");
+    private static final String HTTP_RESPONSE_TIMEOUT_MS = String.format("%s.%s", HTTP_SECTION, "response_timeout_ms");
+    private static final String HTTP_MAX_CONNECTIONS = String.format("%s.%s", HTTP_SECTION, "max_connections");
+    private static final String HTTP_MAX_CONNECTIONS_PER_ROUTE = String.format("%s.%s", HTTP_SECTION, "max_connections_per_route");
+    private static final String HTTP_KEEP_ALIVE_SECONDS = String.format("%s.%s", HTTP_SECTION, "keep_alive_seconds");
     private static final String FAVORITE_TICKERS_SECTION = "favorite_tickers";
     private static final String FAVORITE_YAHOO_QUOTES_SECTION = "yahoo_favorite_quotes";
     private static final String SYMBOL_PREFIX = "symbol_";
@@ -75,6 +82,42 @@ public class ConfigManager {
         return value;
     }
 
+    public int readPolygonMaxCallsPerMinute(String endpointClass, int defaultValue) {
+        return readInt(String.format("%s_%s", POLYGON_MAX_CALLS_PER_MINUTE, endpointClass), defaultValue);
+    }
+
+    public int readHttpConnectTimeoutMillis() {
+        return readInt(HTTP_CONNECT_TIMEOUT_MS, 10_000);
+    }
+
+    public int readHttpResponseTimeoutMillis() {
+        return readInt(HTTP_RESPONSE_TIMEOUT_MS, 30_000);
+    }
+
+    public int readHttpMaxConnections() {
+        return readInt(HTTP_MAX_CONNECTIONS, 64);
+    }
+
+    public int readHttpMaxConnectionsPerRoute() {
+        return readInt(HTTP_MAX_CONNECTIONS_PER_ROUTE, 16);
+    }
+
+    public int readHttpKeepAliveSeconds() {
+        return readInt(HTTP_KEEP_ALIVE_SECONDS, 60);
+    }
+
+    private int readInt(String key, int defaultValue) {
+        logger.debug("loading the property: {}, default: {}", key, defaultValue);
+        FileBasedConfigurationBuilder<JSONConfiguration> builder = getConfigBuilder();
+        try {
+            Configuration config = builder.getConfiguration();
+            return config.getInt(key, defaultValue);
+        } catch (ConfigurationException | ConversionException e) {
+            logger.error(e);
+        }
+        return defaultValue;
+    }
+
     public void saveApiKey(String apiKey) {
         logger.debug("saving the new api key to the file: {}", CONFIG_FILE_PATH);
         FileBasedConfigurationBuilder<JSONConfiguration> builder = getConfigBuilder();
@@ -11,6 +11,14 @@ public class NewsArticle {
     final String articleUrl;
     final String description;
 
+    public NewsArticle(String id, String title, String author, String imageUrl, String articleUrl, String description) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.imageUrl = imageUrl;
+        this.articleUrl = articleUrl;
+        this.description = description;
+    }
 
     public NewsArticle(JSONObject json) {
         this.id = json.optString("id", "");
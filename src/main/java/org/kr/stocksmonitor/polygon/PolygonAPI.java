@@ -4,16 +4,25 @@ import org.apache.hc.core5.http.NameValuePair;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.kr.stocksmonitor.config.ConfigManager;
-import org.kr.stocksmonitor.config.Tuple2;
 import org.kr.stocksmonitor.exceptions.RestCallException;
+import org.kr.stocksmonitor.polygon.PolygonJsonDecoder.Page;
+import org.kr.stocksmonitor.utils.RateLimiter;
 import org.kr.stocksmonitor.utils.RestUtils;
+import org.kr.stocksmonitor.utils.SingleFlight;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class PolygonAPI {
     private static final Logger logger = LogManager.getLogger(PolygonAPI.class);
@@ -23,10 +32,14 @@ public class PolygonAPI {
     private static final String tickersGET = "/v3/reference/tickers";
     private static final String tickerNewsGET = "/v2/reference/news";
     private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    // pages allowed to wait for parsing while the next ones are being fetched
+    private static final int PIPELINE_DEPTH = 4;
+    private static final Executor parseExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     private String apiKey;
 
     private final RestUtils restUtils = RestUtils.getInstance();
+    private final SingleFlight<NewsKey, List<NewsArticle>> newsInFlight = new SingleFlight<>();
 
     public PolygonAPI() {
         this.apiKey = ConfigManager.getInstance().readPolygonApiKey();
@@ -34,107 +47,245 @@ public class PolygonAPI {
 
     public List<TickerType> loadTickerTypes(String assetClass) throws RestCallException {
         final List<NameValuePair> parameters = List.of(new BasicNameValuePair("asset_class", assetClass));
-        final String response = restUtils.callPolygonEndpoint(baseURL, tickerTypeGET, apiKey, parameters);
-        return parseJsonResponseTickerTypes(response);
+        final Page<TickerType> page = restUtils.callPolygonEndpoint(baseURL, tickerTypeGET, apiKey, parameters,
+                RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.INTERACTIVE,
+                in -> PolygonJsonDecoder.decodePage(in, PolygonJsonDecoder::readTickerType));
+        return tickerTypesOf(page);
     }
 
     public Set<Ticker> loadAllTickers(ProgressCallback callback) throws RestCallException {
-        final List<NameValuePair> parameters = Arrays.asList(
-                new BasicNameValuePair("limit", "1000"),
-                new BasicNameValuePair("sort", "ticker")
-        );
+        final CompletableFuture<Set<Ticker>> tickers = loadAllTickersAsync(callback);
+        try {
+            return tickers.get();
+        } catch (InterruptedException e) {
+            tickers.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RestCallException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RestCallException restCallException) throw restCallException;
+            throw new RestCallException(e.getCause());
+        }
+    }
 
-        final Set<Ticker> tickers = new HashSet<>();
+    /**
+     * Concurrent calls for the same ticker and dates share one request, and so the returned list.
+     */
+    public List<NewsArticle> getTickerNews(Ticker ticker, LocalDate start, LocalDate end) throws RestCallException {
+        return newsInFlight.call(new NewsKey(ticker.ticker, start, end),
+                () -> getTickerNews(newsParameters(ticker, start, end)));
+    }
 
+    List<NewsArticle> getTickerNews(List<NameValuePair> parameters) throws RestCallException {
         String nextUrl = baseURL;
+        List<NewsArticle> news = new ArrayList<>();
+        final RestUtils.ResponseDecoder<Page<NewsArticle>> decoder =
+                in -> PolygonJsonDecoder.decodePage(in, PolygonJsonDecoder::readNewsArticle);
         while (null != nextUrl && !nextUrl.isEmpty()) {
-            String response;
-            if (tickers.isEmpty()) //first call
-                response = restUtils.callPolygonEndpoint(baseURL, tickersGET, apiKey, parameters);
+            Page<NewsArticle> page;
+            if (nextUrl.equals(baseURL)) //first call
+                page = restUtils.callPolygonEndpoint(baseURL, tickerNewsGET, apiKey, parameters,
+                        RateLimiter.EndpointClass.NEWS, RateLimiter.Priority.INTERACTIVE, decoder);
             else
-                response = restUtils.callPolygonEndpoint(nextUrl, "", apiKey, Collections.emptyList());
-            var res = parseResponseHeader(response);
-            nextUrl = res.getFirst();
-            var results = res.getSecond();
-
-            for (int i = 0; i < results.length(); i++) {
-                JSONObject result = results.getJSONObject(i);
-                Ticker ticker = new Ticker(result);
-                tickers.add(ticker);
-            }
-
-            callback.onProgressUpdate(String.format("Items collected: %d", tickers.size()));
+                page = restUtils.callPolygonEndpoint(nextUrl, "", apiKey, Collections.emptyList(),
+                        RateLimiter.EndpointClass.NEWS, RateLimiter.Priority.INTERACTIVE, decoder);
+            checkPage(page);
+            nextUrl = page.nextUrl();
+            news.addAll(page.results());
         }
+        return news;
+    }
 
-        return tickers;
+    public CompletableFuture<List<TickerType>> loadTickerTypesAsync(String assetClass) {
+        final List<NameValuePair> parameters = List.of(new BasicNameValuePair("asset_class", assetClass));
+        final CompletableFuture<byte[]> call = restUtils.callPolygonEndpointAsync(baseURL, tickerTypeGET, apiKey,
+                parameters, RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.INTERACTIVE);
+        final CompletableFuture<List<TickerType>> result = call.thenApply(content -> {
+            try {
+                return tickerTypesOf(PolygonJsonDecoder.decodePage(content, PolygonJsonDecoder::readTickerType));
+            } catch (IOException e) {
+                throw new CompletionException(new RestCallException(e));
+            }
+        });
+        result.whenComplete((_, _) -> {
+            if (result.isCancelled()) call.cancel(true);
+        });
+        return result;
     }
 
-    public List<NewsArticle> getTickerNews(Ticker ticker, LocalDate start, LocalDate end) throws RestCallException {
+    /**
+     * Asynchronous variant of {@link #loadAllTickers}. The callback is invoked from the parsing stage
+     * after every page; cancelling the returned future stops the paging.
+     */
+    public CompletableFuture<Set<Ticker>> loadAllTickersAsync(ProgressCallback callback) {
+        return loadAllTickersAsync(callback, _ -> {});
+    }
+
+    /**
+     * Same as {@link #loadAllTickersAsync(ProgressCallback)}, additionally handing every decoded page to the
+     * page consumer, on the parsing stage and in order.
+     */
+    public CompletableFuture<Set<Ticker>> loadAllTickersAsync(ProgressCallback callback,
+                                                              Consumer<List<Ticker>> pageConsumer) {
         final List<NameValuePair> parameters = Arrays.asList(
+                new BasicNameValuePair("limit", "1000"),
+                new BasicNameValuePair("sort", "ticker")
+        );
+
+        final Set<Ticker> tickers = new HashSet<>();
+        return fetchPagesAsync(tickersGET, parameters, RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.BULK,
+                PolygonJsonDecoder::readTicker, results -> {
+                    tickers.addAll(results);
+                    pageConsumer.accept(results);
+                    callback.onProgressUpdate(String.format("Items collected: %d", tickers.size()));
+                }, () -> tickers);
+    }
+
+    /**
+     * Concurrent calls for the same ticker and dates share one request, and so the returned list. Cancelling
+     * the returned future only cancels the request once no other caller is waiting for it.
+     */
+    public CompletableFuture<List<NewsArticle>> getTickerNewsAsync(Ticker ticker, LocalDate start, LocalDate end) {
+        return newsInFlight.execute(new NewsKey(ticker.ticker, start, end), () -> {
+            final List<NewsArticle> news = new ArrayList<>();
+            return fetchPagesAsync(tickerNewsGET, newsParameters(ticker, start, end), RateLimiter.EndpointClass.NEWS,
+                    RateLimiter.Priority.INTERACTIVE, PolygonJsonDecoder::readNewsArticle, news::addAll, () -> news);
+        });
+    }
+
+    private static List<NameValuePair> newsParameters(Ticker ticker, LocalDate start, LocalDate end) {
+        return Arrays.asList(
                 new BasicNameValuePair("published_utc.gte", start.format(dateFormatter)),
                 new BasicNameValuePair("published_utc.lte", end.format(dateFormatter)),
                 new BasicNameValuePair("ticker", ticker.ticker),
                 new BasicNameValuePair("limit", "1000"),
                 new BasicNameValuePair("sort", "published_utc")
         );
+    }
 
-        return getTickerNews(parameters);
+    /**
+     * Follows the next_url chain of a paged endpoint as a pipeline: as soon as a page arrives only its envelope
+     * is scanned for next_url, the next page is requested right away and the current one is parsed on a separate
+     * stage. Pages are handed to the consumer one at a time and in order, so it needs no synchronization of its own.
+     * At most {@link #PIPELINE_DEPTH} pages wait for parsing; beyond that fetching pauses until the parser catches up.
+     */
+    private <E, T> CompletableFuture<T> fetchPagesAsync(String endpoint, List<NameValuePair> parameters,
+                                                        RateLimiter.EndpointClass endpointClass,
+                                                        RateLimiter.Priority priority,
+                                                        PolygonJsonDecoder.ItemDecoder<E> itemDecoder,
+                                                        Consumer<List<E>> pageConsumer, Supplier<T> result) {
+        final PagedFetch<E, T> fetch = new PagedFetch<>(endpointClass, priority, itemDecoder, pageConsumer, result);
+        fetch.request(restUtils.callPolygonEndpointAsync(baseURL, endpoint, apiKey, parameters, endpointClass, priority));
+        return fetch.future;
     }
 
-    List<NewsArticle> getTickerNews(List<NameValuePair> parameters) throws RestCallException {
-        String nextUrl = baseURL;
-        List<NewsArticle> news = new ArrayList<>();
-        while (null != nextUrl && !nextUrl.isEmpty()) {
-            String response = restUtils.callPolygonEndpoint(baseURL, tickerNewsGET, apiKey, parameters);
-            var res = parseResponseHeader(response);
-            nextUrl = res.getFirst();
-            var results = res.getSecond();
-
-            for (int i = 0; i < results.length(); i++) {
-                JSONObject result = results.getJSONObject(i);
-                news.add(new NewsArticle(result));
+    private final class PagedFetch<E, T> {
+        private final RateLimiter.EndpointClass endpointClass;
+        private final RateLimiter.Priority priority;
+        private final PolygonJsonDecoder.ItemDecoder<E> itemDecoder;
+        private final Consumer<List<E>> pageConsumer;
+        private final Supplier<T> result;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicReference<CompletableFuture<byte[]>> inFlight = new AtomicReference<>();
+        // only touched from the page callbacks, which never overlap since a page is requested after the previous one arrived
+        private final Deque<CompletableFuture<Void>> parsing = new ArrayDeque<>();
+        private CompletableFuture<Void> parseTail = CompletableFuture.completedFuture(null);
+
+        PagedFetch(RateLimiter.EndpointClass endpointClass, RateLimiter.Priority priority,
+                   PolygonJsonDecoder.ItemDecoder<E> itemDecoder, Consumer<List<E>> pageConsumer, Supplier<T> result) {
+            this.endpointClass = endpointClass;
+            this.priority = priority;
+            this.itemDecoder = itemDecoder;
+            this.pageConsumer = pageConsumer;
+            this.result = result;
+            future.whenComplete((_, _) -> {
+                final CompletableFuture<byte[]> call = inFlight.get();
+                if (future.isCancelled() && null != call) call.cancel(true);
+            });
+        }
+
+        void request(CompletableFuture<byte[]> call) {
+            inFlight.set(call);
+            if (future.isDone()) { // cancelled or failed between two pages
+                call.cancel(true);
+                return;
             }
+            call.whenComplete(this::onPage);
+        }
+
+        private void onPage(byte[] response, Throwable error) {
+            if (null != error) {
+                fail(error);
+                return;
+            }
+            final String nextUrl;
+            try {
+                nextUrl = scanNextUrl(response);
+            } catch (RestCallException e) {
+                fail(e);
+                return;
+            }
+
+            parseTail = parseTail.thenRunAsync(() -> {
+                if (future.isDone()) return;
+                try {
+                    pageConsumer.accept(checkPage(PolygonJsonDecoder.decodePage(response, itemDecoder)).results());
+                } catch (IOException e) {
+                    throw new CompletionException(new RestCallException(e));
+                } catch (RestCallException e) {
+                    throw new CompletionException(e);
+                }
+            }, parseExecutor);
+            parsing.addLast(parseTail);
+
+            if (nextUrl.isEmpty()) {
+                parseTail.whenComplete((_, parseError) -> {
+                    if (null != parseError) fail(parseError);
+                    else future.complete(result.get());
+                });
+                return;
+            }
+
+            final CompletableFuture<Void> gate = parsing.size() > PIPELINE_DEPTH
+                    ? parsing.pollFirst() : CompletableFuture.completedFuture(null);
+            gate.whenComplete((_, parseError) -> {
+                if (null != parseError) fail(parseError);
+                else request(restUtils.callPolygonEndpointAsync(nextUrl, "", apiKey, Collections.emptyList(),
+                        endpointClass, priority));
+            });
+        }
+
+        private void fail(Throwable error) {
+            future.completeExceptionally(error instanceof CompletionException && null != error.getCause()
+                    ? error.getCause() : error);
         }
-        return news;
     }
 
-    private Tuple2<String, JSONArray> parseResponseHeader(String response) throws RestCallException {
-        logger.debug("parsing tickers response...");
-        JSONObject jsonResponse = new JSONObject(response);
-        String status = jsonResponse.getString("status");
-        if (!status.equals("OK")) {
-            String error = jsonResponse.getString("error");
-            throw new RestCallException("Status is not OK: " + error);
+    /**
+     * Reads only the envelope of a page: status, error and next_url. The results array is skipped without
+     * being materialized, so the next page can be requested before the current one is parsed.
+     */
+    static String scanNextUrl(byte[] response) throws RestCallException {
+        try {
+            return checkPage(PolygonJsonDecoder.decodeEnvelope(response)).nextUrl();
+        } catch (IOException e) {
+            throw new RestCallException(e);
         }
-        JSONArray results = jsonResponse.getJSONArray("results");
-        int count = jsonResponse.optInt("count", results.length());
-        if (count != results.length()) throw new RestCallException("Wrong results count");
-        String nextUrl = jsonResponse.optString("next_url");
-        if (!nextUrl.isEmpty())
+    }
+
+    private static <T> Page<T> checkPage(Page<T> page) throws RestCallException {
+        if (!"OK".equals(page.status()))
+            throw new RestCallException("Status is not OK: " + page.error());
+        if (null != page.results() && page.count() >= 0 && page.count() != page.results().size())
+            throw new RestCallException("Wrong results count");
+        if (!page.nextUrl().isEmpty())
             logger.debug("next url present, will be calling next url...");
-        return new Tuple2<>(nextUrl, results);
+        return page;
     }
 
-    private List<TickerType> parseJsonResponseTickerTypes(String response) {
-        JSONObject json = new JSONObject(response);
-        String status = json.getString("status");
-        if (!"OK".equals(status))
+    private static List<TickerType> tickerTypesOf(Page<TickerType> page) {
+        if (!"OK".equals(page.status()))
             return new ArrayList<>();
-
-        if (json.isNull("results")) return new ArrayList<>();
-        JSONArray results = json.getJSONArray("results");
-        List<TickerType> tickerTypes = new ArrayList<>(results.length());
-        for (int i = 0; i < results.length(); i++) {
-            JSONObject result = results.getJSONObject(i);
-            String code = result.getString("code");
-            String description = result.getString("description");
-            String assetClass = result.getString("asset_class");
-            String locale = result.getString("locale");
-
-            tickerTypes.add(new TickerType(code, description, assetClass, locale));
-        }
-
-        return tickerTypes;
+        return new ArrayList<>(page.results());
     }
 
     public String getApiKey() {
@@ -148,4 +299,7 @@ public class PolygonAPI {
     public interface ProgressCallback {
         void onProgressUpdate(String progress);
     }
+
+    private record NewsKey(String ticker, LocalDate start, LocalDate end) {
+    }
 }
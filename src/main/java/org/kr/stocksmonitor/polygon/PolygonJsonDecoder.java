@@ -0,0 +1,166 @@
+package org.kr.stocksmonitor.polygon;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming decoders for Polygon responses. Pages are read token by token with Jackson's {@link JsonParser}
+ * straight into {@link Ticker}, {@link NewsArticle} and {@link TickerType}, without building an intermediate
+ * String or JSON tree. Fields the application does not use are skipped without being materialized.
+ */
+final class PolygonJsonDecoder {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private PolygonJsonDecoder() {
+    }
+
+    interface ItemDecoder<T> {
+        T decode(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Envelope and results of one response page. {@code count} is -1 if the response has none, {@code results}
+     * is null if the page was decoded without an item decoder.
+     */
+    record Page<T>(String status, String error, int count, String nextUrl, List<T> results) {
+    }
+
+    static <T> Page<T> decodePage(InputStream in, ItemDecoder<T> itemDecoder) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            return decodePage(parser, itemDecoder);
+        }
+    }
+
+    static <T> Page<T> decodePage(byte[] content, ItemDecoder<T> itemDecoder) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(content)) {
+            return decodePage(parser, itemDecoder);
+        }
+    }
+
+    /**
+     * Reads only the envelope of a page, the results array is skipped.
+     */
+    static Page<Void> decodeEnvelope(byte[] content) throws IOException {
+        return decodePage(content, null);
+    }
+
+    private static <T> Page<T> decodePage(JsonParser parser, ItemDecoder<T> itemDecoder) throws IOException {
+        parser.nextToken();
+        expectObject(parser);
+        String status = null;
+        String error = null;
+        int count = -1;
+        String nextUrl = "";
+        List<T> results = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            switch (field) {
+                case "status" -> status = text(parser);
+                case "error" -> error = text(parser);
+                case "count" -> count = parser.getValueAsInt(-1);
+                case "next_url" -> nextUrl = text(parser);
+                case "results" -> {
+                    if (null == itemDecoder || token != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        if (null != itemDecoder) results = Collections.emptyList();
+                    } else {
+                        results = new ArrayList<>();
+                        while (parser.nextToken() != JsonToken.END_ARRAY)
+                            results.add(itemDecoder.decode(parser));
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (null != itemDecoder && null == results) results = Collections.emptyList();
+        return new Page<>(status, error, count, nextUrl, results);
+    }
+
+    static Ticker readTicker(JsonParser parser) throws IOException {
+        String ticker = "";
+        String name = "";
+        String market = "";
+        String type = "";
+        expectObject(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "ticker" -> ticker = text(parser);
+                case "name" -> name = text(parser);
+                // only a handful of distinct values across the whole universe
+                case "market" -> market = text(parser).intern();
+                case "type" -> type = text(parser).intern();
+                default -> parser.skipChildren();
+            }
+        }
+        return new Ticker(ticker, name, market, type);
+    }
+
+    static NewsArticle readNewsArticle(JsonParser parser) throws IOException {
+        String id = "";
+        String title = "";
+        String author = "";
+        String imageUrl = "";
+        String articleUrl = "";
+        String description = "";
+        expectObject(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = text(parser);
+                case "title" -> title = text(parser);
+                case "author" -> author = text(parser);
+                case "image_url" -> imageUrl = text(parser);
+                case "article_url" -> articleUrl = text(parser);
+                case "description" -> description = text(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new NewsArticle(id, title, author, imageUrl, articleUrl, description);
+    }
+
+    static TickerType readTickerType(JsonParser parser) throws IOException {
+        String code = "";
+        String description = "";
+        String assetClass = "";
+        String locale = "";
+        expectObject(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "code" -> code = text(parser);
+                case "description" -> description = text(parser);
+                case "asset_class" -> assetClass = text(parser);
+                case "locale" -> locale = text(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new TickerType(code, description, assetClass, locale);
+    }
+
+    private static void expectObject(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT)
+            throw new JsonParseException(parser, "Expected a JSON object");
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getValueAsString("");
+    }
+}
@@ -0,0 +1,150 @@
+package org.kr.stocksmonitor.polygon;
+
+import java.util.*;
+
+/**
+ * Market and ticker type facets over a {@link TickerUniverse}.
+ * <p>
+ * The universe indexes are permuted once so that all tickers of one market are contiguous, and within a market
+ * all tickers of one type are contiguous, both still in symbol order. A facet lookup is then an offset table read
+ * and returns a view over that slice, with its count known up front.
+ * <p>
+ * Tickers that arrive after the universe was built, e.g. page by page while downloading, are kept in a small
+ * per-facet delta and appended to the slices, until the index is rebuilt over the new universe.
+ */
+public final class TickerFacetIndex {
+
+    /**
+     * Shared index without tickers, {@link #add(Collection)} is not supported.
+     */
+    public static final TickerFacetIndex EMPTY = new TickerFacetIndex(TickerUniverse.EMPTY, true);
+
+    private final TickerUniverse universe;
+    private final int typeCount;
+    // universe indexes, grouped by market id, then type id
+    private final int[] order;
+    // start of the group (marketId * typeCount + typeId) in order, one extra entry for the end
+    private final int[] groupStart;
+
+    private final Map<String, Map<String, List<Ticker>>> added = new HashMap<>();
+    private final Set<String> addedSymbols = new HashSet<>();
+    private final boolean readOnly;
+
+    public TickerFacetIndex(TickerUniverse universe) {
+        this(universe, false);
+    }
+
+    private TickerFacetIndex(TickerUniverse universe, boolean readOnly) {
+        this.universe = universe;
+        this.readOnly = readOnly;
+        this.typeCount = universe.getTypes().size();
+        final int groups = universe.getMarkets().size() * typeCount;
+
+        groupStart = new int[groups + 1];
+        for (int i = 0; i < universe.size(); i++)
+            groupStart[group(universe.getMarketId(i), universe.getTypeId(i)) + 1]++;
+        for (int g = 0; g < groups; g++)
+            groupStart[g + 1] += groupStart[g];
+
+        // counting sort, stable so every slice keeps the symbol order of the universe
+        order = new int[universe.size()];
+        final int[] next = Arrays.copyOf(groupStart, groups);
+        for (int i = 0; i < universe.size(); i++)
+            order[next[group(universe.getMarketId(i), universe.getTypeId(i))]++] = i;
+    }
+
+    public TickerUniverse getUniverse() {
+        return universe;
+    }
+
+    /**
+     * Adds tickers which are not part of the universe yet; already known symbols are ignored.
+     */
+    public synchronized void add(Collection<Ticker> tickers) {
+        if (readOnly) throw new UnsupportedOperationException("The shared empty index cannot be modified");
+        for (Ticker ticker : tickers) {
+            if (universe.indexOf(ticker.getTicker()) >= 0 || !addedSymbols.add(ticker.getTicker())) continue;
+            added.computeIfAbsent(ticker.getMarket(), _ -> new HashMap<>())
+                    .computeIfAbsent(ticker.getType(), _ -> new ArrayList<>())
+                    .add(ticker);
+        }
+    }
+
+    public synchronized List<String> getMarkets() {
+        final Set<String> markets = new TreeSet<>(added.keySet());
+        final List<String> dictionary = universe.getMarkets();
+        for (int m = 0; m < dictionary.size(); m++)
+            if (groupStart[group(m, 0)] < groupStart[group(m + 1, 0)]) markets.add(dictionary.get(m));
+        return new ArrayList<>(markets);
+    }
+
+    public synchronized List<String> getTypes(String market) {
+        final Set<String> types = new TreeSet<>(added.getOrDefault(market, Collections.emptyMap()).keySet());
+        final int m = universe.marketIdOf(market);
+        if (m >= 0) {
+            final List<String> dictionary = universe.getTypes();
+            for (int t = 0; t < typeCount; t++)
+                if (groupStart[group(m, t)] < groupStart[group(m, t) + 1]) types.add(dictionary.get(t));
+        }
+        return new ArrayList<>(types);
+    }
+
+    public int count(String market) {
+        return slice(market).size();
+    }
+
+    public int count(String market, String type) {
+        return slice(market, type).size();
+    }
+
+    /**
+     * All tickers of the market, grouped by type.
+     */
+    public synchronized List<Ticker> slice(String market) {
+        final int m = universe.marketIdOf(market);
+        final List<Ticker> delta = new ArrayList<>();
+        added.getOrDefault(market, Collections.emptyMap()).values().forEach(delta::addAll);
+        if (m < 0) return new Slice(0, 0, delta);
+        return new Slice(groupStart[group(m, 0)], groupStart[group(m + 1, 0)], delta);
+    }
+
+    public synchronized List<Ticker> slice(String market, String type) {
+        final int m = universe.marketIdOf(market);
+        final int t = universe.typeIdOf(type);
+        final List<Ticker> delta = List.copyOf(
+                added.getOrDefault(market, Collections.emptyMap()).getOrDefault(type, Collections.emptyList()));
+        if (m < 0 || t < 0) return new Slice(0, 0, delta);
+        return new Slice(groupStart[group(m, t)], groupStart[group(m, t) + 1], delta);
+    }
+
+    private int group(int marketId, int typeId) {
+        return marketId * typeCount + typeId;
+    }
+
+    /**
+     * Read-only view of {@code order[from, to)} followed by a snapshot of the delta tickers.
+     */
+    private final class Slice extends AbstractList<Ticker> implements RandomAccess {
+        private final int from;
+        private final int to;
+        private final List<Ticker> delta;
+
+        Slice(int from, int to, List<Ticker> delta) {
+            this.from = from;
+            this.to = to;
+            this.delta = delta;
+        }
+
+        @Override
+        public Ticker get(int index) {
+            final int base = to - from;
+            if (index < base) return universe.get(order[from + Objects.checkIndex(index, base)]);
+            return delta.get(index - base);
+        }
+
+        @Override
+        public int size() {
+            return to - from + delta.size();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.kr.stocksmonitor.polygon;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable search index over a {@link TickerUniverse} for type-ahead lookups.
+ * <p>
+ * Lowercased symbols and names are computed once. Queries shorter than three characters are answered from
+ * the symbols and names sorted lexicographically (a prefix is a contiguous range there), longer queries
+ * intersect the posting lists of a trigram index over symbols and names and verify the survivors.
+ * Matches are ranked and only the top K are materialized.
+ */
+public final class TickerSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int[] NO_POSTINGS = new int[0];
+
+    // ranks, lower is better
+    private static final int EXACT_SYMBOL = 0;
+    private static final int SYMBOL_PREFIX = 1;
+    private static final int NAME_PREFIX = 2;
+    private static final int NAME_WORD = 3;
+    private static final int SYMBOL_CONTAINS = 4;
+    private static final int NAME_CONTAINS = 5;
+
+    private final TickerUniverse universe;
+    private final String[] symbols;
+    private final String[] names;
+    private final int[] bySymbol;
+    private final int[] byName;
+    private final Map<Long, int[]> trigrams;
+
+    public TickerSearchIndex(TickerUniverse universe) {
+        this.universe = universe;
+        final int size = universe.size();
+        symbols = new String[size];
+        names = new String[size];
+        for (int i = 0; i < size; i++) {
+            symbols[i] = universe.getSymbol(i).toLowerCase(Locale.ROOT);
+            names[i] = universe.getName(i).toLowerCase(Locale.ROOT);
+        }
+        bySymbol = sortedOrder(symbols);
+        byName = sortedOrder(names);
+        trigrams = buildTrigrams(symbols, names);
+    }
+
+    public TickerUniverse getUniverse() {
+        return universe;
+    }
+
+    public List<Ticker> search(String query, int limit) {
+        return search(query, limit, _ -> true);
+    }
+
+    /**
+     * Returns up to {@code limit} tickers matching the query, best first: exact symbol, symbol prefix,
+     * name prefix, name word prefix, then symbol and name substrings. Ties are broken by the shorter symbol.
+     *
+     * @param filter accepts universe indexes, see {@link TickerUniverse#getMarketId(int)}
+     */
+    public List<Ticker> search(String query, int limit, IntPredicate filter) {
+        final String q = query.strip().toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        // max-heap of packed rank keys, the worst of the current top K is on top
+        final PriorityQueue<Long> top = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+        if (q.length() < GRAM) {
+            final Set<Integer> seen = new HashSet<>();
+            collectPrefixRange(symbols, bySymbol, q, filter, limit, top, seen);
+            collectPrefixRange(names, byName, q, filter, limit, top, seen);
+        } else {
+            for (int i : candidates(q)) {
+                if (!filter.test(i)) continue;
+                final int rank = rank(i, q);
+                if (rank >= 0) offer(top, limit, rankKey(rank, i));
+            }
+        }
+
+        final long[] keys = top.stream().mapToLong(Long::longValue).sorted().toArray();
+        final List<Ticker> result = new ArrayList<>(keys.length);
+        for (long key : keys)
+            result.add(universe.get((int) key));
+        return result;
+    }
+
+    private void collectPrefixRange(String[] keys, int[] order, String q, IntPredicate filter, int limit,
+                                    PriorityQueue<Long> top, Set<Integer> seen) {
+        for (int pos = lowerBound(keys, order, q); pos < order.length && keys[order[pos]].startsWith(q); pos++) {
+            final int i = order[pos];
+            if (!filter.test(i) || !seen.add(i)) continue;
+            offer(top, limit, rankKey(rank(i, q), i));
+        }
+    }
+
+    private int rank(int i, String q) {
+        final String symbol = symbols[i];
+        final String name = names[i];
+        if (symbol.equals(q)) return EXACT_SYMBOL;
+        if (symbol.startsWith(q)) return SYMBOL_PREFIX;
+        if (name.startsWith(q)) return NAME_PREFIX;
+        final int inName = name.indexOf(q);
+        if (inName > 0 && !Character.isLetterOrDigit(name.charAt(inName - 1))) return NAME_WORD;
+        if (symbol.contains(q)) return SYMBOL_CONTAINS;
+        if (inName > 0) return NAME_CONTAINS;
+        return -1;
+    }
+
+    private long rankKey(int rank, int i) {
+        return ((long) rank << 48) | ((long) Math.min(symbols[i].length(), 0xFFFF) << 32) | i;
+    }
+
+    private static void offer(PriorityQueue<Long> top, int limit, long key) {
+        if (top.size() < limit) {
+            top.add(key);
+        } else if (key < top.peek()) {
+            top.poll();
+            top.add(key);
+        }
+    }
+
+    /**
+     * Tickers whose symbol or name contain every trigram of the query.
+     */
+    private int[] candidates(String q) {
+        final List<int[]> postings = new ArrayList<>();
+        for (int i = 0; i + GRAM <= q.length(); i++)
+            postings.add(trigrams.getOrDefault(trigram(q, i), NO_POSTINGS));
+        postings.sort(Comparator.comparingInt(p -> p.length));
+
+        int[] result = postings.getFirst();
+        for (int p = 1; p < postings.size() && result.length > 0; p++)
+            result = intersect(result, postings.get(p));
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        final int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int lowerBound(String[] keys, int[] order, String q) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (keys[order[mid]].compareTo(q) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static int[] sortedOrder(String[] keys) {
+        return IntStream.range(0, keys.length).boxed()
+                .sorted(Comparator.comparing(i -> keys[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static Map<Long, int[]> buildTrigrams(String[] symbols, String[] names) {
+        final Map<Long, int[]> postings = new HashMap<>();
+        final Map<Long, Integer> sizes = new HashMap<>();
+        final Set<Long> grams = new HashSet<>();
+        for (int i = 0; i < symbols.length; i++) {
+            grams.clear();
+            addTrigrams(symbols[i], grams);
+            addTrigrams(names[i], grams);
+            for (Long gram : grams) {
+                final int size = sizes.merge(gram, 1, Integer::sum);
+                int[] list = postings.get(gram);
+                if (null == list) postings.put(gram, list = new int[4]);
+                else if (size > list.length) postings.put(gram, list = Arrays.copyOf(list, list.length * 2));
+                list[size - 1] = i; // ascending, since tickers are visited in order
+            }
+        }
+        postings.replaceAll((gram, list) -> Arrays.copyOf(list, sizes.get(gram)));
+        return postings;
+    }
+
+    private static void addTrigrams(String s, Set<Long> grams) {
+        for (int i = 0; i + GRAM <= s.length(); i++)
+            grams.add(trigram(s, i));
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
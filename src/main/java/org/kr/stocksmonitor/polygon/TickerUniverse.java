@@ -0,0 +1,268 @@
+package org.kr.stocksmonitor.polygon;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Read-only, columnar view of the whole ticker universe.
+ * <p>
+ * Symbols and names are packed as UTF-8 into two byte arrays with offset tables, and markets and types are
+ * stored once in small dictionaries referenced by byte/short ids. Entries are sorted by symbol, so lookups are a
+ * binary search over the packed symbols. {@link #get(int)} materializes a {@link Ticker} on demand, whose
+ * market and type are the shared dictionary instances.
+ */
+public final class TickerUniverse extends AbstractList<Ticker> implements RandomAccess {
+
+    public static final TickerUniverse EMPTY = new Builder().build();
+
+    private final byte[] symbols;
+    private final int[] symbolOffsets;
+    private final byte[] names;
+    private final int[] nameOffsets;
+    private final byte[] marketIds;
+    private final short[] typeIds;
+    private final String[] markets;
+    private final String[] types;
+
+    private TickerUniverse(byte[] symbols, int[] symbolOffsets, byte[] names, int[] nameOffsets,
+                           byte[] marketIds, short[] typeIds, String[] markets, String[] types) {
+        this.symbols = symbols;
+        this.symbolOffsets = symbolOffsets;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.marketIds = marketIds;
+        this.typeIds = typeIds;
+        this.markets = markets;
+        this.types = types;
+    }
+
+    public static TickerUniverse of(Collection<Ticker> tickers) {
+        if (tickers instanceof TickerUniverse universe) return universe;
+        final Builder builder = new Builder(tickers.size());
+        for (Ticker ticker : tickers)
+            builder.add(ticker.getTicker(), ticker.getName(), ticker.getMarket(), ticker.getType());
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return marketIds.length;
+    }
+
+    @Override
+    public Ticker get(int index) {
+        return new Ticker(getSymbol(index), getName(index), getMarket(index), getType(index));
+    }
+
+    public String getSymbol(int index) {
+        return new String(symbols, symbolOffsets[index], symbolOffsets[index + 1] - symbolOffsets[index],
+                StandardCharsets.UTF_8);
+    }
+
+    public String getName(int index) {
+        return new String(names, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index],
+                StandardCharsets.UTF_8);
+    }
+
+    public String getMarket(int index) {
+        return markets[getMarketId(index)];
+    }
+
+    public String getType(int index) {
+        return types[getTypeId(index)];
+    }
+
+    public int getMarketId(int index) {
+        return marketIds[index] & 0xFF;
+    }
+
+    public int getTypeId(int index) {
+        return typeIds[index] & 0xFFFF;
+    }
+
+    /**
+     * Distinct markets, indexed by market id.
+     */
+    public List<String> getMarkets() {
+        return List.of(markets);
+    }
+
+    /**
+     * Distinct ticker types, indexed by type id.
+     */
+    public List<String> getTypes() {
+        return List.of(types);
+    }
+
+    public int marketIdOf(String market) {
+        return Arrays.asList(markets).indexOf(market);
+    }
+
+    public int typeIdOf(String type) {
+        return Arrays.asList(types).indexOf(type);
+    }
+
+    /**
+     * Returns the index of the symbol, or {@code -(insertion point) - 1} if it is not part of the universe.
+     */
+    public int indexOf(String symbol) {
+        final byte[] key = symbol.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = Arrays.compareUnsigned(symbols, symbolOffsets[mid], symbolOffsets[mid + 1], key, 0, key.length);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    public Optional<Ticker> find(String symbol) {
+        final int index = indexOf(symbol);
+        return index < 0 ? Optional.empty() : Optional.of(get(index));
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Ticker ticker ? Math.max(-1, indexOf(ticker.getTicker())) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Collects tickers in any order; duplicated symbols keep the first occurrence, like adding to a set would.
+     */
+    public static final class Builder {
+        private byte[] symbols;
+        private int[] symbolOffsets;
+        private byte[] names;
+        private int[] nameOffsets;
+        private byte[] marketIds;
+        private short[] typeIds;
+        private int size;
+        private int symbolsLength;
+        private int namesLength;
+        private boolean sorted = true;
+        private final Map<String, Integer> markets = new LinkedHashMap<>();
+        private final Map<String, Integer> types = new LinkedHashMap<>();
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(int expectedSize) {
+            final int capacity = Math.max(1, expectedSize);
+            symbols = new byte[capacity * 4];
+            symbolOffsets = new int[capacity + 1];
+            names = new byte[capacity * 24];
+            nameOffsets = new int[capacity + 1];
+            marketIds = new byte[capacity];
+            typeIds = new short[capacity];
+        }
+
+        public Builder add(String symbol, String name, String market, String type) {
+            final byte[] symbolBytes = symbol.getBytes(StandardCharsets.UTF_8);
+            final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            return add(symbolBytes, 0, symbolBytes.length, nameBytes, 0, nameBytes.length, market, type);
+        }
+
+        /**
+         * Adds a ticker whose symbol and name are already UTF-8 encoded, so a binary store can be loaded
+         * without decoding every string.
+         */
+        public Builder add(byte[] symbol, int symbolOffset, int symbolLength, byte[] name, int nameOffset,
+                           int nameLength, String market, String type) {
+            ensureCapacity(symbolLength, nameLength);
+            if (sorted && size > 0 && Arrays.compareUnsigned(symbols, symbolOffsets[size - 1], symbolsLength,
+                    symbol, symbolOffset, symbolOffset + symbolLength) >= 0)
+                sorted = false;
+
+            System.arraycopy(symbol, symbolOffset, symbols, symbolsLength, symbolLength);
+            symbolsLength += symbolLength;
+            symbolOffsets[size + 1] = symbolsLength;
+            System.arraycopy(name, nameOffset, names, namesLength, nameLength);
+            namesLength += nameLength;
+            nameOffsets[size + 1] = namesLength;
+
+            final int marketId = markets.computeIfAbsent(market, _ -> markets.size());
+            final int typeId = types.computeIfAbsent(type, _ -> types.size());
+            if (marketId > 0xFF || typeId > 0xFFFF)
+                throw new IllegalStateException("Too many distinct markets or ticker types");
+            marketIds[size] = (byte) marketId;
+            typeIds[size] = (short) typeId;
+            size++;
+            return this;
+        }
+
+        public TickerUniverse build() {
+            final String[] marketDictionary = markets.keySet().toArray(String[]::new);
+            final String[] typeDictionary = types.keySet().toArray(String[]::new);
+            if (sorted)
+                return new TickerUniverse(Arrays.copyOf(symbols, symbolsLength), Arrays.copyOf(symbolOffsets, size + 1),
+                        Arrays.copyOf(names, namesLength), Arrays.copyOf(nameOffsets, size + 1),
+                        Arrays.copyOf(marketIds, size), Arrays.copyOf(typeIds, size), marketDictionary, typeDictionary);
+
+            final Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> {
+                final int cmp = compareSymbols(a, b);
+                return 0 != cmp ? cmp : Integer.compare(a, b);
+            });
+
+            final byte[] sortedSymbols = new byte[symbolsLength];
+            final int[] sortedSymbolOffsets = new int[size + 1];
+            final byte[] sortedNames = new byte[namesLength];
+            final int[] sortedNameOffsets = new int[size + 1];
+            final byte[] sortedMarketIds = new byte[size];
+            final short[] sortedTypeIds = new short[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                final int from = order[i];
+                if (count > 0 && 0 == compareSymbols(order[i - 1], from)) continue; // keep the first one added
+                final int symbolLength = symbolOffsets[from + 1] - symbolOffsets[from];
+                System.arraycopy(symbols, symbolOffsets[from], sortedSymbols, sortedSymbolOffsets[count], symbolLength);
+                sortedSymbolOffsets[count + 1] = sortedSymbolOffsets[count] + symbolLength;
+                final int nameLength = nameOffsets[from + 1] - nameOffsets[from];
+                System.arraycopy(names, nameOffsets[from], sortedNames, sortedNameOffsets[count], nameLength);
+                sortedNameOffsets[count + 1] = sortedNameOffsets[count] + nameLength;
+                sortedMarketIds[count] = marketIds[from];
+                sortedTypeIds[count] = typeIds[from];
+                count++;
+            }
+            return new TickerUniverse(Arrays.copyOf(sortedSymbols, sortedSymbolOffsets[count]),
+                    Arrays.copyOf(sortedSymbolOffsets, count + 1),
+                    Arrays.copyOf(sortedNames, sortedNameOffsets[count]), Arrays.copyOf(sortedNameOffsets, count + 1),
+                    Arrays.copyOf(sortedMarketIds, count), Arrays.copyOf(sortedTypeIds, count),
+                    marketDictionary, typeDictionary);
+        }
+
+        private int compareSymbols(int a, int b) {
+            return Arrays.compareUnsigned(symbols, symbolOffsets[a], symbolOffsets[a + 1],
+                    symbols, symbolOffsets[b], symbolOffsets[b + 1]);
+        }
+
+        private void ensureCapacity(int symbolLength, int nameLength) {
+            if (size == marketIds.length) {
+                final int capacity = marketIds.length * 2;
+                symbolOffsets = Arrays.copyOf(symbolOffsets, capacity + 1);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+                marketIds = Arrays.copyOf(marketIds, capacity);
+                typeIds = Arrays.copyOf(typeIds, capacity);
+            }
+            if (symbolsLength + symbolLength > symbols.length)
+                symbols = Arrays.copyOf(symbols, Math.max(symbols.length * 2, symbolsLength + symbolLength));
+            if (namesLength + nameLength > names.length)
+                names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + nameLength));
+        }
+    }
+}
@@ -5,41 +5,157 @@ import org.apache.commons.csv.CSVPrinter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.kr.stocksmonitor.polygon.Ticker;
+import org.kr.stocksmonitor.polygon.TickerUniverse;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 public class FileUtils {
 
     private static final Path TICKERS_FILE = Paths.get(System.getProperty("user.dir"), "tickers.dat");
     private static final Logger logger = LogManager.getLogger(FileUtils.class);
+    private static final int TICKER_STORE_MAGIC = 0x54434B52; // "TCKR"
+    private static final int TICKER_STORE_VERSION = 1;
 
-    public static void saveToFile(Set<Ticker> tickersMap) throws IOException {
+    public static void saveToFile(Collection<Ticker> tickersMap) throws IOException {
         logger.debug("saving tickers to the file: {}, total tickers: {}", TICKERS_FILE, tickersMap.size());
         Instant start = Instant.now();
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(TICKERS_FILE.toFile()))) {
-            oos.writeObject(tickersMap);
-        }
+        writeTickers(TICKERS_FILE, tickersMap);
+        LogUtils.debugDuration(logger, start, "saving tickers to file");
     }
 
-    public static Set<Ticker> readFromFile() throws IOException, ClassNotFoundException {
+    public static TickerUniverse readFromFile() throws IOException, ClassNotFoundException {
         if (!Files.exists(TICKERS_FILE))
             throw new FileNotFoundException("Ticker file does not exists: " + TICKERS_FILE.toFile().getAbsoluteFile());
         logger.debug("loading tickers from the file: {}", TICKERS_FILE);
         Instant start = Instant.now();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(TICKERS_FILE.toFile()))) {
-            Set<Ticker> tickers = (Set<Ticker>) ois.readObject();
-            logger.debug("total number of tickers loaded from file: {}", tickers.size());
-            LogUtils.debugDuration(logger, start, "loading tickers from file");
-            return tickers;
+        TickerUniverse tickers = readTickers(TICKERS_FILE);
+        logger.debug("total number of tickers loaded from file: {}", tickers.size());
+        LogUtils.debugDuration(logger, start, "loading tickers from file");
+        return tickers;
+    }
+
+    /*
+     * Ticker store layout, all numbers big-endian:
+     *   int magic 'TCKR', short version
+     *   int ticker count
+     *   short market count, markets as strings
+     *   short type count, types as strings
+     *   per ticker, sorted by symbol: symbol string, name string, short market id, short type id
+     * where a string is an unsigned short byte length followed by the UTF-8 bytes.
+     */
+    static void writeTickers(Path file, Collection<Ticker> tickers) throws IOException {
+        final List<Ticker> sorted;
+        if (tickers instanceof TickerUniverse universe) {
+            sorted = universe;
+        } else {
+            sorted = new ArrayList<>(tickers);
+            sorted.sort(Comparator.comparing(Ticker::getTicker));
+        }
+        final Map<String, Integer> markets = new LinkedHashMap<>();
+        final Map<String, Integer> types = new LinkedHashMap<>();
+        for (Ticker ticker : sorted) {
+            markets.putIfAbsent(ticker.getMarket(), markets.size());
+            types.putIfAbsent(ticker.getType(), types.size());
+        }
+        if (markets.size() > 0xFFFF || types.size() > 0xFFFF)
+            throw new IOException("Too many distinct markets or types to store");
+
+        // write next to the target and move it over, so a failed save never leaves a truncated store behind
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(TICKER_STORE_MAGIC);
+            out.writeShort(TICKER_STORE_VERSION);
+            out.writeInt(sorted.size());
+            writeDictionary(out, markets.keySet());
+            writeDictionary(out, types.keySet());
+            for (Ticker ticker : sorted) {
+                writeString(out, ticker.getTicker());
+                writeString(out, ticker.getName());
+                out.writeShort(markets.get(ticker.getMarket()));
+                out.writeShort(types.get(ticker.getType()));
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static TickerUniverse readTickers(Path file) throws IOException, ClassNotFoundException {
+        // read onto the heap rather than mapped, a mapping would keep the file open until it is collected
+        // and block saving over it on Windows
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.remaining() >= 2 && buffer.getShort(0) == ObjectStreamConstants.STREAM_MAGIC)
+                return TickerUniverse.of(readLegacyTickers(file));
+            if (buffer.remaining() < 10 || buffer.getInt() != TICKER_STORE_MAGIC)
+                throw new StreamCorruptedException("Not a ticker store: " + file);
+            final int version = buffer.getShort();
+            if (version != TICKER_STORE_VERSION)
+                throw new StreamCorruptedException("Unsupported ticker store version: " + version);
+
+            final int count = buffer.getInt();
+            final byte[] scratch = new byte[0xFFFF];
+            final byte[] nameScratch = new byte[0xFFFF];
+            final String[] markets = readDictionary(buffer, scratch);
+            final String[] types = readDictionary(buffer, scratch);
+            // symbols and names stay UTF-8 encoded, they are copied into the universe as they are
+            final TickerUniverse.Builder builder = new TickerUniverse.Builder(count);
+            for (int i = 0; i < count; i++) {
+                final int symbolLength = buffer.getShort() & 0xFFFF;
+                buffer.get(scratch, 0, symbolLength);
+                final int nameLength = buffer.getShort() & 0xFFFF;
+                buffer.get(nameScratch, 0, nameLength);
+                builder.add(scratch, 0, symbolLength, nameScratch, 0, nameLength,
+                        markets[buffer.getShort() & 0xFFFF], types[buffer.getShort() & 0xFFFF]);
+            }
+            return builder.build();
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new StreamCorruptedException("Truncated or corrupted ticker store: " + file);
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static Set<Ticker> readLegacyTickers(Path file) throws IOException, ClassNotFoundException {
+        logger.debug("ticker file {} uses the legacy serialized format, it is rewritten on the next save", file);
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return (Set<Ticker>) ois.readObject();
+        }
+    }
+
+    private static void writeDictionary(DataOutputStream out, Collection<String> values) throws IOException {
+        out.writeShort(values.size());
+        for (String value : values)
+            writeString(out, value);
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer, byte[] scratch) {
+        final String[] values = new String[buffer.getShort() & 0xFFFF];
+        for (int i = 0; i < values.length; i++)
+            values[i] = readString(buffer, scratch);
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF)
+            throw new IOException("String too long to store: " + value.substring(0, 32) + "...");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        final int length = buffer.getShort() & 0xFFFF;
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
     public void saveTickersToCsv(String filename, List<Ticker> tickers) {
         logger.info("saving tickers to csv: " + filename);
         if (!filename.endsWith(".csv")) filename = filename + ".csv";
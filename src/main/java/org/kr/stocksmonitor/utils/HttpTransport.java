@@ -0,0 +1,135 @@
+package org.kr.stocksmonitor.utils;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kr.stocksmonitor.config.ConfigManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Long-lived HTTP transport shared by all Polygon and Yahoo callers.
+ * Connections are pooled and kept alive between calls, and a single SSL context is used,
+ * so paging through an endpoint pays the TCP and TLS handshake only once per route.
+ * <p>
+ * Asynchronous calls go through the non-blocking JDK client, which multiplexes all in-flight
+ * requests over its own selector thread instead of holding a thread per request. That client has its
+ * own connections: the max connections, per-route cap and keep-alive configured for the pool do not
+ * apply to it, and neither do the pool stats. Only the connect and response timeouts are shared.
+ * {@link org.kr.stocksmonitor.polygon.PolygonAPI#loadAllTickers} goes through it even in its synchronous form.
+ */
+public class HttpTransport implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(HttpTransport.class);
+
+    private static final HttpTransport instance = new HttpTransport(ConfigManager.getInstance());
+
+    public static HttpTransport getInstance() {
+        return instance;
+    }
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private final HttpClient asyncClient;
+    private final Duration asyncResponseTimeout;
+
+    private HttpTransport(ConfigManager config) {
+        final Timeout connectTimeout = Timeout.ofMilliseconds(config.readHttpConnectTimeoutMillis());
+        final Timeout responseTimeout = Timeout.ofMilliseconds(config.readHttpResponseTimeoutMillis());
+        final TimeValue keepAlive = TimeValue.ofSeconds(config.readHttpKeepAliveSeconds());
+
+        connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                // one SSL context for every connection, so the JSSE session cache can resume TLS sessions
+                .setSSLSocketFactory(SSLConnectionSocketFactoryBuilder.create()
+                        .setSslContext(SSLContexts.createSystemDefault())
+                        .build())
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setSoKeepAlive(true)
+                        .setTcpNoDelay(true)
+                        .setSoTimeout(responseTimeout)
+                        .build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(connectTimeout)
+                        .setSocketTimeout(responseTimeout)
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .setMaxConnTotal(config.readHttpMaxConnections())
+                .setMaxConnPerRoute(config.readHttpMaxConnectionsPerRoute())
+                .build();
+
+        client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(connectTimeout)
+                        .setResponseTimeout(responseTimeout)
+                        .setConnectionKeepAlive(keepAlive)
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive)
+                .build();
+        asyncClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(config.readHttpConnectTimeoutMillis()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        asyncResponseTimeout = Duration.ofMillis(config.readHttpResponseTimeoutMillis());
+        logger.debug("http transport initialized, max connections: {}, per route: {}, keep-alive: {}",
+                connectionManager.getMaxTotal(), connectionManager.getDefaultMaxPerRoute(), keepAlive);
+    }
+
+    public <T> T execute(ClassicHttpRequest request, HttpClientResponseHandler<? extends T> handler) throws IOException {
+        return client.execute(request, handler);
+    }
+
+    public String executeForString(ClassicHttpRequest request) throws IOException {
+        return execute(request, response -> {
+            logger.debug("Response: {} - {}", response.getCode(), response.getReasonPhrase());
+            return null == response.getEntity() ? "" : EntityUtils.toString(response.getEntity());
+        });
+    }
+
+    /**
+     * Sends a GET request without blocking the calling thread.
+     * Cancelling the returned future aborts the exchange.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(URI uri, HttpResponse.BodyHandler<T> bodyHandler) {
+        final HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(asyncResponseTimeout)
+                .GET()
+                .build();
+        return asyncClient.sendAsync(request, bodyHandler);
+    }
+
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @Override
+    public void close() {
+        logger.debug("closing http transport, pool stats: {}", getPoolStats());
+        client.close(CloseMode.GRACEFUL);
+        // waits for the in-flight exchanges, which are bounded by the response timeout
+        asyncClient.close();
+    }
+}
@@ -0,0 +1,234 @@
+package org.kr.stocksmonitor.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kr.stocksmonitor.config.ConfigManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding-window rate limiter for the Polygon API. Callers never sleep inside the limiter: {@link #acquire}
+ * returns a future which is completed by a single dispatcher thread once a permit is available.
+ * <p>
+ * Every endpoint class has its own window, and all of them additionally draw from one global window
+ * sized by {@link ConfigManager#readPolygonMaxCallsPerMinute()}. A window keeps the grant times of its
+ * last N permits and only grants another one once the oldest of them is more than a period old, so no
+ * rolling minute ever gets more than N calls and the account quota is never exceeded.
+ * Waiting {@link Priority#INTERACTIVE} calls are always granted before {@link Priority#BULK} ones.
+ */
+public class RateLimiter {
+
+    public enum EndpointClass {
+        REFERENCE,
+        NEWS,
+        AGGREGATES
+    }
+
+    public enum Priority {
+        INTERACTIVE,
+        BULK
+    }
+
+    private static final Logger logger = LogManager.getLogger(RateLimiter.class);
+    // same safety margin the sliding window used to have on top of the 60 seconds
+    private static final Duration PERIOD = Duration.ofMillis(60_050);
+
+    private static final RateLimiter instance = createFromConfig(ConfigManager.getInstance());
+
+    public static RateLimiter getInstance() {
+        return instance;
+    }
+
+    private static RateLimiter createFromConfig(ConfigManager config) {
+        final int globalBudget = config.readPolygonMaxCallsPerMinute();
+        final Map<EndpointClass, Integer> budgets = new EnumMap<>(EndpointClass.class);
+        for (EndpointClass endpointClass : EndpointClass.values())
+            budgets.put(endpointClass, config.readPolygonMaxCallsPerMinute(endpointClass.name().toLowerCase(), globalBudget));
+        return new RateLimiter(budgets, globalBudget, PERIOD);
+    }
+
+    private final SlidingWindow global;
+    private final Map<EndpointClass, SlidingWindow> windows = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, PriorityQueue<Waiter>> queues = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Stats> stats = new EnumMap<>(EndpointClass.class);
+    private final AtomicLong sequence = new AtomicLong();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("polygon-rate-limiter").factory());
+    private long scheduledDispatchAt = Long.MAX_VALUE;
+
+    RateLimiter(Map<EndpointClass, Integer> budgets, int globalBudget, Duration period) {
+        this.global = new SlidingWindow(globalBudget, period);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            windows.put(endpointClass, new SlidingWindow(budgets.getOrDefault(endpointClass, globalBudget), period));
+            queues.put(endpointClass, new PriorityQueue<>());
+            stats.put(endpointClass, new Stats());
+        }
+    }
+
+    /**
+     * Requests a permit for one call of the given endpoint class.
+     * The returned future completes once the call may be sent; cancelling it gives the place in the queue up.
+     */
+    public CompletableFuture<Void> acquire(EndpointClass endpointClass, Priority priority) {
+        final Waiter waiter = new Waiter(endpointClass, priority, sequence.incrementAndGet(), System.nanoTime());
+        synchronized (this) {
+            queues.get(endpointClass).add(waiter);
+        }
+        waiter.future.whenComplete((_, _) -> {
+            if (waiter.future.isCancelled()) remove(waiter);
+        });
+        dispatch();
+        return waiter.future;
+    }
+
+    public synchronized int getQueueDepth(EndpointClass endpointClass) {
+        return queues.get(endpointClass).size();
+    }
+
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (PriorityQueue<Waiter> queue : queues.values())
+            depth += queue.size();
+        return depth;
+    }
+
+    public long getGrantedCount(EndpointClass endpointClass) {
+        return stats.get(endpointClass).granted.sum();
+    }
+
+    public double getAverageWaitMillis(EndpointClass endpointClass) {
+        final Stats s = stats.get(endpointClass);
+        final long granted = s.granted.sum();
+        return 0 == granted ? 0 : s.totalWaitNanos.sum() / 1_000_000.0 / granted;
+    }
+
+    public long getMaxWaitMillis(EndpointClass endpointClass) {
+        return TimeUnit.NANOSECONDS.toMillis(stats.get(endpointClass).maxWaitNanos.get());
+    }
+
+    private synchronized void remove(Waiter waiter) {
+        queues.get(waiter.endpointClass).remove(waiter);
+    }
+
+    private void dispatch() {
+        final List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            final long now = System.nanoTime();
+            Waiter next;
+            while ((next = nextEligible(now)) != null) {
+                queues.get(next.endpointClass).poll();
+                if (next.future.isDone()) continue; // cancelled while waiting
+                global.take(now);
+                windows.get(next.endpointClass).take(now);
+                stats.get(next.endpointClass).record(now - next.enqueuedAt);
+                granted.add(next);
+            }
+            scheduleNextDispatch(now);
+        }
+        // complete outside the lock, dependent stages may run on this thread
+        for (Waiter waiter : granted) {
+            if (logger.isDebugEnabled())
+                logger.debug("rate limit permit granted: {} {}, waited {} ms, queue depth: {}", waiter.endpointClass,
+                        waiter.priority, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.enqueuedAt), getQueueDepth());
+            waiter.future.complete(null);
+        }
+    }
+
+    private Waiter nextEligible(long now) {
+        if (!global.hasPermit(now)) return null;
+        Waiter best = null;
+        for (Map.Entry<EndpointClass, PriorityQueue<Waiter>> e : queues.entrySet()) {
+            final Waiter head = e.getValue().peek();
+            if (null == head || !windows.get(e.getKey()).hasPermit(now)) continue;
+            if (null == best || head.compareTo(best) < 0) best = head;
+        }
+        return best;
+    }
+
+    private void scheduleNextDispatch(long now) {
+        long wakeUpAt = Long.MAX_VALUE;
+        for (Map.Entry<EndpointClass, PriorityQueue<Waiter>> e : queues.entrySet()) {
+            if (e.getValue().isEmpty()) continue;
+            final long nanos = Math.max(global.nanosUntilPermit(now), windows.get(e.getKey()).nanosUntilPermit(now));
+            wakeUpAt = Math.min(wakeUpAt, now + nanos);
+        }
+        if (wakeUpAt == Long.MAX_VALUE || wakeUpAt >= scheduledDispatchAt) return;
+        final long dispatchAt = wakeUpAt;
+        scheduledDispatchAt = dispatchAt;
+        dispatcher.schedule(() -> {
+            synchronized (this) {
+                if (scheduledDispatchAt == dispatchAt) scheduledDispatchAt = Long.MAX_VALUE;
+            }
+            dispatch();
+        }, Math.max(0, dispatchAt - now), TimeUnit.NANOSECONDS);
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        final EndpointClass endpointClass;
+        final Priority priority;
+        final long sequence;
+        final long enqueuedAt;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Waiter(EndpointClass endpointClass, Priority priority, long sequence, long enqueuedAt) {
+            this.endpointClass = endpointClass;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        @Override
+        public int compareTo(Waiter o) {
+            final int byPriority = priority.compareTo(o.priority);
+            return 0 != byPriority ? byPriority : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    /**
+     * Grant times of the last permits, oldest first, in a ring.
+     */
+    private static final class SlidingWindow {
+        private final long[] grantedAt;
+        private final long periodNanos;
+        private int count;
+        private int oldest;
+
+        SlidingWindow(int callsPerPeriod, Duration period) {
+            this.grantedAt = new long[Math.max(1, callsPerPeriod)];
+            this.periodNanos = period.toNanos();
+        }
+
+        boolean hasPermit(long now) {
+            return count < grantedAt.length || now - grantedAt[oldest] > periodNanos;
+        }
+
+        void take(long now) {
+            if (count < grantedAt.length) {
+                grantedAt[count++] = now;
+            } else {
+                grantedAt[oldest] = now;
+                oldest = (oldest + 1) % grantedAt.length;
+            }
+        }
+
+        long nanosUntilPermit(long now) {
+            return hasPermit(now) ? 0 : grantedAt[oldest] + periodNanos + 1 - now;
+        }
+    }
+
+    private static final class Stats {
+        final LongAdder granted = new LongAdder();
+        final LongAdder totalWaitNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        void record(long waitNanos) {
+            granted.increment();
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+    }
+}
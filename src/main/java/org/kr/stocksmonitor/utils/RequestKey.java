@@ -0,0 +1,48 @@
+package org.kr.stocksmonitor.utils;
+
+import org.apache.hc.core5.http.NameValuePair;
+
+import java.util.Arrays;
+
+/**
+ * Cache key of a GET request: the url and its query parameters in order. The hash is computed once,
+ * so repeated cache lookups do not format or rehash the request.
+ */
+public final class RequestKey {
+
+    private final String url;
+    private final String[] parameters;
+    private final int hash;
+
+    private RequestKey(String url, String[] parameters) {
+        this.url = url;
+        this.parameters = parameters;
+        this.hash = 31 * url.hashCode() + Arrays.hashCode(parameters);
+    }
+
+    public static RequestKey of(String url, NameValuePair... parameters) {
+        final String[] flat = new String[parameters.length * 2];
+        for (int i = 0; i < parameters.length; i++) {
+            flat[2 * i] = parameters[i].getName();
+            flat[2 * i + 1] = parameters[i].getValue();
+        }
+        return new RequestKey(url, flat);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RequestKey other)) return false;
+        return hash == other.hash && url.equals(other.url) && Arrays.equals(parameters, other.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return url + Arrays.toString(parameters);
+    }
+}
@@ -1,38 +1,35 @@
 package org.kr.stocksmonitor.utils;
 
 import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.NameValuePair;
-import org.apache.hc.core5.http.ParseException;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.net.URIBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.kr.stocksmonitor.config.ConfigManager;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.http.HttpResponse;
 import java.time.Instant;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 import org.kr.stocksmonitor.exceptions.RestCallException;
 
 public class RestUtils {
 
     private static final Logger logger = LogManager.getLogger(RestUtils.class);
-    private static final LinkedList<Long> lastXCalls = new LinkedList<>();
 
     private static RestUtils instance = new RestUtils();
     public static RestUtils getInstance() {
         return instance;
     }
 
-    private ConfigManager config = ConfigManager.getInstance();
-    private final int maxCallsPerMinute = config.readPolygonMaxCallsPerMinute();
+    private final HttpTransport transport = HttpTransport.getInstance();
+    private final RateLimiter rateLimiter = RateLimiter.getInstance();
 
     private RestUtils() {
 
@@ -40,12 +37,26 @@ public class RestUtils {
 
     public String callRestEndpoint(String host, String endpoint, String apiKey, List<NameValuePair> parameters,
                                    RestEndpointType endpointType) throws RestCallException {
+        return callRestEndpoint(host, endpoint, apiKey, parameters, endpointType,
+                RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.INTERACTIVE);
+    }
+
+    private String callRestEndpoint(String host, String endpoint, String apiKey, List<NameValuePair> parameters,
+                                    RestEndpointType endpointType, RateLimiter.EndpointClass endpointClass,
+                                    RateLimiter.Priority priority) throws RestCallException {
+        return callRestEndpoint(host, endpoint, apiKey, parameters, endpointType, endpointClass, priority,
+                transport::executeForString);
+    }
+
+    private <T> T callRestEndpoint(String host, String endpoint, String apiKey, List<NameValuePair> parameters,
+                                   RestEndpointType endpointType, RateLimiter.EndpointClass endpointClass,
+                                   RateLimiter.Priority priority, RequestExecutor<T> executor) throws RestCallException {
         Instant start = Instant.now();
         if (endpointType == RestEndpointType.POLYGON)
-            enforceRateLimit();
+            awaitPermit(endpointClass, priority);
         if (endpointType == RestEndpointType.YAHOO)
             manageYahooCrumbsAndCookies(parameters);
-        String result = "";
+        T result;
         HttpGet request = new HttpGet(host + endpoint);
         URIBuilder builder = null;
         try {
@@ -61,15 +72,10 @@ public class RestUtils {
             builder.addParameter("apiKey", apiKey);
         if (endpointType == RestEndpointType.YAHOO)
             builder.addParameter("crumb", apiKey);
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
+        try {
             request.setUri(builder.build());
-            try (CloseableHttpResponse httpResponse = client.execute(request)) {
-                HttpEntity entity = httpResponse.getEntity();
-                if (entity != null) {
-                    result = EntityUtils.toString(entity);
-                }
-            }
-        } catch (IOException | URISyntaxException | ParseException e) {
+            result = executor.execute(request);
+        } catch (IOException | URISyntaxException e) {
             throw new RestCallException(e);
         }
 
@@ -81,30 +87,97 @@ public class RestUtils {
         return callRestEndpoint(host, endpoint, apiKey, parameters, RestEndpointType.POLYGON);
     }
 
+    public String callPolygonEndpoint(String host, String endpoint, String apiKey, List<NameValuePair> parameters,
+                                      RateLimiter.EndpointClass endpointClass, RateLimiter.Priority priority) throws RestCallException {
+        return callRestEndpoint(host, endpoint, apiKey, parameters, RestEndpointType.POLYGON, endpointClass, priority);
+    }
+
+    /**
+     * Calls a Polygon endpoint and hands the response entity stream straight to the decoder,
+     * so the body is never buffered into a String.
+     */
+    public <T> T callPolygonEndpoint(String host, String endpoint, String apiKey, List<NameValuePair> parameters,
+                                     RateLimiter.EndpointClass endpointClass, RateLimiter.Priority priority,
+                                     ResponseDecoder<T> decoder) throws RestCallException {
+        return callRestEndpoint(host, endpoint, apiKey, parameters, RestEndpointType.POLYGON, endpointClass, priority,
+                request -> transport.execute(request, response -> {
+                    logger.debug("Response: {} - {}", response.getCode(), response.getReasonPhrase());
+                    if (null == response.getEntity()) return decoder.decode(InputStream.nullInputStream());
+                    try (InputStream in = response.getEntity().getContent()) {
+                        return decoder.decode(in);
+                    }
+                }));
+    }
+
+    /**
+     * Asynchronous variant of {@link #callPolygonEndpoint}. Neither the rate limit nor the HTTP exchange block
+     * a thread; cancelling the returned future releases the rate limit slot or aborts the request in flight.
+     * The body is returned as raw bytes, ready for a streaming decoder.
+     */
+    public CompletableFuture<byte[]> callPolygonEndpointAsync(String host, String endpoint, String apiKey,
+                                                              List<NameValuePair> parameters,
+                                                              RateLimiter.EndpointClass endpointClass,
+                                                              RateLimiter.Priority priority) {
+        final URI uri;
+        try {
+            final URIBuilder builder = new URIBuilder(host + endpoint).addParameters(parameters);
+            logger.debug("calling endpoint asynchronously: {}", builder);
+            uri = builder.addParameter("apiKey", apiKey).build();
+        } catch (URISyntaxException e) {
+            return CompletableFuture.failedFuture(new RestCallException(e));
+        }
+
+        final Instant start = Instant.now();
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        final CompletableFuture<Void> permit = rateLimiter.acquire(endpointClass, priority);
+        result.whenComplete((_, _) -> {
+            if (result.isCancelled()) permit.cancel(false);
+        });
+        permit.whenComplete((_, permitError) -> {
+            if (null != permitError || result.isDone()) return;
+            final CompletableFuture<HttpResponse<byte[]>> call = transport.sendAsync(uri, HttpResponse.BodyHandlers.ofByteArray());
+            result.whenComplete((_, _) -> {
+                if (result.isCancelled()) call.cancel(true);
+            });
+            call.whenComplete((response, callError) -> {
+                if (null != callError) {
+                    final Throwable cause = callError instanceof CompletionException ? callError.getCause() : callError;
+                    result.completeExceptionally(new RestCallException(cause));
+                } else {
+                    logger.debug("Response: {}", response.statusCode());
+                    LogUtils.debugDuration(logger, start, String.format("calling endpoint '%s%s'", host, endpoint));
+                    result.complete(response.body());
+                }
+            });
+        });
+        return result;
+    }
+
+    public interface ResponseDecoder<T> {
+        T decode(InputStream in) throws IOException;
+    }
+
+    private interface RequestExecutor<T> {
+        T execute(HttpGet request) throws IOException;
+    }
+
     private void manageYahooCrumbsAndCookies(List<NameValuePair> parameters) {
 
     }
 
-    private void enforceRateLimit() {
-        logger.debug("enforcing rate limit...");
+    private void awaitPermit(RateLimiter.EndpointClass endpointClass, RateLimiter.Priority priority) throws RestCallException {
         Instant start = Instant.now();
-        synchronized (lastXCalls) {
-            lastXCalls.offer(start.toEpochMilli());
-            while (lastXCalls.size() >= maxCallsPerMinute) {
-                long firstCall = lastXCalls.pollFirst();
-                final long timeSinceFirstCall = System.currentTimeMillis() - firstCall;
-                if (timeSinceFirstCall <= 60_000) {
-                    try {
-                        long sleep_time = 60_050 - timeSinceFirstCall;
-                        logger.debug("enforcing rate limit, sleeping for: {}", sleep_time);
-                        Thread.sleep(sleep_time);
-                    } catch (InterruptedException e) {
-                        logger.error(e);
-                    }
-                }
-            }
+        final CompletableFuture<Void> permit = rateLimiter.acquire(endpointClass, priority);
+        try {
+            permit.get();
+        } catch (InterruptedException e) {
+            permit.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RestCallException("Interrupted while waiting for the rate limit", e);
+        } catch (ExecutionException e) {
+            throw new RestCallException(e.getCause());
         }
-        LogUtils.debugDuration(logger, start, "enforceRateLimit()");
+        LogUtils.debugDuration(logger, start, String.format("awaiting rate limit permit (%s, %s)", endpointClass, priority));
     }
 
 }
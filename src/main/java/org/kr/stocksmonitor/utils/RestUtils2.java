@@ -1,20 +1,15 @@
 package org.kr.stocksmonitor.utils;
 
-import org.apache.commons.collections.map.LRUMap;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.NameValuePair;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Arrays;
 
 public class RestUtils2 {
 
@@ -26,8 +21,10 @@ public class RestUtils2 {
         return instance;
     }
 
-    private final PoolingHttpClientConnectionManager poolingConnManager = new PoolingHttpClientConnectionManager();
-    private final LRUMap cache = new LRUMap(30000);
+    private final HttpTransport transport = HttpTransport.getInstance();
+    // bounded by the number of responses and by their size in chars
+    private final TtlCache<RequestKey, String> cache =
+            new TtlCache<>(30000, 32 * 1024 * 1024, Duration.ofMinutes(10), (_, response) -> response.length());
 
     private RestUtils2() {
         try {
@@ -40,27 +37,25 @@ public class RestUtils2 {
 
     public String runQuery(String url, NameValuePair... parameters) throws IOException {
         Instant start = Instant.now();
-        final String key = String.format("%s, %s", url, Arrays.toString(parameters));
-        final Object cacheHit = cache.get(key);
-        if (null != cacheHit) return cacheHit.toString();
+        final RequestKey key = RequestKey.of(url, parameters);
+        final String cacheHit = cache.get(key);
+        if (null != cacheHit) return cacheHit;
         try {
-            CloseableHttpClient client = HttpClients.custom()
-                .setConnectionManager(poolingConnManager)
-                .build();
             final ClassicHttpRequest httpGet = ClassicRequestBuilder
                     .get(url)
                     .addParameters(parameters)
                     .build();
-            final String result = client.execute(httpGet, classicHttpResponse -> {
-                log.debug("Response: {} - {}", classicHttpResponse.getCode(), classicHttpResponse.getReasonPhrase());
-                return EntityUtils.toString(classicHttpResponse.getEntity());
-            });
-            cache.putIfAbsent(key, result);
+            final String result = transport.executeForString(httpGet);
+            cache.put(key, result);
             return result;
         } finally {
             LogUtils.debugDuration(log, start, "Calling url");
         }
     }
 
+    public TtlCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
 
 }
@@ -0,0 +1,83 @@
+package org.kr.stocksmonitor.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs type-ahead queries on virtual threads and publishes only the result of the latest one.
+ * <p>
+ * Every {@link #submit} supersedes the previous query: it is cancelled if still waiting out the debounce delay
+ * or running, and its result is dropped if it completes anyway. Results are handed to the publisher through
+ * the given executor, e.g. {@code Platform::runLater}, so the UI thread never runs the search itself.
+ */
+public class SearchScheduler<Q, R> {
+
+    private static final Logger logger = LogManager.getLogger(SearchScheduler.class);
+
+    public interface Search<Q, R> {
+        R search(Q query) throws Exception;
+    }
+
+    private final Search<Q, R> search;
+    private final Consumer<R> publisher;
+    private final Executor publishExecutor;
+    private final Duration debounce;
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("search-", 0).factory());
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> running;
+
+    public SearchScheduler(Search<Q, R> search, Consumer<R> publisher, Executor publishExecutor) {
+        this(search, publisher, publishExecutor, Duration.ZERO);
+    }
+
+    public SearchScheduler(Search<Q, R> search, Consumer<R> publisher, Executor publishExecutor, Duration debounce) {
+        this.search = search;
+        this.publisher = publisher;
+        this.publishExecutor = publishExecutor;
+        this.debounce = debounce;
+    }
+
+    public synchronized void submit(Q query) {
+        final long id = generation.incrementAndGet();
+        if (null != running) running.cancel(true);
+        running = workers.submit(() -> run(id, query));
+    }
+
+    /**
+     * Drops the pending query, if any, without submitting a new one.
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (null != running) running.cancel(true);
+        running = null;
+    }
+
+    private void run(long id, Q query) {
+        try {
+            if (!debounce.isZero()) Thread.sleep(debounce);
+            if (!isLatest(id)) return;
+            final long start = System.nanoTime();
+            final R result = search.search(query);
+            if (!isLatest(id)) return;
+            logger.debug("search '{}' took {} us", query, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            publishExecutor.execute(() -> {
+                // a newer query may have been submitted while this one was queued for publishing
+                if (isLatest(id)) publisher.accept(result);
+            });
+        } catch (InterruptedException e) {
+            logger.trace("search '{}' superseded", query);
+        } catch (Exception e) {
+            if (isLatest(id)) logger.error("search '{}' failed", query, e);
+        }
+    }
+
+    private boolean isLatest(long id) {
+        return generation.get() == id;
+    }
+}
@@ -0,0 +1,143 @@
+package org.kr.stocksmonitor.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: while a call is in flight, further callers for that key
+ * share its result instead of starting their own. Nothing is remembered once the call completes,
+ * caching the result is up to the caller.
+ */
+public class SingleFlight<K, V> {
+
+    private static final Logger logger = LogManager.getLogger(SingleFlight.class);
+
+    public interface Loader<V, E extends Exception> {
+        V load() throws E;
+    }
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Asynchronous variant. Every caller gets its own future: cancelling it only detaches that caller,
+     * the shared call is cancelled once all of its callers have cancelled.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        while (true) {
+            final Flight<V> flight = new Flight<>();
+            final Flight<V> existing = flights.putIfAbsent(key, flight);
+            if (null == existing) {
+                final CompletableFuture<V> result = flight.join();
+                flight.source.whenComplete((_, _) -> flights.remove(key, flight));
+                final CompletableFuture<V> source;
+                try {
+                    source = call.get();
+                } catch (RuntimeException e) {
+                    flight.source.completeExceptionally(e);
+                    return result;
+                }
+                flight.onCancel = () -> source.cancel(true);
+                source.whenComplete((value, error) -> {
+                    if (null != error) flight.source.completeExceptionally(unwrap(error));
+                    else flight.source.complete(value);
+                });
+                if (flight.source.isCancelled()) source.cancel(true); // every caller left before the call started
+                return result;
+            }
+            final CompletableFuture<V> shared = existing.join();
+            if (null != shared) {
+                logger.debug("joining the call in flight for {}", key);
+                return shared;
+            }
+            // the flight was abandoned by all of its callers meanwhile, start a new one
+            flights.remove(key, existing);
+        }
+    }
+
+    /**
+     * Synchronous variant: the first caller runs the loader, concurrent callers for the same key wait for its
+     * result or its exception. All callers of one key are expected to use loaders throwing the same exception type.
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Exception> V call(K key, Loader<V, E> loader) throws E {
+        final Flight<V> flight = new Flight<>();
+        flight.callers.incrementAndGet(); // the loader itself, so waiters leaving never cancel the flight
+        Flight<V> existing;
+        while (null != (existing = flights.putIfAbsent(key, flight))) {
+            final CompletableFuture<V> shared = existing.join();
+            if (null == shared) {
+                flights.remove(key, existing);
+                continue;
+            }
+            logger.debug("waiting for the call in flight for {}", key);
+            try {
+                return shared.get();
+            } catch (InterruptedException e) {
+                shared.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for " + key);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+                if (cause instanceof Error error) throw error;
+                throw (E) cause;
+            }
+        }
+        try {
+            final V value = loader.load();
+            flight.source.complete(value);
+            return value;
+        } catch (Exception e) {
+            flight.source.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    public int inFlight() {
+        return flights.size();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && null != error.getCause() ? error.getCause() : error;
+    }
+
+    private static final class Flight<V> {
+        final CompletableFuture<V> source = new CompletableFuture<>();
+        final AtomicInteger callers = new AtomicInteger();
+        volatile Runnable onCancel = () -> {};
+
+        /**
+         * Returns a future for one more caller, or null if all previous callers already cancelled.
+         */
+        CompletableFuture<V> join() {
+            int count;
+            do {
+                count = callers.get();
+                if (count < 0) return null;
+            } while (!callers.compareAndSet(count, count + 1));
+
+            final CompletableFuture<V> result = new CompletableFuture<>();
+            source.whenComplete((value, error) -> {
+                if (null != error) result.completeExceptionally(error);
+                else result.complete(value);
+            });
+            result.whenComplete((_, _) -> {
+                if (result.isCancelled()) leave();
+            });
+            return result;
+        }
+
+        private void leave() {
+            if (callers.decrementAndGet() == 0 && callers.compareAndSet(0, -1)) {
+                source.cancel(true);
+                onCancel.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.kr.stocksmonitor.utils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe LRU cache bounded both by the number of entries and by their total weight, whose entries expire
+ * after a time to live. The least recently used entries are evicted first once either bound is exceeded.
+ * Hit, miss, eviction and expiration counts are kept for {@link #getStats()}.
+ */
+public class TtlCache<K, V> {
+
+    public interface Weigher<K, V> {
+        long weigh(K key, V value);
+    }
+
+    public record Stats(long hits, long misses, long evictions, long expirations) {
+        public double hitRate() {
+            final long requests = hits + misses;
+            return 0 == requests ? 0 : (double) hits / requests;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final Duration defaultTtl;
+    private final Weigher<? super K, ? super V> weigher;
+    private final LongSupplier nanoTime;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // access order, so iteration starts with the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public TtlCache(int maxEntries, Duration defaultTtl) {
+        this(maxEntries, Long.MAX_VALUE, defaultTtl, (_, _) -> 1);
+    }
+
+    public TtlCache(int maxEntries, long maxWeight, Duration defaultTtl, Weigher<? super K, ? super V> weigher) {
+        this(maxEntries, maxWeight, defaultTtl, weigher, System::nanoTime);
+    }
+
+    TtlCache(int maxEntries, long maxWeight, Duration defaultTtl, Weigher<? super K, ? super V> weigher,
+             LongSupplier nanoTime) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.defaultTtl = defaultTtl;
+        this.weigher = weigher;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Returns the cached value, or null if there is none or it has expired.
+     */
+    public V get(K key) {
+        lock.lock();
+        try {
+            final Entry<V> entry = entries.get(key);
+            if (null != entry && entry.isExpired(nanoTime.getAsLong())) {
+                remove(key, entry);
+                expirations.increment();
+            } else if (null != entry) {
+                hits.increment();
+                return entry.value;
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, defaultTtl);
+    }
+
+    public void put(K key, V value, Duration ttl) {
+        final long entryWeight = weigher.weigh(key, value);
+        lock.lock();
+        try {
+            final Entry<V> previous = entries.remove(key);
+            if (null != previous) weight -= previous.weight;
+            if (entryWeight > maxWeight) return; // would evict everything else and still not fit
+            entries.put(key, new Entry<>(value, entryWeight, nanoTime.getAsLong() + ttl.toNanos()));
+            weight += entryWeight;
+            evictIfNeeded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            final Entry<V> entry = entries.get(key);
+            if (null != entry) remove(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            weight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long weight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+    }
+
+    private void evictIfNeeded() {
+        final long now = nanoTime.getAsLong();
+        final Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+            final Entry<V> eldest = it.next().getValue();
+            it.remove();
+            weight -= eldest.weight;
+            if (eldest.isExpired(now)) expirations.increment();
+            else evictions.increment();
+        }
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        entries.remove(key);
+        weight -= entry.weight;
+    }
+
+    private record Entry<V>(V value, long weight, long expiresAt) {
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
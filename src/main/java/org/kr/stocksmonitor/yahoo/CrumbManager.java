@@ -1,10 +1,7 @@
 package org.kr.stocksmonitor.yahoo;
 
-import org.apache.hc.client5.http.cookie.BasicCookieStore;
-import org.apache.hc.client5.http.cookie.CookieStore;
-
+import org.apache.hc.client5.http.cookie.Cookie;
 import org.apache.hc.client5.http.impl.cookie.BasicClientCookie;
-import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.net.URIBuilder;
 import org.apache.logging.log4j.LogManager;
@@ -14,12 +11,33 @@ import org.htmlunit.Page;
 import org.htmlunit.WebClient;
 import org.htmlunit.html.HtmlButton;
 import org.htmlunit.html.HtmlPage;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.kr.stocksmonitor.utils.SingleFlight;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
+/**
+ * Holds the Yahoo crumb and cookies. The session is persisted with its expiry and reused across launches,
+ * it is only captured again with HtmlUnit when there is none yet, it has expired, or Yahoo rejects it.
+ */
 public class CrumbManager {
 
     private static final String COOKIE_URL = "https://finance.yahoo.com/quote/AAPL";
@@ -30,82 +48,212 @@ public class CrumbManager {
     private static final String USER_AGENT_HEADER_NAME = "User-Agent";
     private static final String USER_AGENT_HEADER_VALUE = "Mozilla/5.0";
     private static final String COOKIE_HEADER_NAME = "Cookie";
+    private static final Path SESSION_FILE = Paths.get(System.getProperty("user.dir"), "yahoo-session.json");
+    // the crumb has no expiry of its own, so even a session with long-lived cookies is captured again after a while
+    private static final Duration MAX_SESSION_AGE = Duration.ofDays(7);
+    // rejections of requests sent with the previous session must not trigger another capture,
+    // and after a failed capture requests go out without a crumb until it is tried again
+    private static final Duration MIN_REFRESH_INTERVAL = Duration.ofMinutes(1);
+    private static final Executor refreshExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("yahoo-session-", 0).factory());
     private static final Logger logger = LogManager.getLogger(CrumbManager.class);
-    private static final CrumbManager instance = new CrumbManager();
+    private static final CrumbManager instance = new CrumbManager(SESSION_FILE);
     public static CrumbManager getInstance() {
         return instance;
     }
 
-    private final CookieStore cookieStore = new BasicCookieStore();
-    private final HttpClientContext localContext = HttpClientContext.create();
-    private String crumb = "";
-    private final boolean instantiated;
+    record Session(String crumb, List<Cookie> cookies, Instant capturedAt, Instant expiresAt) {
+        boolean isValid(Instant now) {
+            return !crumb.isEmpty() && now.isBefore(expiresAt);
+        }
+    }
+
+    private final Path sessionFile;
+    private final SingleFlight<String, Session> refreshes = new SingleFlight<>();
+    private volatile Session session;
+    private volatile Instant failedAt;
+    private boolean persistedRead;
+
+    CrumbManager(Path sessionFile) {
+        this.sessionFile = sessionFile;
+    }
+
+    protected boolean isInstantiated() {
+        return null != session();
+    }
+
+    public void prepareRequest(HttpRequest httpGet) {
+        httpGet.addHeader(ACCEPT_HEADER_NAME, ACCEPT_HEADER_VALUE);
+        httpGet.addHeader(USER_AGENT_HEADER_NAME, USER_AGENT_HEADER_VALUE);
+        final Session current = session();
+        if (null == current) {
+            logger.debug("no Yahoo session, sending the request without crumb and cookies");
+            return;
+        }
+        for (var c : current.cookies()) {
+            final String header = String.format("%s=%s; Domain=%s", c.getName(), c.getValue(), c.getDomain());
+            httpGet.addHeader(COOKIE_HEADER_NAME, header);
+            logger.trace("adding cookie header: {}", header);
+        }
+        try {
+            URI uri = new URIBuilder(httpGet.getUri())
+                    .addParameter("crumb", current.crumb())
+                    .build();
+            httpGet.setUri(uri);
+            logger.trace("crumb added: {}", uri);
+        } catch (URISyntaxException e) {
+            logger.error(e);
+        }
+    }
+
+    /**
+     * Captures a new session in the background, requests keep using the current one until it is in place.
+     * The returned future completes with true once a new session is available.
+     */
+    public CompletableFuture<Boolean> onUnauthorized() {
+        final Session current = session;
+        if (null != current && current.capturedAt().plus(MIN_REFRESH_INTERVAL).isAfter(Instant.now()))
+            return CompletableFuture.completedFuture(true);
+        if (isBackingOff())
+            return CompletableFuture.completedFuture(false);
+        logger.info("Yahoo session rejected, capturing a new one");
+        return refresh().handle((captured, _) -> null != captured);
+    }
+
+    private Session session() {
+        final Session current = null != session ? session : readPersisted();
+        if (null != current && current.isValid(Instant.now()))
+            return current;
+        if (isBackingOff())
+            return null;
+        // nothing usable yet, the caller has to wait for the capture
+        try {
+            return refresh().join();
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
+    private boolean isBackingOff() {
+        final Instant failed = failedAt;
+        return null != failed && failed.plus(MIN_REFRESH_INTERVAL).isAfter(Instant.now());
+    }
 
-    private CrumbManager() {
-        instantiated = init();
+    private synchronized Session readPersisted() {
+        if (null == session && !persistedRead) {
+            persistedRead = true;
+            try {
+                session = readSession(sessionFile);
+                if (null != session)
+                    logger.debug("session loaded from {}, expires at {}", sessionFile, session.expiresAt());
+            } catch (IOException | JSONException e) {
+                logger.warn("Cannot read the persisted session from {}: {}", sessionFile, e.getMessage());
+            }
+        }
+        return session;
     }
 
-    private boolean init() {
+    private CompletableFuture<Session> refresh() {
+        return refreshes.execute("session", () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                final Session captured = capture();
+                session = captured;
+                failedAt = null;
+                writeSession(sessionFile, captured);
+                return captured;
+            } catch (IOException | RuntimeException e) {
+                failedAt = Instant.now();
+                logger.error("Cannot capture crumb and cookies, retrying in {} s: ", MIN_REFRESH_INTERVAL.toSeconds(), e);
+                throw new CompletionException(e);
+            }
+        }, refreshExecutor));
+    }
+
+    Session capture() throws IOException {
+        final long start = System.nanoTime();
         try (WebClient webClient = new WebClient(BrowserVersion.CHROME)) {
             webClient.getOptions().setJavaScriptEnabled(false);
             webClient.getOptions().setCssEnabled(false);
             HtmlPage page = webClient.getPage(COOKIE_URL);
 
             HtmlButton button = page.getFirstByXPath(ACCEPT_ALL_COOKIES_BUTTON);
-            if (button != null) {
-                button.click();
-                Page response = webClient.getPage(CRUMB_URL);
-                initCookieStore(webClient.getCookieManager().getCookies());
-                crumb = response.getWebResponse().getContentAsString();
-                logger.trace("crumb set: {}", crumb);
-                return true;
-            } else {
-                logger.error("Cannot capture crumb and cookies, button 'Accept Cookies' is not found");
-                return false;
-            }
-        } catch (IOException e) {
-            logger.error("Cannot capture crumb and cookies: ", e);
-            return false;
+            if (button == null)
+                throw new IOException("Cannot capture crumb and cookies, button 'Accept Cookies' is not found");
+            button.click();
+            Page response = webClient.getPage(CRUMB_URL);
+            final String crumb = response.getWebResponse().getContentAsString();
+            logger.trace("crumb set: {}", crumb);
+            final Session session = sessionOf(crumb, webClient.getCookieManager().getCookies(), Instant.now());
+            logger.debug("session captured in {} ms, expires at {}",
+                    Duration.ofNanos(System.nanoTime() - start).toMillis(), session.expiresAt());
+            return session;
         }
     }
 
-    private void initCookieStore(Set<org.htmlunit.util.Cookie> cookies) {
+    private static Session sessionOf(String crumb, Set<org.htmlunit.util.Cookie> cookies, Instant now) {
+        final List<Cookie> converted = new ArrayList<>(cookies.size());
+        Instant expiresAt = now.plus(MAX_SESSION_AGE);
         for (var c : cookies) {
             final BasicClientCookie cookie = new BasicClientCookie(c.getName(), c.getValue());
             cookie.setDomain(c.getDomain());
             cookie.setPath(c.getPath());
-            if (null != c.getExpires())
+            if (null != c.getExpires()) {
                 cookie.setExpiryDate(c.getExpires().toInstant());
-            cookieStore.addCookie(cookie);
+                if (cookie.getExpiryInstant().isBefore(expiresAt))
+                    expiresAt = cookie.getExpiryInstant();
+            }
+            converted.add(cookie);
             logger.trace("cookie saved: {}", cookie);
         }
-        localContext.setCookieStore(cookieStore);
+        return new Session(crumb, converted, now, expiresAt);
     }
 
-    protected boolean isInstantiated() {
-        return instantiated;
+    static void writeSession(Path file, Session session) {
+        final JSONArray cookies = new JSONArray();
+        for (Cookie c : session.cookies()) {
+            final JSONObject cookie = new JSONObject()
+                    .put("name", c.getName())
+                    .put("value", c.getValue())
+                    .put("domain", c.getDomain())
+                    .put("path", c.getPath());
+            if (null != c.getExpiryInstant())
+                cookie.put("expires", c.getExpiryInstant().toEpochMilli());
+            cookies.put(cookie);
+        }
+        final JSONObject json = new JSONObject()
+                .put("crumb", session.crumb())
+                .put("captured", session.capturedAt().toEpochMilli())
+                .put("expires", session.expiresAt().toEpochMilli())
+                .put("cookies", cookies);
+        // the session is written to a temporary file first, so a crash never leaves a truncated one behind
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.writeString(tmp, json.toString(), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Cannot persist the session to {}: {}", file, e.getMessage());
+        }
     }
 
-    public void prepareRequest(HttpRequest httpGet) {
-        httpGet.addHeader(ACCEPT_HEADER_NAME, ACCEPT_HEADER_VALUE);
-        httpGet.addHeader(USER_AGENT_HEADER_NAME, USER_AGENT_HEADER_VALUE);
-        for (var c : cookieStore.getCookies()) {
-            final String header = String.format("%s=%s; Domain=%s", c.getName(), c.getValue(), c.getDomain());
-            httpGet.addHeader(COOKIE_HEADER_NAME, header);
-            logger.trace("adding cookie header: {}", header);
-        }
-        if (instantiated) {
-            try {
-                URI uri = new URIBuilder(httpGet.getUri())
-                        .addParameter("crumb", crumb)
-                        .build();
-                httpGet.setUri(uri);
-                logger.trace("crumb added: {}", uri);
-            } catch (URISyntaxException e) {
-                logger.error(e);
-            }
-        } else {
-            logger.error("Crumb Manager was not properly instantiated");
+    /**
+     * Returns the persisted session, or null if there is none.
+     */
+    static Session readSession(Path file) throws IOException {
+        if (!Files.exists(file))
+            return null;
+        final JSONObject json = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+        final JSONArray array = json.getJSONArray("cookies");
+        final List<Cookie> cookies = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            final JSONObject c = array.getJSONObject(i);
+            final BasicClientCookie cookie = new BasicClientCookie(c.getString("name"), c.getString("value"));
+            cookie.setDomain(c.optString("domain", null));
+            cookie.setPath(c.optString("path", null));
+            if (c.has("expires"))
+                cookie.setExpiryDate(Instant.ofEpochMilli(c.getLong("expires")));
+            cookies.add(cookie);
         }
+        return new Session(json.getString("crumb"), cookies,
+                Instant.ofEpochMilli(json.getLong("captured")), Instant.ofEpochMilli(json.getLong("expires")));
     }
 }
@@ -1,6 +1,5 @@
 package org.kr.stocksmonitor.yahoo;
 
-import org.apache.commons.collections.map.LRUMap;
 import org.apache.hc.core5.http.NameValuePair;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
 import org.apache.logging.log4j.LogManager;
@@ -9,11 +8,14 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.kr.stocksmonitor.polygon.Ticker;
 import org.kr.stocksmonitor.utils.RestUtils2;
+import org.kr.stocksmonitor.utils.SingleFlight;
+import org.kr.stocksmonitor.utils.TtlCache;
 import yahoofinance.Stock;
 import yahoofinance.YahooFinance;
 import yahoofinance.quotes.stock.StockDividend;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -42,7 +44,8 @@ public class YahooAPI {
             new BasicNameValuePair("enableLogoUrl", "false"),
             new BasicNameValuePair("", "")
     };
-    private final LRUMap cache = new LRUMap(10000, 0.75f);
+    private final TtlCache<String, List<QuoteItem>> cache = new TtlCache<>(10000, Duration.ofMinutes(10));
+    private final SingleFlight<String, List<QuoteItem>> quotesInFlight = new SingleFlight<>();
 
     private final CrumbManager crumbManager;
 
@@ -60,9 +63,14 @@ public class YahooAPI {
     }
 
     public List<QuoteItem> getQuotes(String name) throws IOException {
-        var entry = (List<QuoteItem>)cache.get(name);
+        var entry = cache.get(name);
         if (null != entry)
             return entry;
+        // type-ahead searches often ask for the same name concurrently, share the request
+        return quotesInFlight.call(name, () -> loadQuotes(name));
+    }
+
+    private List<QuoteItem> loadQuotes(String name) throws IOException {
         final NameValuePair[] parameters = Arrays.copyOf(SEARCH_QUOTES_CONFIG_PARAMS, SEARCH_QUOTES_CONFIG_PARAMS.length);
         parameters[parameters.length - 1] = new BasicNameValuePair("q", name);
         String response = RestUtils2.getInstance().runQuery(SEARCH_QUOTES_BASE_URL, parameters);
@@ -78,7 +86,7 @@ public class YahooAPI {
             QuoteItem item = new QuoteItem(result);
             quotes.add(item);
         }
-        cache.putIfAbsent(name, quotes);
+        cache.put(name, quotes);
         return quotes;
     }
 }
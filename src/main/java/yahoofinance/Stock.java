@@ -2,19 +2,27 @@ package yahoofinance;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.time.ZoneId;
 import java.util.Calendar;
 import java.util.List;
+import java.util.TimeZone;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import yahoofinance.exchanges.ExchangeTimeZone;
 import yahoofinance.histquotes.HistQuotesRequest;
 import yahoofinance.histquotes.HistoricalQuote;
 import yahoofinance.histquotes.Interval;
+import yahoofinance.histquotes.PriceSeries;
+import yahoofinance.histquotes.Resampler;
+import yahoofinance.histquotes.store.HistoryStore;
 import yahoofinance.histquotes2.HistDividendsRequest;
 import yahoofinance.histquotes2.HistQuotes2Request;
 import yahoofinance.histquotes2.HistSplitsRequest;
 import yahoofinance.histquotes2.HistoricalDividend;
 import yahoofinance.histquotes2.HistoricalSplit;
+import yahoofinance.histquotes2.IntervalMapper;
+import yahoofinance.query2v8.HistQuotesQuery2V8Request;
 import yahoofinance.quotes.query1v7.StockQuotesQuery1V7Request;
 import yahoofinance.quotes.stock.StockDividend;
 import yahoofinance.quotes.stock.StockQuote;
@@ -40,6 +48,8 @@ public class Stock {
     private StockDividend dividend;
     
     private List<HistoricalQuote> history;
+    private PriceSeries historySeries;
+    private Interval historySeriesInterval;
     private List<HistoricalDividend> dividendHistory;
     private List<HistoricalSplit> splitHistory;
     
@@ -321,7 +331,11 @@ public class Stock {
      * @see                 #getHistory() 
      */
     public List<HistoricalQuote> getHistory(Calendar from, Calendar to, Interval interval) throws IOException {
-        if(YahooFinance.HISTQUOTES2_ENABLED.equalsIgnoreCase("true")) {
+        HistoryStore store = HistoryStore.getDefault();
+        if(store != null) {
+            PriceSeries series = store.getHistory(this.symbol, from, to, interval);
+            this.setHistory(HistoryStore.toQuotes(series, ExchangeTimeZone.getStockZoneId(this.symbol)));
+        } else if(YahooFinance.HISTQUOTES2_ENABLED.equalsIgnoreCase("true")) {
             HistQuotes2Request hist = new HistQuotes2Request(this.symbol, from, to, interval);
             this.setHistory(hist.getResult());
         } else {
@@ -334,6 +348,142 @@ public class Stock {
     public void setHistory(List<HistoricalQuote> history) {
         this.history = history;
     }
+
+    /**
+     * This method will return the historical prices of this stock as a {@link PriceSeries}.
+     * If the series is not available yet, it will be requested first from Yahoo Finance.
+     * <p>
+     * A series holds the same data as the list returned by {@link #getHistory()} in
+     * primitive arrays, which takes a fraction of the memory for long ranges. Like the dates of
+     * the quotes, every bar starts at midnight of its exchange date in the default time zone.
+     * If the series is not available yet, the
+     * following characteristics will be used for the request:
+     * <ul>
+     * <li> from: 1 year ago (default)
+     * <li> to: today (default)
+     * <li> interval: MONTHLY (default)
+     * </ul>
+     *
+     * @return      the historical prices of this stock
+     * @throws java.io.IOException when there's a connection problem
+     * @see         #getHistorySeries(java.util.Calendar, java.util.Calendar, yahoofinance.histquotes.Interval)
+     */
+    public PriceSeries getHistorySeries() throws IOException {
+        if(this.historySeries != null) {
+            return this.historySeries;
+        }
+        return this.getHistorySeries(HistQuotesRequest.DEFAULT_FROM);
+    }
+
+    /**
+     * Requests the historical prices of this stock from 1 year ago until today.
+     *
+     * @param interval      the interval of the historical data
+     * @return              the historical prices of this stock
+     * @throws java.io.IOException when there's a connection problem
+     * @see                 #getHistorySeries()
+     */
+    public PriceSeries getHistorySeries(Interval interval) throws IOException {
+        return this.getHistorySeries(HistQuotesRequest.DEFAULT_FROM, interval);
+    }
+
+    /**
+     * Requests the monthly historical prices of this stock until today.
+     *
+     * @param from          start date of the historical data
+     * @return              the historical prices of this stock
+     * @throws java.io.IOException when there's a connection problem
+     * @see                 #getHistorySeries()
+     */
+    public PriceSeries getHistorySeries(Calendar from) throws IOException {
+        return this.getHistorySeries(from, HistQuotesRequest.DEFAULT_TO);
+    }
+
+    /**
+     * Requests the historical prices of this stock until today.
+     *
+     * @param from          start date of the historical data
+     * @param interval      the interval of the historical data
+     * @return              the historical prices of this stock
+     * @throws java.io.IOException when there's a connection problem
+     * @see                 #getHistorySeries()
+     */
+    public PriceSeries getHistorySeries(Calendar from, Interval interval) throws IOException {
+        return this.getHistorySeries(from, HistQuotesRequest.DEFAULT_TO, interval);
+    }
+
+    /**
+     * Requests the monthly historical prices of this stock.
+     *
+     * @param from          start date of the historical data
+     * @param to            end date of the historical data
+     * @return              the historical prices of this stock
+     * @throws java.io.IOException when there's a connection problem
+     * @see                 #getHistorySeries()
+     */
+    public PriceSeries getHistorySeries(Calendar from, Calendar to) throws IOException {
+        return this.getHistorySeries(from, to, Interval.MONTHLY);
+    }
+
+    /**
+     * Requests the historical prices of this stock.
+     * <p>
+     * With histquotes2 enabled the chart is streamed straight into the arrays of the series,
+     * no {@link HistoricalQuote} is created along the way. With the local history store enabled,
+     * only the dates that are not stored yet are requested.
+     * <p>
+     * The chart and the store time the bars at the market open, the series moves them to midnight
+     * of their exchange date in the default time zone, see {@link PriceSeries#atStartOfDay}.
+     * A bar then has the same timestamp as the date of its quote in {@link #getHistory()}.
+     *
+     * @param from          start date of the historical data
+     * @param to            end date of the historical data
+     * @param interval      the interval of the historical data
+     * @return              the historical prices of this stock
+     * @throws java.io.IOException when there's a connection problem
+     * @see                 #getHistorySeries()
+     */
+    public PriceSeries getHistorySeries(Calendar from, Calendar to, Interval interval) throws IOException {
+        HistoryStore store = HistoryStore.getDefault();
+        ZoneId zone = ExchangeTimeZone.getStockZoneId(this.symbol);
+        if(store != null) {
+            this.historySeries = store.getHistory(this.symbol, from, to, interval).atStartOfDay(zone);
+        } else if(YahooFinance.HISTQUOTES2_ENABLED.equalsIgnoreCase("true")) {
+            HistQuotesQuery2V8Request hist = new HistQuotesQuery2V8Request(this.symbol, from, to, IntervalMapper.get(interval));
+            this.historySeries = hist.getChart().toSeries().atStartOfDay(zone);
+        } else {
+            HistQuotesRequest hist = new HistQuotesRequest(this.symbol, from, to, interval);
+            this.historySeries = PriceSeries.fromQuotes(this.symbol, hist.getResult());
+        }
+        this.historySeriesInterval = interval;
+        return this.historySeries;
+    }
+
+    /**
+     * Returns the historical prices of this stock at another interval, computed from the series
+     * that was requested last with {@link #getHistorySeries(Calendar, Calendar, Interval)}.
+     * Weekly and monthly bars are resampled from daily bars without a request to Yahoo Finance,
+     * the first and last bar only cover the requested dates of their week or month.
+     * <p>
+     * Only daily bars are resampled: weekly bars span the end of a month and cannot be split into
+     * months. If no daily series has been requested yet, and the interval is not the one of the
+     * series, the prices are requested from 1 year ago until today.
+     *
+     * @param interval      the interval of the historical data
+     * @return              the historical prices of this stock
+     * @throws java.io.IOException when there's a connection problem
+     * @see                 Resampler
+     */
+    public PriceSeries getResampledHistorySeries(Interval interval) throws IOException {
+        if(this.historySeries != null && this.historySeriesInterval == interval) {
+            return this.historySeries;
+        }
+        if(this.historySeries == null || this.historySeriesInterval != Interval.DAILY) {
+            return this.getHistorySeries(interval);
+        }
+        // the bars already start at midnight of their exchange date in the default time zone
+        return Resampler.resample(this.historySeries, interval, TimeZone.getDefault().toZoneId());
+    }
     
     /**
      * This method will return historical dividends from this stock.
@@ -2,18 +2,35 @@ package yahoofinance;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import yahoofinance.exchanges.ExchangeTimeZone;
+import yahoofinance.util.NumericParser;
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.URLEncoder;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.regex.Pattern;
 
 /**
  *
@@ -28,6 +45,33 @@ public class Utils {
     public static final BigDecimal MILLION = new BigDecimal(1000000);
     public static final BigDecimal BILLION = new BigDecimal(1000000000);
 
+    private static final ThreadLocal<NumericParser> NUMERIC_PARSER = ThreadLocal.withInitial(NumericParser::new);
+
+    private static final ZoneId DIVIDEND_ZONE = ZoneId.of(YahooFinance.TIMEZONE);
+    private static final LocalDate TWO_DIGIT_YEAR_BASE = LocalDate.now().minusYears(80);
+    private static final DateTimeFormatter HIST_DATE = DateTimeFormatter.ofPattern("u-M-d", Locale.US)
+            .withResolverStyle(ResolverStyle.STRICT);
+    private static final DateTimeFormatter DIVIDEND_DATE_D_MMM_YY = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("d-MMM-")
+            .appendValueReduced(ChronoField.YEAR, 2, 4, TWO_DIGIT_YEAR_BASE)
+            .toFormatter(Locale.US);
+    private static final DateTimeFormatter DIVIDEND_DATE_MMM_D = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("MMM d")
+            .toFormatter(Locale.US);
+    private static final DateTimeFormatter DIVIDEND_DATE_M_D_YY = new DateTimeFormatterBuilder()
+            .appendPattern("M/d/")
+            .appendValueReduced(ChronoField.YEAR, 2, 4, TWO_DIGIT_YEAR_BASE)
+            .toFormatter(Locale.US);
+    private static final DateTimeFormatter LAST_TRADE_DATE_TIME = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("M/d/yyyy h:mma")
+            .toFormatter(Locale.US);
+    private static final Pattern DIVIDEND_DATE_DAY_MONTH_YEAR = Pattern.compile("[0-9]?[0-9]-...-[0-9][0-9]");
+    private static final Pattern DIVIDEND_DATE_MONTH_DAY = Pattern.compile("...[ ]+[0-9]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     public static String join(String[] data, String d) {
         if (data.length == 0) {
             return "";
@@ -41,8 +85,27 @@ public class Utils {
         return sb.append(data[i]).toString();
     }
 
-    private static String cleanNumberString(String data) {
-        return Utils.join(data.trim().split(","), "");
+    /**
+     * Splits the symbols in chunks of at most the given size, in their original order,
+     * leaving out empty and duplicate symbols.
+     *
+     * @param symbols   the symbols to split up
+     * @param size      the maximum number of symbols in a chunk
+     * @return the chunks
+     */
+    public static List<List<String>> chunk(String[] symbols, int size) {
+        Set<String> unique = new LinkedHashSet<String>();
+        for (String symbol : symbols) {
+            if (symbol != null && !symbol.trim().isEmpty()) {
+                unique.add(symbol.trim());
+            }
+        }
+        List<String> all = new ArrayList<String>(unique);
+        List<List<String>> chunks = new ArrayList<List<String>>();
+        for (int from = 0; from < all.size(); from += Math.max(1, size)) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + Math.max(1, size))));
+        }
+        return chunks;
     }
 
     private static boolean isParseable(String data) {
@@ -57,35 +120,16 @@ public class Utils {
         return data;
     }
 
+    /**
+     * Parses a number like 1,234.56 or 1.02B. Returns null if the data is not a number.
+     *
+     * @param data String received that represents the number
+     * @return the parsed number
+     * @see NumericParser
+     */
     public static BigDecimal getBigDecimal(String data) {
-        BigDecimal result = null;
-        if (!Utils.isParseable(data)) {
-            return result;
-        }
-        try {
-            data = Utils.cleanNumberString(data);
-            char lastChar = data.charAt(data.length() - 1);
-            BigDecimal multiplier = BigDecimal.ONE;
-            switch (lastChar) {
-                case 'B':
-                    data = data.substring(0, data.length() - 1);
-                    multiplier = BILLION;
-                    break;
-                case 'M':
-                    data = data.substring(0, data.length() - 1);
-                    multiplier = MILLION;
-                    break;
-                case 'K':
-                    data = data.substring(0, data.length() - 1);
-                    multiplier = THOUSAND;
-                    break;
-            }
-            result = new BigDecimal(data).multiply(multiplier);
-        } catch (NumberFormatException e) {
-            log.warn("Failed to parse: " + data);
-            log.debug("Failed to parse: " + data, e);
-        }
-        return result;
+        NumericParser parser = NUMERIC_PARSER.get();
+        return parser.parse(data) ? parser.bigDecimalValue() : null;
     }
 
     public static BigDecimal getBigDecimal(String dataMain, String dataSub) {
@@ -98,64 +142,25 @@ public class Utils {
     }
 
     public static double getDouble(String data) {
-        double result = Double.NaN;
-        if (!Utils.isParseable(data)) {
-            return result;
-        }
-        try {
-            data = Utils.cleanNumberString(data);
-            char lastChar = data.charAt(data.length() - 1);
-            int multiplier = 1;
-            switch (lastChar) {
-                case 'B':
-                    data = data.substring(0, data.length() - 1);
-                    multiplier = 1000000000;
-                    break;
-                case 'M':
-                    data = data.substring(0, data.length() - 1);
-                    multiplier = 1000000;
-                    break;
-                case 'K':
-                    data = data.substring(0, data.length() - 1);
-                    multiplier = 1000;
-                    break;
-            }
-            result = Double.parseDouble(data) * multiplier;
-        } catch (NumberFormatException e) {
-            log.warn("Failed to parse: " + data);
-            log.debug("Failed to parse: " + data, e);
-        }
-        return result;
+        NumericParser parser = NUMERIC_PARSER.get();
+        return parser.parse(data) ? parser.doubleValue() : Double.NaN;
     }
 
     public static Integer getInt(String data) {
-        Integer result = null;
-        if (!Utils.isParseable(data)) {
-            return result;
-        }
-        try {
-            data = Utils.cleanNumberString(data);
-            result = Integer.parseInt(data);
-        } catch (NumberFormatException e) {
-            log.warn("Failed to parse: " + data);
-            log.debug("Failed to parse: " + data, e);
+        Long result = Utils.getLong(data);
+        if (result == null || result != result.intValue()) {
+            return null;
         }
-        return result;
+        return result.intValue();
     }
 
     public static Long getLong(String data) {
-        Long result = null;
-        if (!Utils.isParseable(data)) {
-            return result;
-        }
-        try {
-            data = Utils.cleanNumberString(data);
-            result = Long.parseLong(data);
-        } catch (NumberFormatException e) {
-            log.warn("Failed to parse: " + data);
-            log.debug("Failed to parse: " + data, e);
+        NumericParser parser = NUMERIC_PARSER.get();
+        if (!parser.parse(data)) {
+            return null;
         }
-        return result;
+        long result = parser.longValue(Long.MIN_VALUE);
+        return result == Long.MIN_VALUE ? null : result;
     }
 
     public static BigDecimal getPercent(BigDecimal numerator, BigDecimal denominator) {
@@ -173,15 +178,78 @@ public class Utils {
         return (numerator / denominator) * 100;
     }
 
-    private static String getDividendDateFormat(String date) {
-        if (date.matches("[0-9][0-9]-...-[0-9][0-9]")) {
-            return "dd-MMM-yy";
-        } else if (date.matches("[0-9]-...-[0-9][0-9]")) {
-            return "d-MMM-yy";
-        } else if (date.matches("...[ ]+[0-9]+")) {
-            return "MMM d";
+    /**
+     * Parses a yyyy-MM-dd date. The common case of exactly ten characters is parsed by hand,
+     * anything else, e.g. months or days without a leading zero, goes through a shared formatter.
+     *
+     * @param date  characters that contain the date
+     * @param start index of the first character of the date
+     * @param end   index after the last character of the date
+     * @return the parsed date, null if the characters are not a date
+     */
+    public static LocalDate parseLocalDate(CharSequence date, int start, int end) {
+        if (end - start == 10 && date.charAt(start + 4) == '-' && date.charAt(start + 7) == '-') {
+            int year = Utils.digits(date, start, start + 4);
+            int month = Utils.digits(date, start + 5, start + 7);
+            int day = Utils.digits(date, start + 8, start + 10);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= YearMonth.of(year, month).lengthOfMonth()) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        try {
+            // like SimpleDateFormat.parse, text after the date is ignored
+            return LocalDate.from(HIST_DATE.parse(date.subSequence(start, end).toString().trim(), new ParsePosition(0)));
+        } catch (DateTimeException ex) {
+            log.debug("Failed to parse date: {}", date.subSequence(start, end));
+            return null;
+        }
+    }
+
+    private static int digits(CharSequence data, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = data.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Converts a date to a Calendar at midnight in the default time zone.
+     *
+     * @param date the date
+     * @return a new Calendar
+     */
+    public static Calendar toCalendar(LocalDate date) {
+        Calendar c = Calendar.getInstance();
+        c.clear();
+        c.set(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth());
+        return c;
+    }
+
+    /**
+     * Converts a point in time to a Calendar in the given time zone.
+     *
+     * @param epochMillis   milliseconds since the epoch
+     * @param timeZone      time zone of the Calendar
+     * @return a new Calendar
+     */
+    public static Calendar toCalendar(long epochMillis, TimeZone timeZone) {
+        Calendar c = Calendar.getInstance(timeZone);
+        c.setTimeInMillis(epochMillis);
+        return c;
+    }
+
+    private static DateTimeFormatter getDividendDateFormat(String date) {
+        if (DIVIDEND_DATE_DAY_MONTH_YEAR.matcher(date).matches()) {
+            return DIVIDEND_DATE_D_MMM_YY;
+        } else if (DIVIDEND_DATE_MONTH_DAY.matcher(date).matches()) {
+            return DIVIDEND_DATE_MMM_D;
         } else {
-            return "M/d/yy";
+            return DIVIDEND_DATE_M_D_YY;
         }
     }
 
@@ -196,28 +264,28 @@ public class Utils {
         if (!Utils.isParseable(date)) {
             return null;
         }
-        date = date.trim();
-        SimpleDateFormat format = new SimpleDateFormat(Utils.getDividendDateFormat(date), Locale.US);
-        format.setTimeZone(TimeZone.getTimeZone(YahooFinance.TIMEZONE));
+        date = WHITESPACE.matcher(date.trim()).replaceAll(" ");
+        DateTimeFormatter format = Utils.getDividendDateFormat(date);
         try {
-            Calendar today = Calendar.getInstance(TimeZone.getTimeZone(YahooFinance.TIMEZONE));
-            Calendar parsedDate = Calendar.getInstance(TimeZone.getTimeZone(YahooFinance.TIMEZONE));
-            parsedDate.setTime(format.parse(date));
-
-            if (parsedDate.get(Calendar.YEAR) == 1970) {
+            LocalDate parsedDate;
+            if (format == DIVIDEND_DATE_MMM_D) {
                 // Not really clear which year the dividend date is... making a reasonable guess.
-                int monthDiff = parsedDate.get(Calendar.MONTH) - today.get(Calendar.MONTH);
-                int year = today.get(Calendar.YEAR);
+                MonthDay monthDay = MonthDay.parse(date, format);
+                LocalDate today = LocalDate.now(DIVIDEND_ZONE);
+                int monthDiff = monthDay.getMonthValue() - today.getMonthValue();
+                int year = today.getYear();
                 if (monthDiff > 6) {
                     year -= 1;
                 } else if (monthDiff < -6) {
                     year += 1;
                 }
-                parsedDate.set(Calendar.YEAR, year);
+                parsedDate = monthDay.atYear(year);
+            } else {
+                parsedDate = LocalDate.parse(date, format);
             }
-
-            return parsedDate;
-        } catch (ParseException ex) {
+            return Utils.toCalendar(parsedDate.atStartOfDay(DIVIDEND_ZONE).toInstant().toEpochMilli(),
+                    TimeZone.getTimeZone(DIVIDEND_ZONE));
+        } catch (DateTimeParseException ex) {
             log.warn("Failed to parse dividend date: " + date);
             log.debug("Failed to parse dividend date: " + date, ex);
             return null;
@@ -235,42 +303,39 @@ public class Utils {
      */
     public static Calendar parseDateTime(String date, String time, TimeZone timeZone) {
         String datetime = date + " " + time;
-        SimpleDateFormat format = new SimpleDateFormat("M/d/yyyy h:mma", Locale.US);
-
-        format.setTimeZone(timeZone);
         try {
             if (Utils.isParseable(date) && Utils.isParseable(time)) {
-                Calendar c = Calendar.getInstance();
-                c.setTime(format.parse(datetime));
-                return c;
+                LocalDateTime parsed = LocalDateTime.parse(datetime, LAST_TRADE_DATE_TIME);
+                ZoneId zone = ExchangeTimeZone.toZoneId(timeZone);
+                return Utils.toCalendar(parsed.atZone(zone).toInstant().toEpochMilli(), TimeZone.getDefault());
             }
-        } catch (ParseException ex) {
+        } catch (DateTimeParseException ex) {
             log.warn("Failed to parse datetime: " + datetime);
             log.debug("Failed to parse datetime: " + datetime, ex);
         }
         return null;
     }
 
+    /**
+     * Parses a yyyy-MM-dd date of the historical data.
+     *
+     * @param date String received that represents the date
+     * @return Calendar at midnight of the date in the default time zone, null if the date cannot be parsed
+     */
     public static Calendar parseHistDate(String date) {
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        try {
-            if (Utils.isParseable(date)) {
-                Calendar c = Calendar.getInstance();
-                c.setTime(format.parse(date));
-                return c;
-            }
-        } catch (ParseException ex) {
+        if (!Utils.isParseable(date)) {
+            return null;
+        }
+        LocalDate parsed = Utils.parseLocalDate(date, 0, date.length());
+        if (parsed == null) {
             log.warn("Failed to parse hist date: " + date);
-            log.debug("Failed to parse hist date: " + date, ex);
+            return null;
         }
-        return null;
+        return Utils.toCalendar(parsed);
     }
 
     public static Calendar unixToCalendar(long timestamp) {
-        log.debug("unixToCalendar " + timestamp);
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(timestamp * 1000);
-        return calendar;
+        return Utils.toCalendar(timestamp * 1000, TimeZone.getDefault());
     }
 
     public static String getURLParameters(Map<String, String> params) {
@@ -1,13 +1,19 @@
 package yahoofinance;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import org.kr.stocksmonitor.exceptions.RestCallException;
 import yahoofinance.histquotes.HistQuotesRequest;
+import yahoofinance.histquotes.HistoricalQuote;
 import yahoofinance.histquotes.Interval;
 import yahoofinance.quotes.fx.FxQuote;
 import yahoofinance.quotes.csv.FxQuotesRequest;
@@ -15,6 +21,8 @@ import yahoofinance.quotes.csv.StockQuotesData;
 import yahoofinance.quotes.csv.StockQuotesRequest;
 import yahoofinance.quotes.query1v7.FxQuotesQuery1V7Request;
 import yahoofinance.quotes.query1v7.StockQuotesQuery1V7Request;
+import yahoofinance.util.BatchResult;
+import yahoofinance.util.ParallelFetcher;
 
 /**
  * YahooFinance can be used to retrieve quotes and some extra information on stocks.
@@ -32,6 +40,14 @@ import yahoofinance.quotes.query1v7.StockQuotesQuery1V7Request;
  * You can change the default timeout of 10s for requests to Yahoo Finance by
  * setting the yahoofinance.connection.timeout system property.
  * <p>
+ * The historical data of multiple stocks is requested in parallel, with at most 8 requests
+ * in flight by default. This can be changed with the yahoofinance.history.concurrency system property.
+ * <p>
+ * The quotes of long symbol lists are requested in chunks of 50 symbols, with at most 4 chunks
+ * in flight, and failed chunks are retried twice. These can be changed with the
+ * yahoofinance.quotes.chunksize, yahoofinance.quotes.concurrency and yahoofinance.quotes.retries
+ * system properties.
+ * <p>
  * Please be aware that the data received from Yahoo Finance is not always 
  * complete for every single stock. Stocks on the American stock exchanges
  * usually have a lot more data available than stocks on other exchanges.
@@ -45,6 +61,8 @@ import yahoofinance.quotes.query1v7.StockQuotesQuery1V7Request;
  * @version     %I%, %G%
  */
 public class YahooFinance {
+
+    private static final Logger log = LogManager.getLogger(YahooFinance.class);
     
     public static final String QUOTES_BASE_URL = System.getProperty("yahoofinance.baseurl.quotes", "http://download.finance.yahoo.com/d/quotes.csv");
     public static final String QUOTES_QUERY1V7_BASE_URL = System.getProperty("yahoofinance.baseurl.quotesquery1v7", "https://query2.finance.yahoo.com/v7/finance/quote");
@@ -69,6 +87,24 @@ public class YahooFinance {
     
     public static final int CONNECTION_TIMEOUT = 
             Integer.parseInt(System.getProperty("yahoofinance.connection.timeout", "10000"));
+    public static final int HISTORY_CONCURRENCY =
+            Integer.parseInt(System.getProperty("yahoofinance.history.concurrency", "8"));
+    public static final int QUOTES_CHUNK_SIZE =
+            Integer.parseInt(System.getProperty("yahoofinance.quotes.chunksize", "50"));
+    public static final int QUOTES_CONCURRENCY =
+            Integer.parseInt(System.getProperty("yahoofinance.quotes.concurrency", "4"));
+    public static final int QUOTES_RETRIES =
+            Integer.parseInt(System.getProperty("yahoofinance.quotes.retries", "2"));
+    /**
+     * Wait before the first retry of failed quote chunks in milliseconds, doubled for every further retry.
+     */
+    public static final long QUOTES_RETRY_DELAY =
+            Long.parseLong(System.getProperty("yahoofinance.quotes.retrydelay", "1000"));
+    /**
+     * Directory of the local history store, see {@link yahoofinance.histquotes.store.HistoryStore}.
+     * The store is disabled when empty.
+     */
+    public static final String HISTORY_STORE = System.getProperty("yahoofinance.history.store", "");
     
     /**
     * Sends a basic quotes request to Yahoo Finance. This will return a {@link Stock} object
@@ -190,7 +226,8 @@ public class YahooFinance {
     * and {@link yahoofinance.quotes.stock.StockDividend} member fields
     * filled in with the available data.
     * <p>
-    * All the information is retrieved in a single request to Yahoo Finance.
+    * All the information is retrieved in a single request to Yahoo Finance,
+    * long symbol lists are split up in chunks that are requested in parallel.
     * The returned Map only includes the Stocks that could 
     * successfully be retrieved from Yahoo Finance.
     * 
@@ -208,9 +245,10 @@ public class YahooFinance {
      * objects their member field {@link yahoofinance.histquotes.HistoricalQuote} to be filled in
      * with the default past year term at monthly intervals.
      * <p>
-     * The latest quotes will be retrieved in a single request to Yahoo Finance.
+     * The latest quotes will be retrieved in a single request to Yahoo Finance,
+     * or in parallel chunks for long symbol lists.
      * For the historical quotes (if includeHistorical), 
-     * a separate request will be sent for each requested stock.
+     * a separate request will be sent for each requested stock, in parallel.
      * The returned Map only includes the Stocks that could 
      * successfully be retrieved from Yahoo Finance.
      * 
@@ -220,16 +258,38 @@ public class YahooFinance {
      * @throws java.io.IOException when there's a connection problem
      */
     public static Map<String, Stock> get(String[] symbols, boolean includeHistorical) throws IOException {
-        return YahooFinance.getQuotes(Utils.join(symbols, ","), includeHistorical);
+        Map<String, Stock> result = YahooFinance.getQuotes(symbols, stocks -> {});
+        if(includeHistorical) {
+            YahooFinance.fetchDefaultHistory(result);
+        }
+        return result;
     }
     
+    /**
+     * Same as the <code>get(String[])</code> method, but hands out the stocks
+     * chunk by chunk as soon as each chunk is retrieved, so that the first results
+     * can be shown before the slowest chunk completes.
+     * <p>
+     * The listener is called from the request threads, possibly concurrently,
+     * and only for the chunks that could successfully be retrieved.
+     *
+     * @param symbols   the symbols of the stocks for which you want to retrieve information
+     * @param listener  receives the stocks of every retrieved chunk, linked to their symbols
+     * @return          a Map that links the symbols to their respective Stock objects
+     * @throws java.io.IOException when there's a connection problem
+     */
+    public static Map<String, Stock> get(String[] symbols, Consumer<Map<String, Stock>> listener) throws IOException {
+        return YahooFinance.getQuotes(symbols, listener);
+    }
+
     /**
      * Sends a request for multiple stocks with the historical quotes included
      * from the past year, 
      * at the specified interval. (DAILY, WEEKLY, MONTHLY)
      * <p>
-     * The latest quotes will be retrieved in a single request to Yahoo Finance.
-     * For the historical quotes, a separate request will be sent for each requested stock.
+     * The latest quotes will be retrieved in a single request to Yahoo Finance,
+     * or in parallel chunks for long symbol lists.
+     * For the historical quotes, a separate request will be sent for each requested stock, in parallel.
      * The returned Map only includes the Stocks that could 
      * successfully be retrieved from Yahoo Finance.
      * 
@@ -239,7 +299,7 @@ public class YahooFinance {
      * @throws java.io.IOException when there's a connection problem
      */
     public static Map<String, Stock> get(String[] symbols, Interval interval) throws IOException {
-        return YahooFinance.getQuotes(Utils.join(symbols, ","), HistQuotesRequest.DEFAULT_FROM, HistQuotesRequest.DEFAULT_TO, interval);
+        return YahooFinance.fetchHistoricalQuotes(YahooFinance.get(symbols), HistQuotesRequest.DEFAULT_FROM, HistQuotesRequest.DEFAULT_TO, interval);
     }
     
     /**
@@ -247,8 +307,9 @@ public class YahooFinance {
      * starting from the specified {@link Calendar} date until today, 
      * at the default interval (monthly).
      * <p>
-     * The latest quotes will be retrieved in a single request to Yahoo Finance.
-     * For the historical quotes, a separate request will be sent for each requested stock.
+     * The latest quotes will be retrieved in a single request to Yahoo Finance,
+     * or in parallel chunks for long symbol lists.
+     * For the historical quotes, a separate request will be sent for each requested stock, in parallel.
      * The returned Map only includes the Stocks that could 
      * successfully be retrieved from Yahoo Finance.
      * 
@@ -258,7 +319,7 @@ public class YahooFinance {
      * @throws java.io.IOException when there's a connection problem
      */
     public static Map<String, Stock> get(String[] symbols, Calendar from) throws IOException {
-        return YahooFinance.getQuotes(Utils.join(symbols, ","), from, HistQuotesRequest.DEFAULT_TO, HistQuotesRequest.DEFAULT_INTERVAL);
+        return YahooFinance.fetchHistoricalQuotes(YahooFinance.get(symbols), from, HistQuotesRequest.DEFAULT_TO, HistQuotesRequest.DEFAULT_INTERVAL);
     }
     
     /**
@@ -266,8 +327,9 @@ public class YahooFinance {
      * starting from the specified {@link Calendar} date until today, 
      * at the specified interval.
      * <p>
-     * The latest quotes will be retrieved in a single request to Yahoo Finance.
-     * For the historical quotes, a separate request will be sent for each requested stock.
+     * The latest quotes will be retrieved in a single request to Yahoo Finance,
+     * or in parallel chunks for long symbol lists.
+     * For the historical quotes, a separate request will be sent for each requested stock, in parallel.
      * The returned Map only includes the Stocks that could 
      * successfully be retrieved from Yahoo Finance.
      * 
@@ -278,7 +340,7 @@ public class YahooFinance {
      * @throws java.io.IOException when there's a connection problem
      */
     public static Map<String, Stock> get(String[] symbols, Calendar from, Interval interval) throws IOException {
-        return YahooFinance.getQuotes(Utils.join(symbols, ","), from, HistQuotesRequest.DEFAULT_TO, interval);
+        return YahooFinance.fetchHistoricalQuotes(YahooFinance.get(symbols), from, HistQuotesRequest.DEFAULT_TO, interval);
     }
     
     /**
@@ -287,8 +349,9 @@ public class YahooFinance {
      * until the specified Calendar date (to) 
      * at the default interval (monthly).
      * <p>
-     * The latest quotes will be retrieved in a single request to Yahoo Finance.
-     * For the historical quotes, a separate request will be sent for each requested stock.
+     * The latest quotes will be retrieved in a single request to Yahoo Finance,
+     * or in parallel chunks for long symbol lists.
+     * For the historical quotes, a separate request will be sent for each requested stock, in parallel.
      * The returned Map only includes the Stocks that could 
      * successfully be retrieved from Yahoo Finance.
      * 
@@ -299,7 +362,7 @@ public class YahooFinance {
      * @throws java.io.IOException when there's a connection problem
      */
     public static Map<String, Stock> get(String[] symbols, Calendar from, Calendar to) throws IOException {
-        return YahooFinance.getQuotes(Utils.join(symbols, ","), from, to, HistQuotesRequest.DEFAULT_INTERVAL);
+        return YahooFinance.fetchHistoricalQuotes(YahooFinance.get(symbols), from, to, HistQuotesRequest.DEFAULT_INTERVAL);
     }
     
     /**
@@ -308,8 +371,9 @@ public class YahooFinance {
      * until the specified Calendar date (to) 
      * at the specified interval.
      * <p>
-     * The latest quotes will be retrieved in a single request to Yahoo Finance.
-     * For the historical quotes, a separate request will be sent for each requested stock.
+     * The latest quotes will be retrieved in a single request to Yahoo Finance,
+     * or in parallel chunks for long symbol lists.
+     * For the historical quotes, a separate request will be sent for each requested stock, in parallel.
      * The returned Map only includes the Stocks that could 
      * successfully be retrieved from Yahoo Finance.
      * 
@@ -321,9 +385,33 @@ public class YahooFinance {
      * @throws java.io.IOException when there's a connection problem
      */
     public static Map<String, Stock> get(String[] symbols, Calendar from, Calendar to, Interval interval) throws IOException {
-        return YahooFinance.getQuotes(Utils.join(symbols, ","), from, to, interval);
+        return YahooFinance.fetchHistoricalQuotes(YahooFinance.get(symbols), from, to, interval);
     }
     
+    /**
+     * Requests the historical quotes of multiple stocks
+     * starting from the specified {@link Calendar} date
+     * until the specified Calendar date (to)
+     * at the specified interval.
+     * <p>
+     * A separate request is sent for each stock, with at most
+     * {@link #HISTORY_CONCURRENCY} requests in flight at the same time.
+     * A symbol whose request fails does not affect the other symbols:
+     * the returned result holds the historical quotes of every successful symbol
+     * and the failure of every other one.
+     *
+     * @param symbols               the symbols of the stocks for which you want to retrieve historical data
+     * @param from                  start date of the historical data
+     * @param to                    end date of the historical data
+     * @param interval              the interval of the historical data
+     * @return                      the historical quotes per symbol and the failures per symbol
+     * @throws java.io.InterruptedIOException when interrupted while waiting for the requests
+     */
+    public static BatchResult<String, List<HistoricalQuote>> getHistory(String[] symbols, Calendar from, Calendar to, Interval interval) throws IOException {
+        return ParallelFetcher.fetchAll(Arrays.asList(symbols), HISTORY_CONCURRENCY,
+                symbol -> new Stock(symbol).getHistory((Calendar) from.clone(), (Calendar) to.clone(), interval));
+    }
+
     /**
      * Sends a request for a single FX rate.
      * Some common symbols can easily be found in the ENUM {@link yahoofinance.quotes.fx.FxSymbols}
@@ -395,9 +483,7 @@ public class YahooFinance {
         }
 
         if(includeHistorical) {
-            for(Stock s : result.values()) {
-                s.getHistory();
-            }
+            YahooFinance.fetchDefaultHistory(result);
         }
 
         return result;
@@ -409,10 +495,46 @@ public class YahooFinance {
         return stocks;
     }
     
-    private static Map<String, Stock> fetchHistoricalQuotes(Map<String, Stock> stocks, Calendar from, Calendar to, Interval interval) throws IOException {
-        for(Stock s : stocks.values()) {
-            s.getHistory(from, to, interval);
+    /**
+     * Requests the quotes of the symbols in chunks of {@link #QUOTES_CHUNK_SIZE} symbols,
+     * with up to {@link #QUOTES_CONCURRENCY} chunks in flight.
+     * Empty and duplicate symbols are left out, also when all symbols fit in one chunk.
+     * Chunks that fail are requested again, up to {@link #QUOTES_RETRIES} times after a delay of
+     * {@link #QUOTES_RETRY_DELAY} that doubles with every retry, while the chunks that succeeded are kept.
+     *
+     * @param symbols   the symbols of the stocks for which you want to retrieve information
+     * @param listener  receives the stocks of each chunk as soon as the chunk is available
+     * @return          a Map that links the symbols to their respective Stock objects
+     * @throws IOException when none of the chunks could be retrieved
+     */
+    private static Map<String, Stock> getQuotes(String[] symbols, Consumer<Map<String, Stock>> listener) throws IOException {
+        List<List<String>> chunks = Utils.chunk(symbols, QUOTES_CHUNK_SIZE);
+        BatchResult<List<String>, Map<String, Stock>> batch = ParallelFetcher.fetchAll(chunks, QUOTES_CONCURRENCY,
+                QUOTES_RETRIES, QUOTES_RETRY_DELAY,
+                chunk -> YahooFinance.getQuotes(String.join(",", chunk), false),
+                (chunk, stocks) -> listener.accept(stocks));
+
+        Map<String, Stock> result = new HashMap<String, Stock>();
+        for(Map<String, Stock> stocks : batch.getResults().values()) {
+            result.putAll(stocks);
+        }
+        if(!batch.isComplete()) {
+            log.warn("Quotes of {} chunks could not be retrieved", batch.getFailures().size());
+            ParallelFetcher.throwIfNothingSucceeded(batch);
         }
+        return result;
+    }
+
+    private static void fetchDefaultHistory(Map<String, Stock> stocks) throws IOException {
+        YahooFinance.fetchHistoricalQuotes(stocks, HistQuotesRequest.DEFAULT_FROM,
+                HistQuotesRequest.DEFAULT_TO, HistQuotesRequest.DEFAULT_INTERVAL);
+    }
+
+    private static Map<String, Stock> fetchHistoricalQuotes(Map<String, Stock> stocks, Calendar from, Calendar to, Interval interval) throws IOException {
+        BatchResult<String, List<HistoricalQuote>> history = ParallelFetcher.fetchAll(stocks.keySet(), HISTORY_CONCURRENCY,
+                // the requests clean up the calendars they get, so every request needs its own copies
+                symbol -> stocks.get(symbol).getHistory((Calendar) from.clone(), (Calendar) to.clone(), interval));
+        ParallelFetcher.throwIfNothingSucceeded(history);
         return stocks;
     }
     
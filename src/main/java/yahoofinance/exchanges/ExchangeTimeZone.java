@@ -1,9 +1,11 @@
 
 package yahoofinance.exchanges;
 
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,6 +20,8 @@ public class ExchangeTimeZone {
 
     public static final Map<String, TimeZone> SUFFIX_TIMEZONES = new HashMap<String, TimeZone>();
     public static final Map<String, TimeZone> INDEX_TIMEZONES = new HashMap<String, TimeZone>();
+
+    private static final Map<String, ZoneId> ZONE_IDS = new ConcurrentHashMap<String, ZoneId>();
     
     static {
         SUFFIX_TIMEZONES.put("", TimeZone.getTimeZone("America/New_York"));
@@ -192,4 +196,25 @@ public class ExchangeTimeZone {
         String[] split = symbol.split("\\.");
         return ExchangeTimeZone.get(split[split.length - 1]);
     }
+
+    /**
+     * Get the zone id for a specific stock or index, see {@link #getStockTimeZone(String)}.
+     * Zone ids are immutable and cached per time zone, so this is cheap enough for every parsed row.
+     *
+     * @param symbol stock symbol in YahooFinance
+     * @return zone id of the exchange on which this stock is traded
+     */
+    public static ZoneId getStockZoneId(String symbol) {
+        return ExchangeTimeZone.toZoneId(ExchangeTimeZone.getStockTimeZone(symbol));
+    }
+
+    /**
+     * Get the cached zone id of a time zone.
+     *
+     * @param timeZone a time zone
+     * @return the zone id with the same rules
+     */
+    public static ZoneId toZoneId(TimeZone timeZone) {
+        return ZONE_IDS.computeIfAbsent(timeZone.getID(), id -> timeZone.toZoneId());
+    }
 }
@@ -0,0 +1,296 @@
+package yahoofinance.histquotes;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Historical prices of a stock stored column by column in primitive arrays: one {@code long[]} for
+ * the timestamps and the volumes and one {@code double[]} per price. A bar costs 56 bytes, compared to
+ * several hundred bytes for a {@link HistoricalQuote} with its {@link Calendar} and {@link BigDecimal}s,
+ * and analytics can run over the arrays directly.
+ * <p>
+ * A series can be a view on a range of larger arrays: {@link #slice(int, int)} and
+ * {@link #range(long, long)} never copy. The backing arrays are exposed by the {@code get...Array()}
+ * getters for fast bulk access, the bars of this series are the elements from {@link #getOffset()}
+ * up to {@code getOffset() + size()}. They are not copied and must not be modified.
+ * <p>
+ * Missing prices are stored as {@link Double#NaN}, a missing volume as {@link #MISSING_VOLUME}.
+ * Bars are expected in chronological order.
+ */
+public final class PriceSeries {
+
+    /**
+     * Volume of a bar for which no volume is available.
+     */
+    public static final long MISSING_VOLUME = -1;
+
+    private final String symbol;
+    private final long[] epochMillis;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] adjClose;
+    private final long[] volume;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Creates a series backed by the given arrays, which must all have the same length.
+     *
+     * @param symbol        the symbol of the stock
+     * @param epochMillis   start of every bar, in milliseconds since the epoch
+     * @param open          open prices
+     * @param high          high prices
+     * @param low           low prices
+     * @param close         close prices
+     * @param adjClose      adjusted close prices
+     * @param volume        volumes
+     */
+    public PriceSeries(String symbol, long[] epochMillis, double[] open, double[] high, double[] low,
+                       double[] close, double[] adjClose, long[] volume) {
+        this(symbol, epochMillis, open, high, low, close, adjClose, volume, 0, epochMillis.length);
+        int n = epochMillis.length;
+        if (open.length != n || high.length != n || low.length != n || close.length != n
+                || adjClose.length != n || volume.length != n) {
+            throw new IllegalArgumentException("All columns of a price series need " + n + " elements");
+        }
+    }
+
+    private PriceSeries(String symbol, long[] epochMillis, double[] open, double[] high, double[] low,
+                        double[] close, double[] adjClose, long[] volume, int offset, int length) {
+        this.symbol = symbol;
+        this.epochMillis = epochMillis;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.adjClose = adjClose;
+        this.volume = volume;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Converts historical quotes to a series, null values become missing values.
+     *
+     * @param symbol    the symbol of the stock
+     * @param quotes    the quotes in chronological order
+     * @return a new series with one bar per quote
+     */
+    public static PriceSeries fromQuotes(String symbol, List<HistoricalQuote> quotes) {
+        int n = quotes.size();
+        long[] epochMillis = new long[n];
+        double[] open = new double[n];
+        double[] high = new double[n];
+        double[] low = new double[n];
+        double[] close = new double[n];
+        double[] adjClose = new double[n];
+        long[] volume = new long[n];
+        for (int i = 0; i < n; i++) {
+            HistoricalQuote quote = quotes.get(i);
+            epochMillis[i] = quote.getDate().getTimeInMillis();
+            open[i] = toDouble(quote.getOpen());
+            high[i] = toDouble(quote.getHigh());
+            low[i] = toDouble(quote.getLow());
+            close[i] = toDouble(quote.getClose());
+            adjClose[i] = toDouble(quote.getAdjClose());
+            volume[i] = quote.getVolume() == null ? MISSING_VOLUME : quote.getVolume();
+        }
+        return new PriceSeries(symbol, epochMillis, open, high, low, close, adjClose, volume);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the number of bars
+     */
+    public int size() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @return the index of the first bar of this series in the backing arrays
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public long getEpochMillis(int index) {
+        return epochMillis[offset + checkIndex(index)];
+    }
+
+    public double getOpen(int index) {
+        return open[offset + checkIndex(index)];
+    }
+
+    public double getHigh(int index) {
+        return high[offset + checkIndex(index)];
+    }
+
+    public double getLow(int index) {
+        return low[offset + checkIndex(index)];
+    }
+
+    public double getClose(int index) {
+        return close[offset + checkIndex(index)];
+    }
+
+    public double getAdjClose(int index) {
+        return adjClose[offset + checkIndex(index)];
+    }
+
+    public long getVolume(int index) {
+        return volume[offset + checkIndex(index)];
+    }
+
+    public long[] getEpochMillisArray() {
+        return epochMillis;
+    }
+
+    public double[] getOpenArray() {
+        return open;
+    }
+
+    public double[] getHighArray() {
+        return high;
+    }
+
+    public double[] getLowArray() {
+        return low;
+    }
+
+    public double[] getCloseArray() {
+        return close;
+    }
+
+    public double[] getAdjCloseArray() {
+        return adjClose;
+    }
+
+    public long[] getVolumeArray() {
+        return volume;
+    }
+
+    /**
+     * Returns a view on a range of bars, sharing the arrays of this series.
+     *
+     * @param fromIndex index of the first bar, inclusive
+     * @param toIndex   index after the last bar, exclusive
+     * @return the view
+     * @throws IndexOutOfBoundsException when the range is not within this series
+     */
+    public PriceSeries slice(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > length || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") of a series with " + length + " bars");
+        }
+        return new PriceSeries(symbol, epochMillis, open, high, low, close, adjClose, volume,
+                offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Returns a view on the bars that start within a time range, sharing the arrays of this series.
+     *
+     * @param fromMillis    start of the range in milliseconds since the epoch, inclusive
+     * @param toMillis      end of the range in milliseconds since the epoch, exclusive
+     * @return the view, empty if no bar starts within the range
+     */
+    public PriceSeries range(long fromMillis, long toMillis) {
+        int from = indexOf(fromMillis);
+        int to = Math.max(from, indexOf(toMillis));
+        return slice(from, to);
+    }
+
+    /**
+     * Returns the same bars dated like the {@link HistoricalQuote}s of daily and coarser intervals:
+     * every bar starts at midnight of its exchange date in the default time zone, instead of e.g.
+     * at the market open. The prices are shared with this series, the timestamps are copied.
+     *
+     * @param zone  the time zone of the exchange, which decides the date of a bar
+     * @return the bars at the start of their date
+     */
+    public PriceSeries atStartOfDay(ZoneId zone) {
+        ZoneId local = TimeZone.getDefault().toZoneId();
+        long[] days = new long[epochMillis.length];
+        for (int i = offset; i < offset + length; i++) {
+            LocalDate date = Instant.ofEpochMilli(epochMillis[i]).atZone(zone).toLocalDate();
+            days[i] = date.atStartOfDay(local).toInstant().toEpochMilli();
+        }
+        return new PriceSeries(symbol, days, open, high, low, close, adjClose, volume, offset, length);
+    }
+
+    /**
+     * @param epochMillis a point in time
+     * @return the index of the first bar that starts at or after the given time, {@link #size()} if there is none
+     */
+    public int indexOf(long epochMillis) {
+        int found = Arrays.binarySearch(this.epochMillis, offset, offset + length, epochMillis);
+        if (found < 0) return -found - 1 - offset;
+        // timestamps are not necessarily unique, e.g. after appending overlapping ranges
+        while (found > offset && this.epochMillis[found - 1] == epochMillis) found--;
+        return found - offset;
+    }
+
+    /**
+     * Creates the quote of a single bar.
+     *
+     * @param index index of the bar
+     * @return the quote, with null for every missing value
+     */
+    public HistoricalQuote getQuote(int index) {
+        int i = offset + checkIndex(index);
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(epochMillis[i]);
+        return new HistoricalQuote(symbol, date,
+                toDecimal(open[i]),
+                toDecimal(low[i]),
+                toDecimal(high[i]),
+                toDecimal(close[i]),
+                toDecimal(adjClose[i]),
+                volume[i] == MISSING_VOLUME ? null : volume[i]);
+    }
+
+    /**
+     * @return the quotes of all bars, in chronological order
+     */
+    public List<HistoricalQuote> toQuotes() {
+        List<HistoricalQuote> quotes = new ArrayList<HistoricalQuote>(length);
+        for (int i = 0; i < length; i++) {
+            quotes.add(getQuote(i));
+        }
+        return quotes;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " of a series with " + length + " bars");
+        }
+        return index;
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+
+    private static BigDecimal toDecimal(double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return "PriceSeries{symbol=" + symbol + ", bars=" + length + "}";
+    }
+}
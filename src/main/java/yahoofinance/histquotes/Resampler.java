@@ -0,0 +1,117 @@
+package yahoofinance.histquotes;
+
+import yahoofinance.exchanges.ExchangeTimeZone;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+
+/**
+ * Computes bars of a coarser interval from the bars of a finer one, e.g. weekly and monthly bars
+ * from daily bars, so that switching the interval of a chart needs no request to Yahoo Finance.
+ * <p>
+ * The bars are grouped by the period of their date at the exchange of the stock, see
+ * {@link ExchangeTimeZone}: a day for {@link Interval#DAILY}, a week starting on Monday for
+ * {@link Interval#WEEKLY} and a calendar month for {@link Interval#MONTHLY}. The bar of a period
+ * has the timestamp of its first bar, the open of the first bar, the highest high, the lowest low,
+ * the close and adjusted close of the last bar and the total volume. Missing prices and volumes are
+ * skipped, a value is only missing if it is missing in all bars of the period.
+ */
+public final class Resampler {
+
+    private Resampler() {
+    }
+
+    /**
+     * Resamples bars using the time zone of the exchange of their symbol.
+     *
+     * @param bars      bars in chronological order
+     * @param interval  the interval of the result, not finer than the interval of the bars
+     *                  and a multiple of it, i.e. weekly bars cannot be resampled to months
+     * @return one bar per period
+     * @see #resample(PriceSeries, Interval, ZoneId)
+     */
+    public static PriceSeries resample(PriceSeries bars, Interval interval) {
+        return resample(bars, interval, ExchangeTimeZone.getStockZoneId(bars.getSymbol()));
+    }
+
+    /**
+     * @param bars      bars in chronological order
+     * @param interval  the interval of the result, not finer than the interval of the bars
+     *                  and a multiple of it, i.e. weekly bars cannot be resampled to months
+     * @param zone      the time zone of the exchange, which decides the date of a bar
+     * @return one bar per period, in chronological order
+     */
+    public static PriceSeries resample(PriceSeries bars, Interval interval, ZoneId zone) {
+        int n = bars.size();
+        long[] epochMillis = new long[n];
+        double[] open = new double[n];
+        double[] high = new double[n];
+        double[] low = new double[n];
+        double[] close = new double[n];
+        double[] adjClose = new double[n];
+        long[] volume = new long[n];
+
+        int j = -1;
+        long period = Long.MIN_VALUE;
+        long dayStart = Long.MAX_VALUE;
+        long dayEnd = Long.MIN_VALUE;
+        long barPeriod = 0;
+        for (int i = 0; i < n; i++) {
+            long millis = bars.getEpochMillis(i);
+            if (millis < dayStart || millis >= dayEnd) {
+                // the exchange date only has to be looked up again for the next day
+                LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+                dayStart = date.atStartOfDay(zone).toInstant().toEpochMilli();
+                dayEnd = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+                barPeriod = periodStart(date, interval).toEpochDay();
+            }
+            if (barPeriod != period) {
+                period = barPeriod;
+                j++;
+                epochMillis[j] = millis;
+                open[j] = Double.NaN;
+                high[j] = Double.NaN;
+                low[j] = Double.NaN;
+                close[j] = Double.NaN;
+                adjClose[j] = Double.NaN;
+                volume[j] = PriceSeries.MISSING_VOLUME;
+            }
+            if (Double.isNaN(open[j])) open[j] = bars.getOpen(i);
+            double value = bars.getHigh(i);
+            if (value > high[j] || Double.isNaN(high[j])) high[j] = value;
+            value = bars.getLow(i);
+            if (value < low[j] || Double.isNaN(low[j])) low[j] = value;
+            value = bars.getClose(i);
+            if (!Double.isNaN(value)) close[j] = value;
+            value = bars.getAdjClose(i);
+            if (!Double.isNaN(value)) adjClose[j] = value;
+            long v = bars.getVolume(i);
+            if (v != PriceSeries.MISSING_VOLUME) {
+                volume[j] = volume[j] == PriceSeries.MISSING_VOLUME ? v : volume[j] + v;
+            }
+        }
+
+        int count = j + 1;
+        return new PriceSeries(bars.getSymbol(), Arrays.copyOf(epochMillis, count), Arrays.copyOf(open, count),
+                Arrays.copyOf(high, count), Arrays.copyOf(low, count), Arrays.copyOf(close, count),
+                Arrays.copyOf(adjClose, count), Arrays.copyOf(volume, count));
+    }
+
+    /**
+     * @param date      an exchange date
+     * @param interval  the interval of the bars
+     * @return the first date of the period of the date: the date itself for daily bars, the Monday
+     * before or on the date for weekly bars and the first of the month for monthly bars
+     */
+    public static LocalDate periodStart(LocalDate date, Interval interval) {
+        switch (interval) {
+            case WEEKLY: return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY: return date.withDayOfMonth(1);
+            default: return date;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package yahoofinance.histquotes.store;
+
+import yahoofinance.histquotes.PriceSeries;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed encoding of price bars in the style of Facebook's Gorilla time series database.
+ * Bars are encoded in blocks of {@link #BLOCK_SIZE}:
+ * <ul>
+ * <li> timestamps as delta-of-deltas in units of the greatest common divisor of the block's deltas,
+ *      so regular bars cost a single bit and a weekend gap between daily bars only nine
+ * <li> each price as the XOR with a predicted price, storing only the meaningful bits, so a correctly
+ *      predicted price costs a single bit. The prediction is the previous price of the column, except
+ *      for the open, which is predicted by the previous close, and the adjusted close, which is
+ *      predicted by the close of the same bar
+ * <li> volumes as zigzag varints
+ * </ul>
+ * The blocks are preceded by an index with the first and last timestamp of every block, so that
+ * a time range can be decoded without decoding the blocks before or after it:
+ * <pre>
+ * int     number of blocks
+ * index   per block: long first epoch millis, long last epoch millis, int offset of the block, int bars
+ * blocks  per block: varint tick, varint length of the bits, bits of timestamps and prices, varint volumes
+ * </pre>
+ * All values are stored exactly, including {@link Double#NaN} for missing prices.
+ */
+final class BarBlockCodec {
+
+    static final int BLOCK_SIZE = 512;
+
+    private static final int INDEX_ENTRY_SIZE = 24;
+
+    private BarBlockCodec() {
+    }
+
+    /**
+     * @param bars bars in chronological order
+     * @return the encoded bars
+     */
+    static byte[] encode(PriceSeries bars) {
+        int blockCount = (bars.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ByteSink index = new ByteSink(4 + blockCount * INDEX_ENTRY_SIZE);
+        ByteSink blocks = new ByteSink(bars.size() * 16 + 16);
+        index.putInt(blockCount);
+        for (int start = 0; start < bars.size(); start += BLOCK_SIZE) {
+            int end = Math.min(bars.size(), start + BLOCK_SIZE);
+            index.putLong(bars.getEpochMillis(start));
+            index.putLong(bars.getEpochMillis(end - 1));
+            index.putInt(blocks.size());
+            index.putInt(end - start);
+            encodeBlock(bars, start, end, blocks);
+        }
+        byte[] result = Arrays.copyOf(index.bytes, index.size() + blocks.size());
+        System.arraycopy(blocks.bytes, 0, result, index.size(), blocks.size());
+        return result;
+    }
+
+    /**
+     * Decodes the blocks that contain bars of a time range. Bars of those blocks outside the
+     * range are included as well.
+     *
+     * @param in            the encoded bars, from position to limit
+     * @param symbol        the symbol of the bars
+     * @param fromMillis    start of the range, inclusive
+     * @param toMillis      end of the range, exclusive
+     * @return the bars of all blocks that overlap the range, in chronological order
+     * @throws IllegalArgumentException when the data is corrupt
+     */
+    static PriceSeries decode(ByteBuffer in, String symbol, long fromMillis, long toMillis) {
+        ByteBuffer data = in.slice();
+        int blockCount = data.getInt(0);
+        int blocksStart = 4 + blockCount * INDEX_ENTRY_SIZE;
+        if (blockCount < 0 || blocksStart > data.limit()) {
+            throw new IllegalArgumentException("Corrupt block index");
+        }
+
+        int first = -1;
+        int last = -1;
+        int count = 0;
+        for (int b = 0; b < blockCount; b++) {
+            int entry = 4 + b * INDEX_ENTRY_SIZE;
+            if (data.getLong(entry + 8) < fromMillis || data.getLong(entry) >= toMillis) continue;
+            if (first < 0) first = b;
+            last = b;
+            count += data.getInt(entry + 20);
+        }
+
+        long[] epochMillis = new long[count];
+        double[] open = new double[count];
+        double[] high = new double[count];
+        double[] low = new double[count];
+        double[] close = new double[count];
+        double[] adjClose = new double[count];
+        long[] volume = new long[count];
+        int offset = 0;
+        for (int b = first; b >= 0 && b <= last; b++) {
+            int entry = 4 + b * INDEX_ENTRY_SIZE;
+            int n = data.getInt(entry + 20);
+            ByteBuffer block = data.slice(blocksStart + data.getInt(entry + 16), data.limit() - blocksStart - data.getInt(entry + 16));
+            decodeBlock(block, n, offset, epochMillis, open, high, low, close, adjClose, volume);
+            offset += n;
+        }
+        return new PriceSeries(symbol, epochMillis, open, high, low, close, adjClose, volume);
+    }
+
+    private static void encodeBlock(PriceSeries bars, int start, int end, ByteSink out) {
+        long tick = 0;
+        for (int i = start + 1; i < end; i++) {
+            tick = gcd(tick, Math.abs(bars.getEpochMillis(i) - bars.getEpochMillis(i - 1)));
+        }
+        if (tick == 0) tick = 1;
+
+        BitWriter bits = new BitWriter((end - start) * 8 + 16);
+        bits.write(bars.getEpochMillis(start), 64);
+        long previousDelta = 0;
+        for (int i = start + 1; i < end; i++) {
+            long delta = (bars.getEpochMillis(i) - bars.getEpochMillis(i - 1)) / tick;
+            writeDeltaOfDelta(bits, delta - previousDelta);
+            previousDelta = delta;
+        }
+        int n = end - start;
+        double[] close = new double[n];
+        double[] high = new double[n];
+        double[] low = new double[n];
+        double[] open = new double[n];
+        double[] adjClose = new double[n];
+        for (int i = 0; i < n; i++) {
+            close[i] = bars.getClose(start + i);
+            high[i] = bars.getHigh(start + i);
+            low[i] = bars.getLow(start + i);
+            open[i] = bars.getOpen(start + i);
+            adjClose[i] = bars.getAdjClose(start + i);
+        }
+        writePrices(bits, close, close, 1);
+        writePrices(bits, high, high, 1);
+        writePrices(bits, low, low, 1);
+        writePrices(bits, open, close, 1);
+        writePrices(bits, adjClose, close, 0);
+
+        out.putVarLong(tick);
+        out.putVarLong(bits.byteLength());
+        out.put(bits.bytes, bits.byteLength());
+        for (int i = start; i < end; i++) {
+            out.putVarLong(zigzag(bars.getVolume(i)));
+        }
+    }
+
+    private static void decodeBlock(ByteBuffer in, int n, int offset, long[] epochMillis, double[] open,
+                                    double[] high, double[] low, double[] close, double[] adjClose, long[] volume) {
+        long tick = getVarLong(in);
+        int bitLength = (int) getVarLong(in);
+        BitReader bits = new BitReader(in.slice(in.position(), bitLength));
+        in.position(in.position() + bitLength);
+
+        long timestamp = bits.read(64);
+        epochMillis[offset] = timestamp;
+        long delta = 0;
+        for (int i = 1; i < n; i++) {
+            delta += readDeltaOfDelta(bits);
+            timestamp += delta * tick;
+            epochMillis[offset + i] = timestamp;
+        }
+        readPrices(bits, close, close, 1, offset, n);
+        readPrices(bits, high, high, 1, offset, n);
+        readPrices(bits, low, low, 1, offset, n);
+        readPrices(bits, open, close, 1, offset, n);
+        readPrices(bits, adjClose, close, 0, offset, n);
+        for (int i = 0; i < n; i++) {
+            volume[offset + i] = unzigzag(getVarLong(in));
+        }
+    }
+
+    private static void writeDeltaOfDelta(BitWriter bits, long dod) {
+        if (dod == 0) {
+            bits.write(0, 1);
+        } else if (dod >= -63 && dod <= 64) {
+            bits.write(0b10, 2);
+            bits.write(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            bits.write(0b110, 3);
+            bits.write(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            bits.write(0b1110, 4);
+            bits.write(dod + 2047, 12);
+        } else {
+            bits.write(0b1111, 4);
+            bits.write(dod, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader bits) {
+        if (bits.read(1) == 0) return 0;
+        if (bits.read(1) == 0) return bits.read(7) - 63;
+        if (bits.read(1) == 0) return bits.read(9) - 255;
+        if (bits.read(1) == 0) return bits.read(12) - 2047;
+        return bits.read(64);
+    }
+
+    /**
+     * Writes the first value, then every value as the XOR with the value of the reference
+     * column {@code lag} bars before.
+     */
+    private static void writePrices(BitWriter bits, double[] values, double[] reference, int lag) {
+        bits.write(Double.doubleToRawLongBits(values[0]), 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < values.length; i++) {
+            long xor = Double.doubleToRawLongBits(values[i]) ^ Double.doubleToRawLongBits(reference[i - lag]);
+            if (xor == 0) {
+                bits.write(0, 1);
+                continue;
+            }
+            int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // the meaningful bits fit in the window of the previous value
+                bits.write(0b10, 2);
+                bits.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int meaningful = 64 - leading - trailing;
+                bits.write(0b11, 2);
+                bits.write(leading, 5);
+                bits.write(meaningful - 1, 6);
+                bits.write(xor >>> trailing, meaningful);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+    }
+
+    private static void readPrices(BitReader bits, double[] values, double[] reference, int lag, int offset, int n) {
+        values[offset] = Double.longBitsToDouble(bits.read(64));
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < n; i++) {
+            long xor = 0;
+            if (bits.read(1) != 0) {
+                if (bits.read(1) != 0) {
+                    leading = (int) bits.read(5);
+                    int meaningful = (int) bits.read(6) + 1;
+                    trailing = 64 - leading - meaningful;
+                }
+                xor = bits.read(64 - leading - trailing) << trailing;
+            }
+            values[offset + i] = Double.longBitsToDouble(Double.doubleToRawLongBits(reference[offset + i - lag]) ^ xor);
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Corrupt varint");
+    }
+
+    /**
+     * Growable big-endian byte array.
+     */
+    private static final class ByteSink {
+        private byte[] bytes;
+        private int size;
+
+        ByteSink(int capacity) {
+            this.bytes = new byte[Math.max(16, capacity)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) bytes[size++] = (byte) (value >>> shift);
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) bytes[size++] = (byte) (value >>> shift);
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void put(byte[] source, int length) {
+            ensure(length);
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class BitWriter {
+        private byte[] bytes;
+        private long bitLength;
+
+        BitWriter(int capacity) {
+            this.bytes = new byte[Math.max(16, capacity)];
+        }
+
+        /**
+         * Writes the lowest bits of the value, most significant bit first.
+         */
+        void write(long value, int count) {
+            if (bytes.length * 8L < bitLength + count) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2 + 8);
+            }
+            for (int i = count - 1; i >= 0; ) {
+                int index = (int) (bitLength >>> 3);
+                int free = 8 - (int) (bitLength & 7);
+                int take = Math.min(free, i + 1);
+                int chunk = (int) ((value >>> (i + 1 - take)) & ((1 << take) - 1));
+                bytes[index] |= (byte) (chunk << (free - take));
+                bitLength += take;
+                i -= take;
+            }
+        }
+
+        int byteLength() {
+            return (int) ((bitLength + 7) >>> 3);
+        }
+    }
+
+    private static final class BitReader {
+        private final ByteBuffer in;
+        private long position;
+
+        BitReader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        long read(int count) {
+            long value = 0;
+            for (int i = count; i > 0; ) {
+                int index = (int) (position >>> 3);
+                if (index >= in.limit()) throw new IllegalArgumentException("Corrupt block");
+                int available = 8 - (int) (position & 7);
+                int take = Math.min(available, i);
+                int chunk = ((in.get(index) & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+                value = (value << take) | chunk;
+                position += take;
+                i -= take;
+            }
+            return value;
+        }
+    }
+}
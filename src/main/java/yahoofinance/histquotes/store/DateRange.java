@@ -0,0 +1,63 @@
+package yahoofinance.histquotes.store;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A range of exchange dates, from inclusive and to exclusive.
+ *
+ * @param from first date of the range
+ * @param to   date after the last date of the range
+ */
+public record DateRange(LocalDate from, LocalDate to) {
+
+    public boolean isEmpty() {
+        return !from.isBefore(to);
+    }
+
+    /**
+     * @param ranges any ranges
+     * @return the union of the ranges as sorted, non-overlapping and non-adjacent ranges
+     */
+    static List<DateRange> union(List<DateRange> ranges) {
+        List<DateRange> sorted = new ArrayList<DateRange>(ranges);
+        sorted.removeIf(DateRange::isEmpty);
+        sorted.sort(Comparator.comparing(DateRange::from));
+        List<DateRange> result = new ArrayList<DateRange>();
+        for (DateRange range : sorted) {
+            DateRange last = result.isEmpty() ? null : result.get(result.size() - 1);
+            if (last != null && !range.from().isAfter(last.to())) {
+                if (range.to().isAfter(last.to())) {
+                    result.set(result.size() - 1, new DateRange(last.from(), range.to()));
+                }
+            } else {
+                result.add(range);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param covered sorted, non-overlapping ranges as returned by {@link #union(List)}
+     * @return the parts of this range that are not covered, in order
+     */
+    List<DateRange> minus(List<DateRange> covered) {
+        List<DateRange> gaps = new ArrayList<DateRange>();
+        LocalDate start = from;
+        for (DateRange range : covered) {
+            if (!range.to().isAfter(start)) continue;
+            if (!range.from().isBefore(to)) break;
+            if (range.from().isAfter(start)) {
+                gaps.add(new DateRange(start, range.from()));
+            }
+            start = range.to();
+            if (!start.isBefore(to)) return gaps;
+        }
+        if (start.isBefore(to)) {
+            gaps.add(new DateRange(start, to));
+        }
+        return gaps;
+    }
+}
@@ -0,0 +1,314 @@
+package yahoofinance.histquotes.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import yahoofinance.Utils;
+import yahoofinance.YahooFinance;
+import yahoofinance.exchanges.ExchangeTimeZone;
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.histquotes.Interval;
+import yahoofinance.histquotes.PriceSeries;
+import yahoofinance.histquotes.Resampler;
+import yahoofinance.histquotes2.IntervalMapper;
+import yahoofinance.query2v8.HistQuotesQuery2V8Request;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Local store of historical prices, so that a history is downloaded from Yahoo Finance only once.
+ * <p>
+ * The bars of every symbol and interval are kept in their own {@link SegmentFile}, together with the
+ * exchange dates that have been fetched completely. A request for a date range only fetches the
+ * parts of the range that are not covered yet, and appends them as a new segment. Repeating a
+ * backfill of thousands of symbols then only downloads the days since the last run.
+ * <p>
+ * The current period, i.e. today for daily bars, the current week for weekly bars and the current
+ * month for monthly bars, is never stored: its bar can still change and is fetched again by every
+ * request that includes it. The latest bar of a period replaces the older ones.
+ * <p>
+ * Weekly and monthly histories are computed from the stored daily bars with {@link Resampler}, so a
+ * history that is stored at one interval can be shown at any other without downloading it again.
+ * <p>
+ * The store is enabled with the system property {@code yahoofinance.history.store}, the directory of
+ * the segment files. {@link yahoofinance.Stock#getHistory} and {@link yahoofinance.Stock#getHistorySeries}
+ * then read through the store. One process at a time should use a directory.
+ */
+public final class HistoryStore {
+
+    private static final Logger log = LogManager.getLogger(HistoryStore.class);
+
+    /**
+     * Segments of a file after which they are merged into a single segment.
+     */
+    static final int MAX_SEGMENTS = 16;
+
+    /**
+     * Fetches the bars of a date range from Yahoo Finance.
+     */
+    public interface Fetcher {
+        /**
+         * @param from  first exchange date
+         * @param to    exchange date after the last date
+         * @return all bars of the range
+         * @throws IOException when the bars cannot be fetched
+         */
+        PriceSeries fetch(LocalDate from, LocalDate to) throws IOException;
+    }
+
+    private static final HistoryStore DEFAULT = YahooFinance.HISTORY_STORE.isEmpty()
+            ? null : new HistoryStore(Paths.get(YahooFinance.HISTORY_STORE));
+
+    private final Path directory;
+    private final Clock clock;
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<String, ReentrantLock>();
+
+    public HistoryStore(Path directory) {
+        this(directory, Clock.systemUTC());
+    }
+
+    HistoryStore(Path directory, Clock clock) {
+        this.directory = directory;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the store in the directory of the system property {@code yahoofinance.history.store},
+     * null if the property is not set
+     */
+    public static HistoryStore getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the bars of a stock between two points in time, fetching the missing dates
+     * from the v8 chart API of Yahoo Finance. Weekly and monthly bars are resampled from
+     * the daily bars, see {@link #getResampledHistory}.
+     *
+     * @param symbol    the symbol of the stock
+     * @param from      start of the history
+     * @param to        end of the history, a date at midnight is excluded
+     * @param interval  the interval of the bars
+     * @return the bars, in chronological order
+     * @throws IOException when the store cannot be read or written, or a fetch fails
+     */
+    public PriceSeries getHistory(String symbol, Calendar from, Calendar to, Interval interval) throws IOException {
+        ZoneId zone = ExchangeTimeZone.getStockZoneId(symbol);
+        LocalDate fromDate = Instant.ofEpochMilli(from.getTimeInMillis()).atZone(zone).toLocalDate();
+        LocalDate toDate = Instant.ofEpochMilli(to.getTimeInMillis()).atZone(zone).toLocalDate();
+        if (startOf(toDate, zone) != to.getTimeInMillis()) {
+            toDate = toDate.plusDays(1);
+        }
+        TimeZone timeZone = TimeZone.getTimeZone(zone);
+        Fetcher daily = (gapFrom, gapTo) -> new HistQuotesQuery2V8Request(symbol,
+                Utils.toCalendar(startOf(gapFrom, zone), timeZone),
+                Utils.toCalendar(startOf(gapTo, zone), timeZone),
+                IntervalMapper.get(Interval.DAILY)).getChart().toSeries();
+        return this.getResampledHistory(symbol, interval, fromDate, toDate, daily);
+    }
+
+    /**
+     * Returns the bars of a stock for a range of exchange dates, computed from the daily bars.
+     * The daily bars of the whole weeks or months that overlap the range are read through
+     * {@link #getHistory(String, Interval, LocalDate, LocalDate, Fetcher)}, so that the first
+     * and last week or month are complete.
+     *
+     * @param symbol    the symbol of the stock
+     * @param interval  the interval of the bars
+     * @param from      first exchange date
+     * @param to        exchange date after the last date
+     * @param daily     fetches the missing daily bars
+     * @return the bars of the periods that overlap the range, in chronological order
+     * @throws IOException when the store cannot be read or written, or a fetch fails
+     */
+    PriceSeries getResampledHistory(String symbol, Interval interval, LocalDate from, LocalDate to, Fetcher daily)
+            throws IOException {
+        if (interval == Interval.DAILY) {
+            return this.getHistory(symbol, Interval.DAILY, from, to, daily);
+        }
+        ZoneId zone = ExchangeTimeZone.getStockZoneId(symbol);
+        LocalDate periodFrom = Resampler.periodStart(from, interval);
+        PriceSeries bars = this.getHistory(symbol, Interval.DAILY, periodFrom, nextPeriodStart(to, interval), daily);
+        return Resampler.resample(bars, interval, zone).range(startOf(periodFrom, zone), startOf(to, zone));
+    }
+
+    /**
+     * Returns the bars of a stock for a range of exchange dates. The dates of the range that are not
+     * in the store yet are fetched first, extended to whole weeks or months for weekly or monthly bars.
+     *
+     * @param symbol    the symbol of the stock
+     * @param interval  the interval of the bars
+     * @param from      first exchange date
+     * @param to        exchange date after the last date
+     * @param fetcher   fetches the missing dates
+     * @return the bars that start within the range, in chronological order
+     * @throws IOException when the store cannot be read or written, or a fetch fails
+     */
+    public PriceSeries getHistory(String symbol, Interval interval, LocalDate from, LocalDate to, Fetcher fetcher)
+            throws IOException {
+        ZoneId zone = ExchangeTimeZone.getStockZoneId(symbol);
+        SegmentFile file = this.getFile(symbol, interval);
+        ReentrantLock lock = this.locks.computeIfAbsent(file.getPath().toString(), k -> new ReentrantLock());
+        lock.lock();
+        try {
+            long fromMillis = startOf(from, zone);
+            long toMillis = startOf(to, zone);
+            List<SegmentFile.Segment> segments = file.read(fromMillis, toMillis);
+            List<DateRange> coverage = coverage(segments);
+            int stored = segments.size();
+            DateRange requested = new DateRange(Resampler.periodStart(from, interval), nextPeriodStart(to, interval));
+            List<DateRange> gaps = requested.isEmpty() ? List.of() : requested.minus(coverage);
+
+            LocalDate incomplete = Resampler.periodStart(LocalDate.now(this.clock.withZone(zone)), interval);
+            for (DateRange gap : gaps) {
+                log.debug("Fetching {} {} history from {} until {}", symbol, interval, gap.from(), gap.to());
+                PriceSeries bars = fetcher.fetch(gap.from(), gap.to());
+                LocalDate coveredTo = gap.to().isAfter(incomplete) ? incomplete : gap.to();
+                DateRange covered = new DateRange(gap.from(), coveredTo);
+                // bars of the incomplete period are only returned, they are fetched again by the next request
+                if (!covered.isEmpty()) {
+                    file.append(List.of(covered), bars.range(Long.MIN_VALUE, startOf(coveredTo, zone)));
+                    stored++;
+                }
+                segments.add(new SegmentFile.Segment(List.of(covered), bars));
+            }
+
+            if (stored > MAX_SEGMENTS) {
+                log.debug("Compacting {} segments of {} {} history", stored, symbol, interval);
+                List<SegmentFile.Segment> all = file.read();
+                file.rewrite(coverage(all), merge(symbol, all, zone));
+            }
+            return merge(symbol, segments, zone).range(fromMillis, toMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param symbol    the symbol of the stock
+     * @param interval  the interval of the bars
+     * @return the exchange dates of which all bars are in the store
+     * @throws IOException when the store cannot be read
+     */
+    public List<DateRange> getCoverage(String symbol, Interval interval) throws IOException {
+        return coverage(this.getFile(symbol, interval).read());
+    }
+
+    /**
+     * Converts bars to quotes dated at midnight of their exchange date in the default time zone,
+     * which is how the CSV history of Yahoo Finance is dated.
+     *
+     * @param series    the bars
+     * @param zone      the time zone of the exchange
+     * @return the quotes, in chronological order
+     */
+    public static List<HistoricalQuote> toQuotes(PriceSeries series, ZoneId zone) {
+        List<HistoricalQuote> quotes = series.toQuotes();
+        for (int i = 0; i < quotes.size(); i++) {
+            LocalDate date = Instant.ofEpochMilli(series.getEpochMillis(i)).atZone(zone).toLocalDate();
+            quotes.get(i).setDate(Utils.toCalendar(date));
+        }
+        return quotes;
+    }
+
+    private SegmentFile getFile(String symbol, Interval interval) {
+        String name = URLEncoder.encode(symbol.toUpperCase(), StandardCharsets.UTF_8)
+                + "." + IntervalMapper.get(interval).getTag() + ".hist";
+        return new SegmentFile(this.directory.resolve(name), symbol);
+    }
+
+    private static List<DateRange> coverage(List<SegmentFile.Segment> segments) {
+        List<DateRange> ranges = new ArrayList<DateRange>();
+        for (SegmentFile.Segment segment : segments) {
+            ranges.addAll(segment.coverage());
+        }
+        return DateRange.union(ranges);
+    }
+
+    /**
+     * Merges the bars of all segments into one series. A bar is identified by its exchange date,
+     * the bar of the latest segment wins.
+     */
+    private static PriceSeries merge(String symbol, List<SegmentFile.Segment> segments, ZoneId zone) {
+        int total = 0;
+        for (SegmentFile.Segment segment : segments) {
+            total += segment.bars().size();
+        }
+        long[] days = new long[total];
+        PriceSeries[] sources = new PriceSeries[total];
+        int[] sourceIndex = new int[total];
+        Integer[] order = new Integer[total];
+        int n = 0;
+        for (SegmentFile.Segment segment : segments) {
+            PriceSeries bars = segment.bars();
+            for (int i = 0; i < bars.size(); i++) {
+                long millis = bars.getEpochMillis(i);
+                int offset = zone.getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds();
+                days[n] = Math.floorDiv(millis + offset * 1000L, 86_400_000L);
+                sources[n] = bars;
+                sourceIndex[n] = i;
+                order[n] = n;
+                n++;
+            }
+        }
+        // stable sort, so later segments stay after earlier ones within a day
+        Arrays.sort(order, Comparator.comparingLong(i -> days[i]));
+
+        int count = 0;
+        for (int k = 0; k < total; k++) {
+            if (k == total - 1 || days[order[k]] != days[order[k + 1]]) count++;
+        }
+        long[] epochMillis = new long[count];
+        double[] open = new double[count];
+        double[] high = new double[count];
+        double[] low = new double[count];
+        double[] close = new double[count];
+        double[] adjClose = new double[count];
+        long[] volume = new long[count];
+        int j = 0;
+        for (int k = 0; k < total; k++) {
+            if (k < total - 1 && days[order[k]] == days[order[k + 1]]) continue;
+            PriceSeries bars = sources[order[k]];
+            int i = sourceIndex[order[k]];
+            epochMillis[j] = bars.getEpochMillis(i);
+            open[j] = bars.getOpen(i);
+            high[j] = bars.getHigh(i);
+            low[j] = bars.getLow(i);
+            close[j] = bars.getClose(i);
+            adjClose[j] = bars.getAdjClose(i);
+            volume[j] = bars.getVolume(i);
+            j++;
+        }
+        return new PriceSeries(symbol, epochMillis, open, high, low, close, adjClose, volume);
+    }
+
+    private static long startOf(LocalDate date, ZoneId zone) {
+        return date.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private static LocalDate nextPeriodStart(LocalDate date, Interval interval) {
+        LocalDate start = Resampler.periodStart(date, interval);
+        if (start.equals(date)) return date;
+        switch (interval) {
+            case WEEKLY: return start.plusWeeks(1);
+            case MONTHLY: return start.plusMonths(1);
+            default: return date;
+        }
+    }
+}
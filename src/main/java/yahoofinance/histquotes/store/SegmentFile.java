@@ -0,0 +1,212 @@
+package yahoofinance.histquotes.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import yahoofinance.histquotes.PriceSeries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of segments, one file per symbol and interval. Every fetch from Yahoo Finance
+ * appends one segment with the fetched bars and the date ranges the fetch covered:
+ * <pre>
+ * int    magic "HSEG"
+ * byte   format version
+ * byte   codec of the bars
+ * short  reserved
+ * int    number of covered date ranges
+ * int    number of bars
+ * int    length of the bars in bytes
+ * int    CRC32 of the ranges and the bars
+ * int[2] per range: first epoch day, epoch day after the last
+ * bars   in the format of the codec
+ * </pre>
+ * The only codec is the compressed {@link BarBlockCodec}. The file is read into the heap in one go rather than mapped: all bars are copied into arrays anyway,
+ * and a live mapping would block truncating or replacing the file on Windows. A segment that was not
+ * written completely, e.g. because the process was killed, fails its checksum: it and everything
+ * after it is ignored and cut off by the next append.
+ */
+final class SegmentFile {
+
+    private static final Logger log = LogManager.getLogger(SegmentFile.class);
+
+    static final int MAGIC = 0x48534547; // "HSEG"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final byte CODEC_BLOCKS = 1;
+
+    record Segment(List<DateRange> coverage, PriceSeries bars) {
+    }
+
+    private final Path path;
+    private final String symbol;
+    private long validLength = -1;
+
+    SegmentFile(Path path, String symbol) {
+        this.path = path;
+        this.symbol = symbol;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return all complete segments, in the order they were appended
+     * @throws IOException when the file cannot be read
+     */
+    List<Segment> read() throws IOException {
+        return read(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads all complete segments, but decodes only the blocks of bars that overlap a time range.
+     * The segments may contain bars outside the range, their coverage is always complete.
+     *
+     * @param fromMillis    start of the range, inclusive
+     * @param toMillis      end of the range, exclusive
+     * @return the segments, in the order they were appended
+     * @throws IOException when the file cannot be read
+     */
+    List<Segment> read(long fromMillis, long toMillis) throws IOException {
+        List<Segment> segments = new ArrayList<Segment>();
+        if (!Files.exists(path)) {
+            validLength = 0;
+            return segments;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("History segment file too large: " + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+            buffer.flip();
+            int size = buffer.limit();
+            int position = 0;
+            while (position + HEADER_SIZE <= size) {
+                int end = segmentEnd(buffer, position, size);
+                if (end < 0) break;
+                segments.add(decode(buffer, position, fromMillis, toMillis));
+                position = end;
+            }
+            if (position < size) {
+                log.warn("Ignoring {} bytes after the last complete segment of {}", size - position, path);
+            }
+            validLength = position;
+        }
+        return segments;
+    }
+
+    /**
+     * Appends a segment.
+     *
+     * @param coverage  the date ranges that are completely contained in the bars
+     * @param bars      the bars
+     * @throws IOException when the segment cannot be written
+     */
+    void append(List<DateRange> coverage, PriceSeries bars) throws IOException {
+        if (validLength < 0) read();
+        Files.createDirectories(path.getParent());
+        ByteBuffer segment = encode(coverage, bars);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+            }
+            channel.position(validLength);
+            while (segment.hasRemaining()) {
+                channel.write(segment);
+            }
+            validLength = channel.position();
+        }
+    }
+
+    /**
+     * Replaces all segments by a single one.
+     *
+     * @param coverage  the date ranges that are completely contained in the bars
+     * @param bars      the bars
+     * @throws IOException when the file cannot be written, it is then left unchanged
+     */
+    void rewrite(List<DateRange> coverage, PriceSeries bars) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer segment = encode(coverage, bars);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (segment.hasRemaining()) {
+                channel.write(segment);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        validLength = segment.limit();
+    }
+
+    /**
+     * @return the end of the segment at the position, -1 if there is no complete and intact segment
+     */
+    private int segmentEnd(ByteBuffer buffer, int position, int size) {
+        if (buffer.getInt(position) != MAGIC) return -1;
+        if (buffer.get(position + 4) != VERSION) {
+            log.warn("Unsupported history segment version {} in {}", buffer.get(position + 4), path);
+            return -1;
+        }
+        int rangeCount = buffer.getInt(position + 8);
+        int barCount = buffer.getInt(position + 12);
+        int payloadLength = buffer.getInt(position + 16);
+        if (rangeCount < 0 || barCount < 0 || payloadLength < 0) return -1;
+        if (buffer.get(position + 5) != CODEC_BLOCKS) return -1;
+        long end = (long) position + HEADER_SIZE + rangeCount * 8L + payloadLength;
+        if (end > size) return -1;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(position + HEADER_SIZE, (int) end - position - HEADER_SIZE));
+        if ((int) crc.getValue() != buffer.getInt(position + 20)) return -1;
+        return (int) end;
+    }
+
+    private Segment decode(ByteBuffer buffer, int position, long fromMillis, long toMillis) {
+        int rangeCount = buffer.getInt(position + 8);
+        ByteBuffer in = buffer.slice(position + HEADER_SIZE, rangeCount * 8 + buffer.getInt(position + 16));
+
+        List<DateRange> coverage = new ArrayList<DateRange>(rangeCount);
+        for (int i = 0; i < rangeCount; i++) {
+            coverage.add(new DateRange(LocalDate.ofEpochDay(in.getInt()), LocalDate.ofEpochDay(in.getInt())));
+        }
+        return new Segment(coverage, BarBlockCodec.decode(in, symbol, fromMillis, toMillis));
+    }
+
+    private static ByteBuffer encode(List<DateRange> coverage, PriceSeries bars) {
+        byte[] payload = BarBlockCodec.encode(bars);
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + coverage.size() * 8 + payload.length);
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        out.put(CODEC_BLOCKS);
+        out.putShort((short) 0);
+        out.putInt(coverage.size());
+        out.putInt(bars.size());
+        out.putInt(payload.length);
+        out.putInt(0); // checksum, filled in below
+        for (DateRange range : coverage) {
+            out.putInt((int) range.from().toEpochDay());
+            out.putInt((int) range.to().toEpochDay());
+        }
+        out.put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), HEADER_SIZE, out.limit() - HEADER_SIZE);
+        out.putInt(20, (int) crc.getValue());
+        out.flip();
+        return out;
+    }
+}
@@ -1,21 +1,13 @@
 package yahoofinance.histquotes2;
 
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.ClassicHttpRequest;
-import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
-import yahoofinance.Utils;
 import yahoofinance.YahooFinance;
 import yahoofinance.histquotes.HistoricalQuote;
 import yahoofinance.histquotes.Interval;
-import yahoofinance.util.RedirectableRequest;
+import yahoofinance.util.YahooTransport;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
-import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import org.apache.logging.log4j.LogManager;
@@ -104,93 +96,14 @@ public class HistQuotes2Request {
             return Collections.emptyList();
         }
 
-        final String url = YahooFinance.HISTQUOTES2_BASE_URL + this.symbol;
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            ClassicHttpRequest httpGet = ClassicRequestBuilder
-                    .get(url)
-                    .addParameter("period1", String.valueOf(this.from.getTimeInMillis() / 1000))
-                    .addParameter("period2", String.valueOf(this.to.getTimeInMillis() / 1000))
-                    .addParameter("interval", this.interval.getTag())
-                    .build();
-
-            org.kr.stocksmonitor.yahoo.CrumbManager.getInstance().prepareRequest(httpGet);
-            return client.execute(httpGet, classicHttpResponse -> {
-                try (InputStreamReader is = new InputStreamReader(classicHttpResponse.getEntity().getContent());
-                     BufferedReader br = new BufferedReader(is)) {
-                    List<HistoricalQuote> res = new ArrayList<>();
-                    br.readLine(); // skip the first line
-                    // Parse CSV
-                    for (String line = br.readLine(); line != null; line = br.readLine()) {
-                        log.debug("Parsing CSV line: {}", Utils.unescape(line));
-                        HistoricalQuote quote = this.parseCSVLine(line);
-                        res.add(quote);
-                    }
-                    return res;
-                }
-            });
-        }
-    }
-
-    private List<HistoricalQuote> getOldWay() throws IOException {
-
-        List<HistoricalQuote> result = new ArrayList<HistoricalQuote>();
-        
-        if(this.from.after(this.to)) {
-            log.warn("Unable to retrieve historical quotes. "
-                    + "From-date should not be after to-date. From: "
-                    + this.from.getTime() + ", to: " + this.to.getTime());
-            return result;
-        }
-
-        Map<String, String> params = new LinkedHashMap<String, String>();
+        Map<String, String> params = new LinkedHashMap<>();
         params.put("period1", String.valueOf(this.from.getTimeInMillis() / 1000));
         params.put("period2", String.valueOf(this.to.getTimeInMillis() / 1000));
-
         params.put("interval", this.interval.getTag());
 
-        //old crumb manager does not work
-        //params.put("crumb", CrumbManager.getCrumb());
-
-        String url = YahooFinance.HISTQUOTES2_BASE_URL + URLEncoder.encode(this.symbol , "UTF-8") + "?" + Utils.getURLParameters(params);
-
-        // Get CSV from Yahoo
-        log.info("Sending request: " + url);
-
-        URL request = new URL(url);
-        RedirectableRequest redirectableRequest = new RedirectableRequest(request, 5);
-        redirectableRequest.setConnectTimeout(YahooFinance.CONNECTION_TIMEOUT);
-        redirectableRequest.setReadTimeout(YahooFinance.CONNECTION_TIMEOUT);
-        Map<String, String> requestProperties = new HashMap<String, String>();
-
-        //old crumb manager does not work
-        //requestProperties.put("Cookie", CrumbManager.getCookie());
-
-        URLConnection connection = redirectableRequest.openConnection(requestProperties);
-
-        InputStreamReader is = new InputStreamReader(connection.getInputStream());
-        BufferedReader br = new BufferedReader(is);
-        br.readLine(); // skip the first line
-        // Parse CSV
-        for (String line = br.readLine(); line != null; line = br.readLine()) {
-
-            log.info("Parsing CSV line: " + Utils.unescape(line));
-            HistoricalQuote quote = this.parseCSVLine(line);
-            result.add(quote);
-        }
-        return result;
-    }
-
-    private HistoricalQuote parseCSVLine(String line) {
-        String[] data = line.split(YahooFinance.QUOTES_CSV_DELIMITER);
-        return new HistoricalQuote(this.symbol,
-                Utils.parseHistDate(data[0]),
-                Utils.getBigDecimal(data[1]),
-                Utils.getBigDecimal(data[3]),
-                Utils.getBigDecimal(data[2]),
-                Utils.getBigDecimal(data[4]),
-                Utils.getBigDecimal(data[5]),
-                Utils.getLong(data[6])
-        );
+        String url = YahooFinance.HISTQUOTES2_BASE_URL + YahooTransport.encodePath(this.symbol);
+        return YahooTransport.getInstance().get(url, params, in ->
+                new HistQuotesCsvDecoder(this.symbol).decode(new InputStreamReader(in, StandardCharsets.UTF_8)));
     }
 
 }
@@ -0,0 +1,154 @@
+package yahoofinance.histquotes2;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import yahoofinance.Utils;
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.util.NumericParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Streaming decoder for the historical quotes CSV of Yahoo Finance:
+ * <pre>
+ * Date,Open,High,Low,Close,Adj Close,Volume
+ * 2024-01-02,187.149994,188.440002,183.889999,185.639999,185.152283,82488700
+ * </pre>
+ * The response is read into a reusable char buffer and every row is scanned in place:
+ * the field boundaries are recorded as offsets, and the date, the decimals and the volume are
+ * parsed straight from the buffer, dates through {@link Utils#parseLocalDate(CharSequence, int, int)}
+ * and numbers through a {@link NumericParser}. No String is created per row or per field, the only
+ * allocations are the values of the resulting {@link HistoricalQuote}s themselves.
+ */
+final class HistQuotesCsvDecoder {
+
+    private static final Logger log = LogManager.getLogger(HistQuotesCsvDecoder.class);
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final int FIELD_COUNT = 7;
+
+    private static final int DATE = 0;
+    private static final int OPEN = 1;
+    private static final int HIGH = 2;
+    private static final int LOW = 3;
+    private static final int CLOSE = 4;
+    private static final int ADJ_CLOSE = 5;
+    private static final int VOLUME = 6;
+
+    private final String symbol;
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+    private final NumericParser numbers = new NumericParser();
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+    private CharBuffer chars = CharBuffer.wrap(buffer);
+
+    HistQuotesCsvDecoder(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Decodes all rows of the CSV, the header row is skipped.
+     * Rows that do not have all fields are skipped as well.
+     *
+     * @param reader the CSV
+     * @return the historical quotes, in the order of the rows
+     * @throws IOException when the CSV cannot be read
+     */
+    List<HistoricalQuote> decode(Reader reader) throws IOException {
+        final List<HistoricalQuote> result = new ArrayList<>();
+        boolean header = true;
+        int skipped = 0;
+        int start = 0;
+        int limit = 0;
+        boolean eof = false;
+
+        while (true) {
+            int newline = indexOf('\n', start, limit);
+            if (newline < 0 && !eof) {
+                // move the incomplete row to the front, grow the buffer if it spans all of it, then read more
+                if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, limit - start);
+                    limit -= start;
+                    start = 0;
+                } else if (limit == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    chars = CharBuffer.wrap(buffer);
+                }
+                final int read = reader.read(buffer, limit, buffer.length - limit);
+                if (read < 0) eof = true;
+                else limit += read;
+                continue;
+            }
+            final int end = newline < 0 ? limit : newline;
+            if (end > start || newline >= 0) {
+                if (header) {
+                    header = false;
+                } else if (!decodeRow(start, end, result)) {
+                    skipped++;
+                }
+            }
+            if (newline < 0) break;
+            start = newline + 1;
+        }
+        if (skipped > 0)
+            log.warn("{} malformed rows skipped in the historical quotes of {}", skipped, symbol);
+        log.debug("{} historical quotes decoded for {}", result.size(), symbol);
+        return result;
+    }
+
+    private boolean decodeRow(int start, int end, List<HistoricalQuote> result) {
+        if (end > start && buffer[end - 1] == '\r') end--;
+        if (end == start) return true; // blank line, e.g. at the end of the response
+
+        int field = 0;
+        fieldStart[0] = start;
+        for (int i = start; i < end && field < FIELD_COUNT; i++) {
+            if (buffer[i] == ',') {
+                fieldEnd[field++] = i;
+                if (field < FIELD_COUNT) fieldStart[field] = i + 1;
+            }
+        }
+        if (field < FIELD_COUNT - 1) return false;
+        if (field == FIELD_COUNT - 1) fieldEnd[field] = end;
+
+        result.add(new HistoricalQuote(symbol,
+                date(fieldStart[DATE], fieldEnd[DATE]),
+                decimal(OPEN),
+                decimal(LOW),
+                decimal(HIGH),
+                decimal(CLOSE),
+                decimal(ADJ_CLOSE),
+                volume(fieldStart[VOLUME], fieldEnd[VOLUME])));
+        return true;
+    }
+
+    private Calendar date(int start, int end) {
+        final LocalDate date = Utils.parseLocalDate(chars, start, end);
+        return date == null ? null : Utils.toCalendar(date);
+    }
+
+    private BigDecimal decimal(int field) {
+        return numbers.parse(chars, fieldStart[field], fieldEnd[field]) ? numbers.bigDecimalValue() : null;
+    }
+
+    private Long volume(int start, int end) {
+        if (!numbers.parse(chars, start, end)) return null;
+        final long volume = numbers.longValue(Long.MIN_VALUE);
+        return volume == Long.MIN_VALUE ? null : volume;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == c) return i;
+        }
+        return -1;
+    }
+}
@@ -1,20 +1,13 @@
 package yahoofinance.histquotes2;
 
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.ClassicHttpRequest;
-import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
-import org.kr.stocksmonitor.yahoo.CrumbManager;
 import yahoofinance.Utils;
 import yahoofinance.YahooFinance;
-import yahoofinance.util.RedirectableRequest;
+import yahoofinance.util.YahooTransport;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
-import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import org.apache.logging.log4j.LogManager;
@@ -81,45 +74,7 @@ public class HistSplitsRequest {
     }
 
     private List<HistoricalSplit> requestResults() throws IOException {
-        final String url = YahooFinance.HISTQUOTES2_BASE_URL + this.symbol;
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            ClassicHttpRequest httpGet = ClassicRequestBuilder
-                    .get(url)
-                    .addParameter("period1", String.valueOf(this.from.getTimeInMillis() / 1000))
-                    .addParameter("period2", String.valueOf(this.to.getTimeInMillis() / 1000))
-                    .addParameter("interval", DEFAULT_INTERVAL.getTag())
-                    .addParameter("events", "split")
-                    .build();
-
-            CrumbManager.getInstance().prepareRequest(httpGet);
-            return client.execute(httpGet, classicHttpResponse -> {
-                try (InputStreamReader is = new InputStreamReader(classicHttpResponse.getEntity().getContent());
-                     BufferedReader br = new BufferedReader(is)) {
-                    List<HistoricalSplit> res = new ArrayList<>();
-                    br.readLine(); // skip the first line
-                    // Parse CSV
-                    for (String line = br.readLine(); line != null; line = br.readLine()) {
-                        log.debug("Parsing CSV line: {}", Utils.unescape(line));
-                        HistoricalSplit split = this.parseCSVLine(line);
-                        res.add(split);
-                    }
-                    return res;
-                }
-            });
-        }
-    }
-
-    private List<HistoricalSplit> getOldWay() throws IOException {
-        List<HistoricalSplit> result = new ArrayList<HistoricalSplit>();
-
-        if(this.from.after(this.to)) {
-            log.warn("Unable to retrieve historical splits. "
-                    + "From-date should not be after to-date. From: "
-                    + this.from.getTime() + ", to: " + this.to.getTime());
-            return result;
-        }
-
-        Map<String, String> params = new LinkedHashMap<String, String>();
+        Map<String, String> params = new LinkedHashMap<>();
         params.put("period1", String.valueOf(this.from.getTimeInMillis() / 1000));
         params.put("period2", String.valueOf(this.to.getTimeInMillis() / 1000));
 
@@ -130,36 +85,19 @@ public class HistSplitsRequest {
         // This will instruct Yahoo to return splits
         params.put("events", "split");
 
-        //old crumb manager does not work
-        //params.put("crumb", CrumbManager.getCrumb());
-
-        String url = YahooFinance.HISTQUOTES2_BASE_URL + URLEncoder.encode(this.symbol , "UTF-8") + "?" + Utils.getURLParameters(params);
-
-        // Get CSV from Yahoo
-        log.info("Sending request: " + url);
-
-        URL request = new URL(url);
-        RedirectableRequest redirectableRequest = new RedirectableRequest(request, 5);
-        redirectableRequest.setConnectTimeout(YahooFinance.CONNECTION_TIMEOUT);
-        redirectableRequest.setReadTimeout(YahooFinance.CONNECTION_TIMEOUT);
-        Map<String, String> requestProperties = new HashMap<String, String>();
-
-        //old crumb manager does not work
-        //requestProperties.put("Cookie", CrumbManager.getCookie());
-
-        URLConnection connection = redirectableRequest.openConnection(requestProperties);
-
-        InputStreamReader is = new InputStreamReader(connection.getInputStream());
-        BufferedReader br = new BufferedReader(is);
-        br.readLine(); // skip the first line
-        // Parse CSV
-        for (String line = br.readLine(); line != null; line = br.readLine()) {
-
-            log.info("Parsing CSV line: " + Utils.unescape(line));
-            HistoricalSplit split = this.parseCSVLine(line);
-            result.add(split);
-        }
-        return result;
+        String url = YahooFinance.HISTQUOTES2_BASE_URL + YahooTransport.encodePath(this.symbol);
+        return YahooTransport.getInstance().get(url, params, in -> {
+            BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<HistoricalSplit> res = new ArrayList<>();
+            br.readLine(); // skip the first line
+            // Parse CSV
+            for (String line = br.readLine(); line != null; line = br.readLine()) {
+                log.debug("Parsing CSV line: {}", Utils.unescape(line));
+                HistoricalSplit split = this.parseCSVLine(line);
+                res.add(split);
+            }
+            return res;
+        });
     }
 
     private HistoricalSplit parseCSVLine(String line) {
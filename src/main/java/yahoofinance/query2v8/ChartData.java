@@ -0,0 +1,166 @@
+package yahoofinance.query2v8;
+
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.histquotes.PriceSeries;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * The bars of a chart response as parallel primitive arrays, one element per timestamp.
+ * <p>
+ * Missing prices, which Yahoo Finance sends as null for e.g. halted intervals, are stored as
+ * {@link Double#NaN}, a missing volume as {@link #MISSING_VOLUME}. {@link HistoricalQuote}s are
+ * only created when {@link #getQuote(int)} or {@link #toQuotes()} is called. Their prices are the
+ * decimals the decoder kept if it was asked to, see {@link ChartJsonDecoder}, otherwise the decimals
+ * of the doubles.
+ * <p>
+ * The arrays returned by the getters are not copied and must not be modified.
+ */
+public final class ChartData {
+
+    /**
+     * Volume of a bar for which Yahoo Finance did not send one.
+     */
+    public static final long MISSING_VOLUME = PriceSeries.MISSING_VOLUME;
+
+    static final int OPEN = 0;
+    static final int HIGH = 1;
+    static final int LOW = 2;
+    static final int CLOSE = 3;
+    static final int ADJ_CLOSE = 4;
+    static final int PRICES = 5;
+
+    private final String symbol;
+    private final long[] timestamps;
+    private final double[] opens;
+    private final double[] highs;
+    private final double[] lows;
+    private final double[] closes;
+    private final double[] adjCloses;
+    private final long[] volumes;
+    // the decimal of every price by OPEN, HIGH, LOW, CLOSE and ADJ_CLOSE, or null if not kept
+    private final BigDecimal[][] decimals;
+
+    ChartData(String symbol, long[] timestamps, double[] opens, double[] highs, double[] lows,
+              double[] closes, double[] adjCloses, long[] volumes, BigDecimal[][] decimals) {
+        this.symbol = symbol;
+        this.timestamps = timestamps;
+        this.opens = opens;
+        this.highs = highs;
+        this.lows = lows;
+        this.closes = closes;
+        this.adjCloses = adjCloses;
+        this.volumes = volumes;
+        this.decimals = decimals;
+    }
+
+    static ChartData empty(String symbol) {
+        return new ChartData(symbol, new long[0], new double[0], new double[0], new double[0],
+                new double[0], new double[0], new long[0], null);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the number of bars
+     */
+    public int size() {
+        return timestamps.length;
+    }
+
+    /**
+     * @return the start of every bar, in seconds since the epoch
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public double[] getOpens() {
+        return opens;
+    }
+
+    public double[] getHighs() {
+        return highs;
+    }
+
+    public double[] getLows() {
+        return lows;
+    }
+
+    public double[] getCloses() {
+        return closes;
+    }
+
+    /**
+     * Intraday charts have no adjusted close, all values are {@link Double#NaN} then.
+     *
+     * @return the adjusted close of every bar
+     */
+    public double[] getAdjCloses() {
+        return adjCloses;
+    }
+
+    public long[] getVolumes() {
+        return volumes;
+    }
+
+    /**
+     * Creates the quote of a single bar.
+     *
+     * @param index index of the bar
+     * @return the quote, with null for every missing value
+     */
+    public HistoricalQuote getQuote(int index) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timestamps[index] * 1000);
+        return new HistoricalQuote(
+                symbol,
+                calendar,
+                decimal(OPEN, opens, index),
+                decimal(LOW, lows, index),
+                decimal(HIGH, highs, index),
+                decimal(CLOSE, closes, index),
+                decimal(ADJ_CLOSE, adjCloses, index),
+                volumes[index] == MISSING_VOLUME ? null : volumes[index]);
+    }
+
+    /**
+     * @return the quotes of all bars, in chronological order
+     */
+    public List<HistoricalQuote> toQuotes() {
+        List<HistoricalQuote> result = new ArrayList<HistoricalQuote>(size());
+        for (int i = 0; i < size(); i++) {
+            result.add(getQuote(i));
+        }
+        return result;
+    }
+
+    /**
+     * Converts the chart to a series which shares the price and volume arrays of this chart,
+     * only the timestamps are copied to milliseconds.
+     *
+     * @return the bars as a price series
+     */
+    public PriceSeries toSeries() {
+        long[] epochMillis = new long[timestamps.length];
+        for (int i = 0; i < timestamps.length; i++) {
+            epochMillis[i] = timestamps[i] * 1000;
+        }
+        return new PriceSeries(symbol, epochMillis, opens, highs, lows, closes, adjCloses, volumes);
+    }
+
+    private BigDecimal decimal(int price, double[] values, int index) {
+        if (decimals != null) return decimals[price][index];
+        return Double.isNaN(values[index]) ? null : BigDecimal.valueOf(values[index]);
+    }
+
+    @Override
+    public String toString() {
+        return "ChartData{symbol=" + symbol + ", bars=" + size() + "}";
+    }
+}
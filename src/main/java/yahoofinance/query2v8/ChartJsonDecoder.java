@@ -0,0 +1,254 @@
+package yahoofinance.query2v8;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Streaming decoder for the v8 chart response:
+ * <pre>
+ * {"chart":{"result":[{"meta":{..},"timestamp":[..],
+ *     "indicators":{"quote":[{"open":[..],"high":[..],"low":[..],"close":[..],"volume":[..]}],
+ *                   "adjclose":[{"adjclose":[..]}]}}],
+ *  "error":null}}
+ * </pre>
+ * The response is read token by token with Jackson's {@link JsonParser}, the values go straight into
+ * primitive arrays. Neither the response text nor a tree of nodes is ever held in memory.
+ * <p>
+ * When the prices are needed as {@link BigDecimal}s, the decoder can also keep the decimal of every
+ * price as Jackson's tree model created it: the integer itself for an integer literal, the decimal
+ * of the double for any other number.
+ */
+final class ChartJsonDecoder {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final String symbol;
+    private final boolean keepDecimals;
+
+    private long[] timestamps;
+    private double[] opens;
+    private double[] highs;
+    private double[] lows;
+    private double[] closes;
+    private double[] adjCloses;
+    private long[] volumes;
+    private final BigDecimal[][] decimals = new BigDecimal[ChartData.PRICES][];
+    private String error;
+
+    ChartJsonDecoder(String symbol) {
+        this(symbol, false);
+    }
+
+    /**
+     * @param symbol        the requested symbol
+     * @param keepDecimals  whether to keep the decimal of every price next to its double
+     */
+    ChartJsonDecoder(String symbol, boolean keepDecimals) {
+        this.symbol = symbol;
+        this.keepDecimals = keepDecimals;
+    }
+
+    /**
+     * @param in the chart response
+     * @return the bars of the first result
+     * @throws IOException when the response cannot be read or Yahoo Finance returned an error instead of a chart
+     */
+    ChartData decode(InputStream in) throws IOException {
+        parse(in);
+        if (timestamps == null) {
+            if (error != null)
+                throw new IOException("Chart request for " + symbol + " failed: " + error);
+            return ChartData.empty(symbol);
+        }
+        int size = timestamps.length;
+        BigDecimal[][] fitted = null;
+        if (keepDecimals) {
+            fitted = new BigDecimal[ChartData.PRICES][];
+            for (int i = 0; i < fitted.length; i++) {
+                fitted[i] = decimals[i] == null ? new BigDecimal[size] : Arrays.copyOf(decimals[i], size);
+            }
+        }
+        return new ChartData(symbol, timestamps,
+                fit(opens, size), fit(highs, size), fit(lows, size), fit(closes, size), fit(adjCloses, size),
+                fit(volumes, size), fitted);
+    }
+
+    /**
+     * Yahoo Finance answers a chart request for an unknown symbol or range with a 4xx status
+     * and the error in the same chart object.
+     *
+     * @param in the body of an error response
+     * @return the error of the chart, or null if the body has none
+     * @throws IOException when the body cannot be read or isn't a chart response
+     */
+    String decodeError(InputStream in) throws IOException {
+        parse(in);
+        return error == null ? null : "Chart request for " + symbol + " failed: " + error;
+    }
+
+    private void parse(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("Unexpected chart response for " + symbol);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("chart".equals(field)) readChart(parser);
+                else parser.skipChildren();
+            }
+        }
+    }
+
+    private void readChart(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("result".equals(field) && token == JsonToken.START_ARRAY) {
+                // one result per requested symbol, this request only ever asks for one
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readResult(parser);
+                    while (parser.nextToken() != JsonToken.END_ARRAY) parser.skipChildren();
+                }
+            } else if ("error".equals(field) && token == JsonToken.START_OBJECT) {
+                readError(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readResult(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("timestamp".equals(field) && token == JsonToken.START_ARRAY) timestamps = readLongs(parser, 0);
+            else if ("indicators".equals(field) && token == JsonToken.START_OBJECT) readIndicators(parser);
+            else parser.skipChildren();
+        }
+    }
+
+    private void readIndicators(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                if ("quote".equals(field)) readQuote(parser);
+                else if ("adjclose".equals(field)) readAdjClose(parser);
+                else parser.skipChildren();
+                while (parser.nextToken() != JsonToken.END_ARRAY) parser.skipChildren();
+            }
+        }
+    }
+
+    private void readQuote(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "open" -> opens = readPrices(parser, ChartData.OPEN);
+                case "high" -> highs = readPrices(parser, ChartData.HIGH);
+                case "low" -> lows = readPrices(parser, ChartData.LOW);
+                case "close" -> closes = readPrices(parser, ChartData.CLOSE);
+                case "volume" -> volumes = readLongs(parser, ChartData.MISSING_VOLUME);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readAdjClose(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && "adjclose".equals(field)) adjCloses = readPrices(parser, ChartData.ADJ_CLOSE);
+            else parser.skipChildren();
+        }
+    }
+
+    private void readError(JsonParser parser) throws IOException {
+        String code = null;
+        String description = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("code".equals(field)) code = parser.getValueAsString();
+            else if ("description".equals(field)) description = parser.getValueAsString();
+            else parser.skipChildren();
+        }
+        error = code + (description == null ? "" : " - " + description);
+    }
+
+    private double[] readPrices(JsonParser parser, int price) throws IOException {
+        if (!keepDecimals) return readDoubles(parser);
+        BigDecimal[] values = new BigDecimal[256];
+        int size = 0;
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            if (token == JsonToken.VALUE_NUMBER_INT) values[size] = new BigDecimal(parser.getBigIntegerValue());
+            else if (token == JsonToken.VALUE_NUMBER_FLOAT) values[size] = BigDecimal.valueOf(parser.getDoubleValue());
+            size++;
+            parser.skipChildren();
+        }
+        decimals[price] = Arrays.copyOf(values, size);
+        double[] doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = values[i] == null ? Double.NaN : values[i].doubleValue();
+        }
+        return doubles;
+    }
+
+    private static double[] readDoubles(JsonParser parser) throws IOException {
+        double[] values = new double[256];
+        int size = 0;
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = token.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+            parser.skipChildren();
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private static long[] readLongs(JsonParser parser, long missing) throws IOException {
+        long[] values = new long[256];
+        int size = 0;
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = token.isNumeric() ? parser.getLongValue() : missing;
+            parser.skipChildren();
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Indicators which are absent, e.g. the adjusted close of intraday charts, or shorter than the
+     * timestamps are padded with missing values, so that every array has one element per bar.
+     */
+    private static double[] fit(double[] values, int size) {
+        if (values != null && values.length == size) return values;
+        double[] fitted = values == null ? new double[size] : Arrays.copyOf(values, size);
+        Arrays.fill(fitted, values == null ? 0 : Math.min(values.length, size), size, Double.NaN);
+        return fitted;
+    }
+
+    private static long[] fit(long[] values, int size) {
+        if (values != null && values.length == size) return values;
+        long[] fitted = values == null ? new long[size] : Arrays.copyOf(values, size);
+        Arrays.fill(fitted, values == null ? 0 : Math.min(values.length, size), size, ChartData.MISSING_VOLUME);
+        return fitted;
+    }
+}
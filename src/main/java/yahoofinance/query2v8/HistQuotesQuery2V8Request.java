@@ -3,27 +3,19 @@ package yahoofinance.query2v8;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.net.URL;
-import java.net.URLConnection;
-import java.net.URLEncoder;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import yahoofinance.Utils;
 import yahoofinance.YahooFinance;
 import yahoofinance.histquotes.HistoricalQuote;
 import yahoofinance.histquotes2.QueryInterval;
-import yahoofinance.util.RedirectableRequest;
+import yahoofinance.util.YahooTransport;
 
 /**
  * @author Stijn Strickx
@@ -31,7 +23,6 @@ import yahoofinance.util.RedirectableRequest;
 public class HistQuotesQuery2V8Request {
 
     private static final Logger log = LogManager.getLogger(HistQuotesQuery2V8Request.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper();
 
     private final String symbol;
     private final Calendar from;
@@ -90,82 +81,72 @@ public class HistQuotesQuery2V8Request {
         return cal;
     }
 
+    /**
+     * The prices of the quotes are the decimals of the numbers in the response, as the Jackson
+     * tree model reads them, with null for a missing price.
+     */
     public List<HistoricalQuote> getResult() throws IOException {
-        String json = getJson();
-        JsonNode resultNode = objectMapper.readTree(json).get("chart").get("result").get(0);
-        JsonNode timestamps = resultNode.get("timestamp");
-        JsonNode indicators = resultNode.get("indicators");
-        JsonNode quotes = indicators.get("quote").get(0);
-        JsonNode closes = quotes.get("close");
-        JsonNode volumes = quotes.get("volume");
-        JsonNode opens = quotes.get("open");
-        JsonNode highs = quotes.get("high");
-        JsonNode lows = quotes.get("low");
-        JsonNode adjCloses = indicators.get("adjclose").get(0).get("adjclose");
-
-        List<HistoricalQuote> result = new ArrayList<HistoricalQuote>();
-        for (int i = 0; i < timestamps.size(); i++) {
-            long timestamp = timestamps.get(i).asLong();
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTimeInMillis(timestamp * 1000);
-            BigDecimal adjClose = adjCloses.get(i).decimalValue();
-            long volume = volumes.get(i).asLong();
-            BigDecimal open = opens.get(i).decimalValue();
-            BigDecimal high = highs.get(i).decimalValue();
-            BigDecimal low = lows.get(i).decimalValue();
-            BigDecimal close = closes.get(i).decimalValue();
-
-            HistoricalQuote quote = new HistoricalQuote(
-                symbol,
-                calendar,
-                open,
-                low,
-                high,
-                close,
-                adjClose,
-                volume);
-            result.add(quote);
-        }
+        return getChart(true).toQuotes();
+    }
+
+    /**
+     * Streams the chart straight from the response into primitive arrays, without
+     * creating a {@link HistoricalQuote} per bar.
+     *
+     * @return the bars of the chart
+     * @throws IOException when the request fails or Yahoo Finance returned an error
+     */
+    public ChartData getChart() throws IOException {
+        return getChart(false);
+    }
 
-        return result;
+    private ChartData getChart(boolean keepDecimals) throws IOException {
+        if(this.from.after(this.to)) {
+            logInvalidRange();
+            return ChartData.empty(this.symbol);
+        }
+        return YahooTransport.getInstance().get(getUrl(), getParams(),
+                in -> new ChartJsonDecoder(this.symbol, keepDecimals).decode(in),
+                in -> new ChartJsonDecoder(this.symbol).decodeError(in));
     }
 
     public String getJson() throws IOException {
 
         if(this.from.after(this.to)) {
-            log.warn("Unable to retrieve historical quotes. "
-                    + "From-date should not be after to-date. From: "
-                    + this.from.getTime() + ", to: " + this.to.getTime());
+            logInvalidRange();
             return "";
         }
 
+        return YahooTransport.getInstance().get(getUrl(), getParams(), in -> {
+            BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (String line = br.readLine(); line != null; line = br.readLine()) {
+                if (builder.length() > 0) {
+                    builder.append("\n");
+                }
+                builder.append(line);
+            }
+            return builder.toString();
+        });
+    }
+
+    private void logInvalidRange() {
+        log.warn("Unable to retrieve historical quotes. "
+                + "From-date should not be after to-date. From: "
+                + this.from.getTime() + ", to: " + this.to.getTime());
+    }
+
+    private String getUrl() {
+        return YahooFinance.HISTQUOTES_QUERY2V8_BASE_URL + YahooTransport.encodePath(this.symbol);
+    }
+
+    private Map<String, String> getParams() {
         Map<String, String> params = new LinkedHashMap<String, String>();
         params.put("period1", String.valueOf(this.from.getTimeInMillis() / 1000));
         params.put("period2", String.valueOf(this.to.getTimeInMillis() / 1000));
         params.put("interval", this.interval.getTag());
         params.put("events", "div|split");
-
-        String url = YahooFinance.HISTQUOTES_QUERY2V8_BASE_URL + URLEncoder.encode(this.symbol , "UTF-8") + "?" + Utils.getURLParameters(params);
-
-        // Get CSV from Yahoo
-        log.info("Sending request: " + url);
-
-        URL request = new URL(url);
-        RedirectableRequest redirectableRequest = new RedirectableRequest(request, 5);
-        redirectableRequest.setConnectTimeout(YahooFinance.CONNECTION_TIMEOUT);
-        redirectableRequest.setReadTimeout(YahooFinance.CONNECTION_TIMEOUT);
-        URLConnection connection = redirectableRequest.openConnection();
-
-        InputStreamReader is = new InputStreamReader(connection.getInputStream());
-        BufferedReader br = new BufferedReader(is);
-        StringBuilder builder = new StringBuilder();
-        for (String line = br.readLine(); line != null; line = br.readLine()) {
-            if (builder.length() > 0) {
-                builder.append("\n");
-            }
-            builder.append(line);
-        }
-        return builder.toString();
+        return params;
     }
 
 }
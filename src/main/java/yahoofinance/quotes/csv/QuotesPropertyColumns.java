@@ -0,0 +1,31 @@
+package yahoofinance.quotes.csv;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column of every {@link QuotesProperty} in the CSV lines of a quotes request, indexed by ordinal.
+ * The table is built once per request from the properties requested at that time, so looking up
+ * a value of a parsed line doesn't have to search the property list.
+ */
+final class QuotesPropertyColumns {
+
+    private final int[] columns;
+
+    QuotesPropertyColumns(List<QuotesProperty> properties) {
+        this.columns = new int[QuotesProperty.values().length];
+        Arrays.fill(this.columns, -1);
+        // a property can be requested more than once (e.g. the symbol), the first column wins
+        for (int i = properties.size() - 1; i >= 0; i--) {
+            this.columns[properties.get(i).ordinal()] = i;
+        }
+    }
+
+    /**
+     * @param property a property
+     * @return the column of the property, -1 if it is not requested
+     */
+    int indexOf(QuotesProperty property) {
+        return this.columns[property.ordinal()];
+    }
+}
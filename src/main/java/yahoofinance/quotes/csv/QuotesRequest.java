@@ -3,8 +3,7 @@ package yahoofinance.quotes.csv;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -14,7 +13,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import yahoofinance.Utils;
 import yahoofinance.YahooFinance;
-import yahoofinance.util.RedirectableRequest;
+import yahoofinance.util.YahooTransport;
 
 /**
  *
@@ -78,33 +77,23 @@ public abstract class QuotesRequest<T> {
         params.put("f", this.getFieldsString());
         params.put("e", ".csv");
 
-        String url = YahooFinance.QUOTES_BASE_URL + "?" + Utils.getURLParameters(params);
+        return YahooTransport.getInstance().get(YahooFinance.QUOTES_BASE_URL, params, in -> {
+            BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
 
-        // Get CSV from Yahoo
-        log.info("Sending request: " + url);
+            // Parse CSV
+            for (String line = br.readLine(); line != null; line = br.readLine()) {
+                if (line.equals("Missing Symbols List.")) {
+                    log.error("The requested symbol was not recognized by Yahoo Finance");
+                } else {
+                    log.info("Parsing CSV line: " + Utils.unescape(line));
 
-        URL request = new URL(url);
-        RedirectableRequest redirectableRequest = new RedirectableRequest(request, 5);
-        redirectableRequest.setConnectTimeout(YahooFinance.CONNECTION_TIMEOUT);
-        redirectableRequest.setReadTimeout(YahooFinance.CONNECTION_TIMEOUT);
-        URLConnection connection = redirectableRequest.openConnection();
-
-        InputStreamReader is = new InputStreamReader(connection.getInputStream());
-        BufferedReader br = new BufferedReader(is);
-
-        // Parse CSV
-        for (String line = br.readLine(); line != null; line = br.readLine()) {
-            if (line.equals("Missing Symbols List.")) {
-                log.error("The requested symbol was not recognized by Yahoo Finance");
-            } else {
-                log.info("Parsing CSV line: " + Utils.unescape(line));
-
-                T data = this.parseCSVLine(line);
-                result.add(data);
+                    T data = this.parseCSVLine(line);
+                    result.add(data);
+                }
             }
-        }
 
-        return result;
+            return result;
+        });
     }
 
 }
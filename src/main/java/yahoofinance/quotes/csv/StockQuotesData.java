@@ -14,13 +14,19 @@ import yahoofinance.quotes.stock.StockStats;
 public class StockQuotesData {
     
     private final String[] data;
+    private final QuotesPropertyColumns columns;
     
     public StockQuotesData(String[] data) {
+        this(data, new QuotesPropertyColumns(StockQuotesRequest.DEFAULT_PROPERTIES));
+    }
+    
+    StockQuotesData(String[] data, QuotesPropertyColumns columns) {
         this.data = data;
+        this.columns = columns;
     }
     
     public String getValue(QuotesProperty property) {
-        int i = StockQuotesRequest.DEFAULT_PROPERTIES.indexOf(property);
+        int i = this.columns.indexOf(property);
         if(i >= 0 && i < this.data.length) {
             return this.data[i];
         }
@@ -1,5 +1,6 @@
 package yahoofinance.quotes.csv;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -99,10 +100,29 @@ public class StockQuotesRequest extends QuotesRequest<StockQuotesData> {
         DEFAULT_PROPERTIES.add(QuotesProperty.ShortRatio);
     }
     
+    private QuotesPropertyColumns columns;
+
     public StockQuotesRequest(String query) {
         super(query, StockQuotesRequest.DEFAULT_PROPERTIES);
     }
 
+    /**
+     * Builds the column table from the properties as they are now, the property list can be
+     * changed between requests.
+     */
+    @Override
+    public List<StockQuotesData> getResult() throws IOException {
+        this.columns = new QuotesPropertyColumns(this.properties);
+        return super.getResult();
+    }
+
+    private QuotesPropertyColumns getColumns() {
+        if(this.columns == null) {
+            this.columns = new QuotesPropertyColumns(this.properties);
+        }
+        return this.columns;
+    }
+
     @Override
     protected StockQuotesData parseCSVLine(String line) {
         List<String> parsedLine = new ArrayList<String>();
@@ -179,7 +199,7 @@ public class StockQuotesRequest extends QuotesRequest<StockQuotesData> {
                 pos1 = pos2;
             }
         }
-        return new StockQuotesData(parsedLine.toArray(new String[this.properties.size()]));
+        return new StockQuotesData(parsedLine.toArray(new String[this.properties.size()]), this.getColumns());
     }
 
 }
@@ -0,0 +1,48 @@
+package yahoofinance.util;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of a batch of independent requests: the results of the requests that succeeded
+ * and the failure of every request that did not. One failing request never hides the others.
+ *
+ * @param <K> key of a request, e.g. a symbol
+ * @param <T> result of a request
+ */
+public final class BatchResult<K, T> {
+
+    private final Map<K, T> results;
+    private final Map<K, Exception> failures;
+
+    BatchResult(Map<K, T> results, Map<K, Exception> failures) {
+        this.results = Collections.unmodifiableMap(results);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return the results of the successful requests, in request order
+     */
+    public Map<K, T> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the failure of each failed request, in request order
+     */
+    public Map<K, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return true if no request failed
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{results=" + results.size() + ", failures=" + failures.keySet() + "}";
+    }
+}
@@ -0,0 +1,267 @@
+package yahoofinance.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Single pass scanner for the numbers Yahoo Finance sends, e.g. {@code 187.149994},
+ * {@code -1,234.5}, {@code 2.5E-3} or {@code 1.02B}, working on a range of any {@link CharSequence}.
+ * <p>
+ * The digits are accumulated into a {@code long} mantissa and a decimal scale while scanning, so the
+ * text is never copied: no trimming, no removal of the thousands separators and no cutting off of
+ * the K/M/B suffix. The parsed number is then available as a {@code double}, as an unscaled
+ * {@code long} with a fixed number of decimals, as a {@code long} or as a {@link BigDecimal}.
+ * Only numbers with more than 18 significant digits take a slower path that copies the text.
+ * <p>
+ * The tokens Yahoo Finance uses for a missing value ({@code N/A}, {@code -}, {@code nan}, {@code null}
+ * and empty text) are not numbers. Text that is not a number is logged at debug level only, because a
+ * single response can contain thousands of them.
+ * <p>
+ * A parser keeps the state of the last parsed number and is not thread-safe. Create one per decoder
+ * or thread and reuse it for every value.
+ */
+public final class NumericParser {
+
+    private static final Logger log = LogManager.getLogger(NumericParser.class);
+
+    private static final int MAX_DIGITS = 18;
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long[] LONG_POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        LONG_POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < LONG_POWERS_OF_TEN.length; i++) {
+            LONG_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private boolean valid;
+    private long mantissa;
+    private int scale;
+    private BigDecimal large;
+
+    /**
+     * Parses the whole text.
+     *
+     * @param text the text, may be null
+     * @return true if the text is a number
+     */
+    public boolean parse(CharSequence text) {
+        return text != null && parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses a range of the text. Leading and trailing whitespace is ignored.
+     *
+     * @param text  the text
+     * @param start index of the first character
+     * @param end   index after the last character
+     * @return true if the range is a number
+     */
+    public boolean parse(CharSequence text, int start, int end) {
+        valid = false;
+        large = null;
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (isMissing(text, start, end)) return false;
+
+        int i = start;
+        boolean negative = false;
+        char c = text.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        long digits = 0;
+        int significant = 0;
+        int fraction = 0;
+        boolean sawDigit = false;
+        boolean overflow = false;
+        boolean inFraction = false;
+        for (; i < end; i++) {
+            c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sawDigit = true;
+                if (inFraction) fraction++;
+                if (digits == 0 && c == '0') continue;
+                if (significant < MAX_DIGITS) {
+                    digits = digits * 10 + (c - '0');
+                    significant++;
+                } else {
+                    overflow = true;
+                }
+            } else if (c == ',' && !inFraction) {
+                // thousands separator
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else {
+                break;
+            }
+        }
+        if (!sawDigit) return invalid(text, start, end);
+
+        int exponent = 0;
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            int exponentStart = i;
+            for (; i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+                if (exponent < 10_000) exponent = exponent * 10 + (text.charAt(i) - '0');
+            }
+            if (i == exponentStart) return invalid(text, start, end);
+            if (negativeExponent) exponent = -exponent;
+        }
+
+        int suffix = 0;
+        if (i == end - 1) {
+            switch (text.charAt(i)) {
+                case 'K' -> suffix = 3;
+                case 'M' -> suffix = 6;
+                case 'B' -> suffix = 9;
+                default -> {
+                    return invalid(text, start, end);
+                }
+            }
+            i++;
+        }
+        if (i != end) return invalid(text, start, end);
+
+        // like new BigDecimal(text).multiply(suffix): the scale is the number of decimals minus the exponent
+        if (!overflow && digits <= (Long.MAX_VALUE / LONG_POWERS_OF_TEN[suffix])) {
+            mantissa = (negative ? -digits : digits) * LONG_POWERS_OF_TEN[suffix];
+            scale = fraction - exponent;
+        } else {
+            large = parseLarge(text, start, end - (suffix > 0 ? 1 : 0), suffix);
+            if (large == null) return invalid(text, start, end);
+        }
+        valid = true;
+        return true;
+    }
+
+    /**
+     * @return true if the last parsed text was a number
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return the last parsed number, null if it was not a number
+     */
+    public BigDecimal bigDecimalValue() {
+        if (!valid) return null;
+        if (large != null) return large;
+        return BigDecimal.valueOf(mantissa, scale);
+    }
+
+    /**
+     * @return the last parsed number, {@link Double#NaN} if it was not a number
+     */
+    public double doubleValue() {
+        if (!valid) return Double.NaN;
+        if (large != null) return large.doubleValue();
+        if (Math.abs(mantissa) < MAX_EXACT_DOUBLE && scale >= -22 && scale <= 22) {
+            // both operands are exact, so the result is correctly rounded
+            return scale >= 0 ? mantissa / DOUBLE_POWERS_OF_TEN[scale] : mantissa * DOUBLE_POWERS_OF_TEN[-scale];
+        }
+        return BigDecimal.valueOf(mantissa, scale).doubleValue();
+    }
+
+    /**
+     * Returns the last parsed number as a fixed point value, e.g. 185.639999 with two decimals is 18564.
+     * Extra decimals are rounded half up.
+     *
+     * @param decimals  number of decimals of the result
+     * @param missing   returned if the text was not a number or the value does not fit in a long
+     * @return the number multiplied by 10 to the power of the decimals
+     */
+    public long unscaledValue(int decimals, long missing) {
+        return rescale(decimals, false, missing);
+    }
+
+    /**
+     * @param missing returned if the text was not a number, not a whole number or does not fit in a long
+     * @return the last parsed number
+     */
+    public long longValue(long missing) {
+        return rescale(0, true, missing);
+    }
+
+    private long rescale(int decimals, boolean exact, long missing) {
+        if (!valid) return missing;
+        if (large != null) {
+            try {
+                BigDecimal scaled = large.setScale(decimals, exact ? RoundingMode.UNNECESSARY : RoundingMode.HALF_UP);
+                return scaled.unscaledValue().longValueExact();
+            } catch (ArithmeticException e) {
+                return missing;
+            }
+        }
+        int shift = decimals - scale;
+        if (shift >= 0) {
+            if (shift > MAX_DIGITS) return mantissa == 0 ? 0 : missing;
+            long power = LONG_POWERS_OF_TEN[shift];
+            if (Math.abs(mantissa) > Long.MAX_VALUE / power) return missing;
+            return mantissa * power;
+        }
+        if (-shift > MAX_DIGITS) return exact && mantissa != 0 ? missing : 0;
+        long power = LONG_POWERS_OF_TEN[-shift];
+        long quotient = mantissa / power;
+        long remainder = mantissa % power;
+        if (remainder == 0) return quotient;
+        if (exact) return missing;
+        // half up, away from zero
+        if (Math.abs(remainder) * 2 >= power) quotient += mantissa < 0 ? -1 : 1;
+        return quotient;
+    }
+
+    private boolean invalid(CharSequence text, int start, int end) {
+        log.debug("Failed to parse: {}", text.subSequence(start, end));
+        return false;
+    }
+
+    private static boolean isMissing(CharSequence text, int start, int end) {
+        int length = end - start;
+        return length == 0
+                || (length == 1 && text.charAt(start) == '-')
+                || (length == 3 && matches(text, start, "N/A"))
+                || (length == 3 && matches(text, start, "nan"))
+                || (length == 4 && matches(text, start, "null"));
+    }
+
+    private static boolean matches(CharSequence text, int start, String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (text.charAt(start + i) != token.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Slow path for numbers with more significant digits than a long holds.
+     */
+    private static BigDecimal parseLarge(CharSequence text, int start, int end, int suffix) {
+        StringBuilder cleaned = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c != ',') cleaned.append(c);
+        }
+        try {
+            BigDecimal value = new BigDecimal(cleaned.toString());
+            return suffix == 0 ? value : value.multiply(BigDecimal.TEN.pow(suffix));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
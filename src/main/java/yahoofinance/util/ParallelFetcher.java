@@ -0,0 +1,180 @@
+package yahoofinance.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * Sends one request per key in parallel, each on its own virtual thread, with at most
+ * {@code concurrency} requests in flight at any time. The wall time of a batch is then close to
+ * the latency of its slowest requests instead of the sum of all latencies.
+ * <p>
+ * Requests are isolated from each other: a failing request is recorded in the {@link BatchResult}
+ * and all other requests still complete.
+ */
+public final class ParallelFetcher {
+
+    private static final Logger log = LogManager.getLogger(ParallelFetcher.class);
+
+    /**
+     * A single request of a batch.
+     *
+     * @param <K> key of the request
+     * @param <T> result of the request
+     */
+    public interface Fetch<K, T> {
+        T fetch(K key) throws Exception;
+    }
+
+    private ParallelFetcher() {
+    }
+
+    /**
+     * Sends the requests for all keys and waits for all of them to complete.
+     *
+     * @param keys          keys of the requests, duplicates are requested once
+     * @param concurrency   maximum number of requests in flight
+     * @param fetch         sends the request for a key
+     * @param <K>           key of a request
+     * @param <T>           result of a request
+     * @return the results and failures of all requests, in the order of the keys
+     * @throws InterruptedIOException when interrupted while waiting, all pending requests are then cancelled
+     */
+    public static <K, T> BatchResult<K, T> fetchAll(Collection<K> keys, int concurrency, Fetch<K, T> fetch)
+            throws InterruptedIOException {
+        return fetchAll(keys, concurrency, fetch, (_, _) -> {});
+    }
+
+    /**
+     * Sends the requests for all keys and waits for all of them to complete, handing every result
+     * to the listener as soon as its request completes, while the other requests are still in flight.
+     * The listener is called from the request threads, so it has to be thread-safe.
+     *
+     * @param keys          keys of the requests, duplicates are requested once
+     * @param concurrency   maximum number of requests in flight
+     * @param fetch         sends the request for a key
+     * @param listener      receives each successful result as soon as it is available
+     * @param <K>           key of a request
+     * @param <T>           result of a request
+     * @return the results and failures of all requests, in the order of the keys
+     * @throws InterruptedIOException when interrupted while waiting, all pending requests are then cancelled
+     */
+    public static <K, T> BatchResult<K, T> fetchAll(Collection<K> keys, int concurrency, Fetch<K, T> fetch,
+                                                    BiConsumer<? super K, ? super T> listener)
+            throws InterruptedIOException {
+        final Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        final Map<K, Future<T>> futures = new LinkedHashMap<>();
+        final Map<K, T> results = new LinkedHashMap<>();
+        final Map<K, Exception> failures = new LinkedHashMap<>();
+        final long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (K key : keys) {
+                if (futures.containsKey(key)) continue;
+                futures.put(key, executor.submit(() -> {
+                    permits.acquire();
+                    final T result;
+                    try {
+                        result = fetch.fetch(key);
+                    } finally {
+                        permits.release();
+                    }
+                    try {
+                        listener.accept(key, result);
+                    } catch (RuntimeException e) {
+                        // the request itself succeeded, a failing listener must not turn it into a failure
+                        log.error("Listener failed for {}", key, e);
+                    }
+                    return result;
+                }));
+            }
+            for (Map.Entry<K, Future<T>> entry : futures.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof Error error) throw error;
+                    log.warn("Request for {} failed: {}", entry.getKey(), cause.toString());
+                    failures.put(entry.getKey(), (Exception) cause);
+                } catch (InterruptedException e) {
+                    // cancel before the executor is closed, closing waits for all requests
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for " + futures.size() + " requests");
+                }
+            }
+        }
+        log.debug("{} requests completed in {} ms, {} failed", futures.size(),
+                (System.nanoTime() - start) / 1_000_000, failures.size());
+        return new BatchResult<>(results, failures);
+    }
+
+    /**
+     * Sends the requests for all keys like {@link #fetchAll(Collection, int, Fetch, BiConsumer)}, then
+     * requests the keys that failed again, up to {@code retries} times. Only the failed keys are retried,
+     * the results that were already received are kept. The first retry waits {@code retryDelayMillis},
+     * every further retry waits twice as long as the one before.
+     *
+     * @param keys              keys of the requests, duplicates are requested once
+     * @param concurrency       maximum number of requests in flight
+     * @param retries           how many times failed keys are requested again
+     * @param retryDelayMillis  wait before the first retry, in milliseconds
+     * @param fetch             sends the request for a key
+     * @param listener          receives each successful result as soon as it is available
+     * @param <K>               key of a request
+     * @param <T>               result of a request
+     * @return the results of all attempts and the failures of the last attempt
+     * @throws InterruptedIOException when interrupted while waiting, all pending requests are then cancelled
+     */
+    public static <K, T> BatchResult<K, T> fetchAll(Collection<K> keys, int concurrency, int retries,
+                                                    long retryDelayMillis, Fetch<K, T> fetch,
+                                                    BiConsumer<? super K, ? super T> listener)
+            throws InterruptedIOException {
+        final Map<K, T> results = new LinkedHashMap<>();
+        Map<K, Exception> failures = new LinkedHashMap<>();
+        Collection<K> pending = keys;
+        for (int attempt = 0; attempt <= retries && !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                final long delay = retryDelayMillis << Math.min(attempt - 1, 20);
+                log.info("Retrying {} failed requests in {} ms, attempt {}", pending.size(), delay, attempt);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry " + pending.size() + " requests");
+                }
+            }
+            final BatchResult<K, T> batch = fetchAll(pending, concurrency, fetch, listener);
+            results.putAll(batch.getResults());
+            failures = new LinkedHashMap<>(batch.getFailures());
+            pending = new ArrayList<>(failures.keySet());
+        }
+        return new BatchResult<>(results, failures);
+    }
+
+    /**
+     * Throws the first failure of the batch if every request failed, so that callers which only
+     * report partial results can still signal a batch that produced nothing at all.
+     *
+     * @param result the result of a batch
+     * @throws IOException the first failure, if there are failures but no results
+     */
+    public static void throwIfNothingSucceeded(BatchResult<?, ?> result) throws IOException {
+        if (!result.getResults().isEmpty() || result.isComplete()) return;
+        final Exception first = result.getFailures().values().iterator().next();
+        if (first instanceof IOException ioException) throw ioException;
+        throw new IOException(first);
+    }
+}
@@ -8,7 +8,10 @@ import java.util.Map;
 /**
  *
  * @author Stijn Strickx
+ * @deprecated all requests go through {@link YahooTransport}, which follows redirects itself
+ * and reuses pooled connections
  */
+@Deprecated
 public class RedirectableRequest {
 
     private URL request;
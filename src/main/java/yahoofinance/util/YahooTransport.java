@@ -0,0 +1,187 @@
+package yahoofinance.util;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.net.URIBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kr.stocksmonitor.utils.HttpTransport;
+import org.kr.stocksmonitor.yahoo.CrumbManager;
+import yahoofinance.YahooFinance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Single entry point for all Yahoo Finance requests.
+ * <p>
+ * Requests go through the shared, pooled {@link HttpTransport}, so consecutive requests for many symbols
+ * reuse the same kept-alive connections. Redirects are followed and compressed responses are decoded by the
+ * underlying client, and every request gets the response timeout configured by
+ * {@code yahoofinance.connection.timeout}.
+ * <p>
+ * The crumb and cookies of the current Yahoo session are added to every request. When Yahoo rejects the
+ * session with 401 or 403, a new session is captured and the request is sent once more.
+ */
+public final class YahooTransport {
+
+    private static final Logger log = LogManager.getLogger(YahooTransport.class);
+
+    /**
+     * How long a rejected request waits for a new session to be captured before failing
+     */
+    private static final long SESSION_REFRESH_TIMEOUT_SECONDS = 60;
+
+    private static final YahooTransport instance = new YahooTransport();
+
+    /**
+     * Reads the body of a successful response.
+     *
+     * @param <T> type of the result
+     */
+    public interface ResponseReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    private final HttpTransport transport = HttpTransport.getInstance();
+    private final CrumbManager crumbManager = CrumbManager.getInstance();
+    private final RequestConfig requestConfig = RequestConfig.custom()
+            .setResponseTimeout(Timeout.ofMilliseconds(YahooFinance.CONNECTION_TIMEOUT))
+            .build();
+
+    private YahooTransport() {
+    }
+
+    public static YahooTransport getInstance() {
+        return instance;
+    }
+
+    /**
+     * Sends a GET request and reads its response body.
+     *
+     * @param url       the url, without query parameters
+     * @param params    query parameters, in the order they are to be sent
+     * @param reader    reads the response body
+     * @param <T>       type of the result
+     * @return the result of the reader
+     * @throws IOException when there's a connection problem, Yahoo responds with an error status,
+     *                     or the reader fails
+     */
+    public <T> T get(String url, Map<String, String> params, ResponseReader<T> reader) throws IOException {
+        return get(url, params, reader, null);
+    }
+
+    /**
+     * Sends a GET request and reads its response body. The body of a 4xx response, other than a rejected
+     * session, is given to the error reader, so that the error Yahoo describes in it can be reported.
+     *
+     * @param url           the url, without query parameters
+     * @param params        query parameters, in the order they are to be sent
+     * @param reader        reads the response body
+     * @param errorReader   reads the error message from the body of a 4xx response, null if the body has
+     *                      none, or null to ignore these bodies
+     * @param <T>           type of the result
+     * @return the result of the reader
+     * @throws IOException when there's a connection problem, Yahoo responds with an error status,
+     *                     or the reader fails
+     */
+    public <T> T get(String url, Map<String, String> params, ResponseReader<T> reader,
+                     ResponseReader<String> errorReader) throws IOException {
+        try {
+            return send(url, params, reader, errorReader);
+        } catch (SessionRejectedException e) {
+            log.info("{}, retrying with a new session", e.getMessage());
+            awaitNewSession();
+            return send(url, params, reader, errorReader);
+        }
+    }
+
+    /**
+     * Encodes a symbol to be used as a path segment, e.g. {@code ^GSPC}. Unlike form encoding,
+     * a space becomes {@code %20} and not {@code +}.
+     *
+     * @param symbol the symbol
+     * @return the encoded symbol
+     */
+    public static String encodePath(String symbol) {
+        try {
+            return new URIBuilder().setPathSegments(symbol).build().getRawPath().substring(1);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol, e);
+        }
+    }
+
+    private <T> T send(String url, Map<String, String> params, ResponseReader<T> reader,
+                       ResponseReader<String> errorReader) throws IOException {
+        final HttpGet request;
+        try {
+            final URIBuilder builder = new URIBuilder(url);
+            params.forEach(builder::addParameter);
+            request = new HttpGet(builder.build());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid url: " + url, e);
+        }
+        request.setConfig(requestConfig);
+        crumbManager.prepareRequest(request);
+        log.debug("Sending request: {}", url);
+
+        return transport.execute(request, response -> {
+            final int code = response.getCode();
+            if (HttpStatus.SC_UNAUTHORIZED == code || HttpStatus.SC_FORBIDDEN == code) {
+                crumbManager.onUnauthorized();
+                throw new SessionRejectedException(code, response.getReasonPhrase());
+            }
+            final HttpEntity entity = response.getEntity();
+            if (code >= HttpStatus.SC_CLIENT_ERROR) {
+                final String message = String.format("Server returned HTTP %d %s for url: %s", code, response.getReasonPhrase(), url);
+                final String error = code < HttpStatus.SC_SERVER_ERROR ? readError(entity, errorReader, url) : null;
+                throw new IOException(null == error ? message : message + ": " + error);
+            }
+            if (null == entity)
+                throw new IOException("Empty response for url: " + url);
+            try (InputStream in = entity.getContent()) {
+                return reader.read(in);
+            }
+        });
+    }
+
+    private static String readError(HttpEntity entity, ResponseReader<String> errorReader, String url) {
+        if (null == entity || null == errorReader)
+            return null;
+        try (InputStream in = entity.getContent()) {
+            return errorReader.read(in);
+        } catch (IOException e) {
+            log.debug("Unable to read the error response for url: {}", url, e);
+            return null;
+        }
+    }
+
+    private void awaitNewSession() throws IOException {
+        try {
+            if (!crumbManager.onUnauthorized().get(SESSION_REFRESH_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                throw new IOException("Yahoo session rejected and no new session could be captured");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a new Yahoo session");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Yahoo session rejected and no new session could be captured", e);
+        }
+    }
+
+    private static final class SessionRejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        SessionRejectedException(int code, String reason) {
+            super(String.format("Yahoo rejected the session: %d %s", code, reason));
+        }
+    }
+}
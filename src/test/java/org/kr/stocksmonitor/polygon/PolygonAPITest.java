@@ -5,6 +5,7 @@ import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
 import org.kr.stocksmonitor.exceptions.RestCallException;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -97,6 +98,20 @@ class PolygonAPITest {
         }
     }
 
+    @Test
+    public void testScanNextUrl() throws RestCallException {
+        final String page = "{\"results\":[{\"ticker\":\"A\",\"next_url\":\"nested\"},{\"ticker\":\"AA\"}]," +
+                "\"status\":\"OK\",\"request_id\":\"1\",\"count\":2," +
+                "\"next_url\":\"https://api.polygon.io/v3/reference/tickers?cursor=abc\"}";
+        assertEquals("https://api.polygon.io/v3/reference/tickers?cursor=abc", PolygonAPI.scanNextUrl(page.getBytes(StandardCharsets.UTF_8)));
+
+        final String lastPage = "{\"results\":[],\"status\":\"OK\",\"count\":0}";
+        assertEquals("", PolygonAPI.scanNextUrl(lastPage.getBytes(StandardCharsets.UTF_8)));
+
+        final String error = "{\"status\":\"ERROR\",\"error\":\"Unknown API Key\"}";
+        assertThrows(RestCallException.class, () -> PolygonAPI.scanNextUrl(error.getBytes(StandardCharsets.UTF_8)));
+    }
+
 //    @Test
 //    public void testMalformedParameter() {
 //        final String malformedParameterKey = "published_utc.gte=";
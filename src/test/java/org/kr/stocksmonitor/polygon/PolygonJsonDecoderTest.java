@@ -0,0 +1,74 @@
+package org.kr.stocksmonitor.polygon;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolygonJsonDecoderTest {
+
+    private static final String TICKERS_PAGE = "{\"results\":[" +
+            "{\"ticker\":\"A\",\"name\":\"Agilent Technologies Inc.\",\"market\":\"stocks\",\"locale\":\"us\"," +
+            "\"primary_exchange\":\"XNYS\",\"type\":\"CS\",\"active\":true,\"currency_name\":\"usd\"," +
+            "\"cik\":\"0001090872\",\"composite_figi\":\"BBG000C2V3D6\",\"last_updated_utc\":\"2024-04-12T00:00:00Z\"}," +
+            "{\"ticker\":\"AA\",\"name\":\"Alcoa Corporation\",\"market\":\"stocks\",\"type\":\"CS\"," +
+            "\"branding\":{\"logo_url\":\"https://example.com/logo.svg\",\"name\":\"ignored\"}}" +
+            "],\"status\":\"OK\",\"request_id\":\"e70013d92930de90e089dc8fa098888e\",\"count\":2," +
+            "\"next_url\":\"https://api.polygon.io/v3/reference/tickers?cursor=YWN0aXZlPXRydWU\"}";
+
+    private static final String NEWS_PAGE = "{\"results\":[{" +
+            "\"id\":\"JWROKjAy6E9pTlS-53UQxlnRpisefZ0Y8QPL64w9XZQ\"," +
+            "\"publisher\":{\"name\":\"The Motley Fool\",\"homepage_url\":\"https://www.fool.com/\"}," +
+            "\"title\":\"SoundHound AI Could Have a Serious New Competitor\"," +
+            "\"author\":\"newsfeedback@fool.com (Adam Spatacco)\"," +
+            "\"published_utc\":\"2024-04-11T11:20:00Z\"," +
+            "\"article_url\":\"https://www.fool.com/investing/2024/04/11/did-openai-just-say-checkmate-to-soundhound/\"," +
+            "\"tickers\":[\"SOUN\",\"NVDA\"]," +
+            "\"image_url\":\"https://g.foolcdn.com/editorial/images/772044/gettyimages-1483293781-1.jpg\"," +
+            "\"description\":null,\"keywords\":[\"investing\"]}" +
+            "],\"status\":\"OK\",\"request_id\":\"97150a36ef1d41b14fa0c72dcf812032\",\"count\":1}";
+
+    @Test
+    void testDecodeTickersPage() throws IOException {
+        PolygonJsonDecoder.Page<Ticker> page = PolygonJsonDecoder.decodePage(
+                new ByteArrayInputStream(TICKERS_PAGE.getBytes(StandardCharsets.UTF_8)), PolygonJsonDecoder::readTicker);
+
+        assertEquals("OK", page.status());
+        assertEquals(2, page.count());
+        assertEquals("https://api.polygon.io/v3/reference/tickers?cursor=YWN0aXZlPXRydWU", page.nextUrl());
+        List<Ticker> tickers = page.results();
+        assertEquals(2, tickers.size());
+        assertEquals("A", tickers.get(0).getTicker());
+        assertEquals("Agilent Technologies Inc.", tickers.get(0).getName());
+        assertEquals("stocks", tickers.get(0).getMarket());
+        assertEquals("CS", tickers.get(0).getType());
+        assertEquals("Alcoa Corporation", tickers.get(1).getName());
+    }
+
+    @Test
+    void testDecodeNewsPage() throws IOException {
+        PolygonJsonDecoder.Page<NewsArticle> page = PolygonJsonDecoder.decodePage(
+                NEWS_PAGE.getBytes(StandardCharsets.UTF_8), PolygonJsonDecoder::readNewsArticle);
+
+        assertEquals("", page.nextUrl());
+        assertEquals(1, page.results().size());
+        NewsArticle article = page.results().getFirst();
+        assertEquals("JWROKjAy6E9pTlS-53UQxlnRpisefZ0Y8QPL64w9XZQ", article.getId());
+        assertEquals("newsfeedback@fool.com (Adam Spatacco)", article.getAuthor());
+        assertEquals("https://g.foolcdn.com/editorial/images/772044/gettyimages-1483293781-1.jpg", article.getImageUrl());
+        assertEquals("", article.getDescription());
+    }
+
+    @Test
+    void testDecodeEnvelopeSkipsResults() throws IOException {
+        PolygonJsonDecoder.Page<Void> page = PolygonJsonDecoder.decodeEnvelope(TICKERS_PAGE.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("OK", page.status());
+        assertNull(page.results());
+        assertEquals("https://api.polygon.io/v3/reference/tickers?cursor=YWN0aXZlPXRydWU", page.nextUrl());
+    }
+}
@@ -0,0 +1,66 @@
+package org.kr.stocksmonitor.polygon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickerFacetIndexTest {
+
+    private static final TickerUniverse universe = TickerUniverse.of(List.of(
+            new Ticker("SPY", "SPDR S&P 500 ETF Trust", "stocks", "ETF"),
+            new Ticker("AAPL", "Apple Inc.", "stocks", "CS"),
+            new Ticker("X:BTCUSD", "Bitcoin - United States dollar", "crypto", ""),
+            new Ticker("MSFT", "Microsoft Corporation", "stocks", "CS"),
+            new Ticker("QQQ", "Invesco QQQ Trust", "stocks", "ETF"),
+            new Ticker("X:ETHUSD", "Ethereum - United States dollar", "crypto", "")));
+
+    private static List<String> symbols(List<Ticker> tickers) {
+        return tickers.stream().map(Ticker::getTicker).toList();
+    }
+
+    @Test
+    void testSlices() {
+        TickerFacetIndex facets = new TickerFacetIndex(universe);
+
+        assertEquals(List.of("crypto", "stocks"), facets.getMarkets());
+        assertEquals(List.of("CS", "ETF"), facets.getTypes("stocks"));
+        assertEquals(List.of(""), facets.getTypes("crypto"));
+        assertEquals(4, facets.count("stocks"));
+        assertEquals(List.of("AAPL", "MSFT"), symbols(facets.slice("stocks", "CS")));
+        assertEquals(List.of("QQQ", "SPY"), symbols(facets.slice("stocks", "ETF")));
+        assertEquals(List.of("X:BTCUSD", "X:ETHUSD"), symbols(facets.slice("crypto")));
+        assertEquals(0, facets.count("fx"));
+        assertEquals(0, facets.count("stocks", "ADRC"));
+        assertThrows(IndexOutOfBoundsException.class, () -> facets.slice("stocks", "CS").get(2));
+    }
+
+    @Test
+    void testIncrementalUpdates() {
+        TickerFacetIndex facets = new TickerFacetIndex(universe);
+        List<Ticker> before = facets.slice("stocks", "CS");
+
+        facets.add(List.of(
+                new Ticker("AAPL", "Apple Inc.", "stocks", "CS"),
+                new Ticker("NVDA", "Nvidia Corp", "stocks", "CS"),
+                new Ticker("C:EURUSD", "Euro - United States Dollar", "fx", ""),
+                new Ticker("NVDA", "Nvidia Corp", "stocks", "CS")));
+
+        assertEquals(List.of("crypto", "fx", "stocks"), facets.getMarkets());
+        assertEquals(List.of("AAPL", "MSFT", "NVDA"), symbols(facets.slice("stocks", "CS")));
+        assertEquals(5, facets.count("stocks"));
+        assertEquals(1, facets.count("fx", ""));
+        // slices handed out earlier are not affected
+        assertEquals(2, before.size());
+    }
+
+    @Test
+    void testEmpty() {
+        assertTrue(TickerFacetIndex.EMPTY.getMarkets().isEmpty());
+        assertTrue(TickerFacetIndex.EMPTY.slice("stocks").isEmpty());
+        assertThrows(UnsupportedOperationException.class,
+                () -> TickerFacetIndex.EMPTY.add(List.of(new Ticker("NVDA", "Nvidia Corp", "stocks", "CS"))));
+        assertTrue(TickerFacetIndex.EMPTY.getMarkets().isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+package org.kr.stocksmonitor.polygon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickerSearchIndexTest {
+
+    private static final TickerUniverse universe = TickerUniverse.of(List.of(
+            new Ticker("AAPL", "Apple Inc.", "stocks", "CS"),
+            new Ticker("AAP", "Advance Auto Parts Inc.", "stocks", "CS"),
+            new Ticker("APLE", "Apple Hospitality REIT, Inc.", "stocks", "CS"),
+            new Ticker("PINE", "Alpine Income Property Trust", "stocks", "CS"),
+            new Ticker("MSFT", "Microsoft Corporation", "stocks", "CS"),
+            new Ticker("X:BTCUSD", "Bitcoin - United States dollar", "crypto", ""),
+            new Ticker("GBTC", "Grayscale Bitcoin Trust", "otc", "ETF")));
+
+    private final TickerSearchIndex index = new TickerSearchIndex(universe);
+
+    private static List<String> symbols(List<Ticker> tickers) {
+        return tickers.stream().map(Ticker::getTicker).toList();
+    }
+
+    @Test
+    void testShortQueryMatchesPrefixes() {
+        assertEquals(List.of("AAP", "AAPL"), symbols(index.search("aa", 10)));
+        // symbol prefixes rank before name prefixes
+        assertEquals(List.of("APLE", "AAPL"), symbols(index.search("ap", 10)));
+    }
+
+    @Test
+    void testRanking() {
+        assertEquals(List.of("AAPL", "APLE"), symbols(index.search("apple", 10)));
+        // exact symbol first, then symbol prefix
+        assertEquals(List.of("AAP", "AAPL"), symbols(index.search("AAP", 10)));
+        // name prefix before a word inside the name
+        assertEquals(List.of("X:BTCUSD", "GBTC"), symbols(index.search("bitcoin", 10)));
+        assertEquals(List.of("PINE"), symbols(index.search("pine", 10)));
+    }
+
+    @Test
+    void testLimitAndFilter() {
+        assertEquals(1, index.search("a", 1).size());
+        int crypto = universe.marketIdOf("crypto");
+        assertEquals(List.of("X:BTCUSD"), symbols(index.search("btc", 10, i -> universe.getMarketId(i) == crypto)));
+        assertTrue(index.search("zzz", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+}
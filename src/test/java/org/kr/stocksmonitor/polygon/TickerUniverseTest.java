@@ -0,0 +1,68 @@
+package org.kr.stocksmonitor.polygon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickerUniverseTest {
+
+    private static TickerUniverse sampleUniverse() {
+        return TickerUniverse.of(List.of(
+                new Ticker("SPY", "SPDR S&P 500 ETF Trust", "stocks", "ETF"),
+                new Ticker("AAPL", "Apple Inc.", "stocks", "CS"),
+                new Ticker("X:BTCUSD", "Bitcoin - United States dollar", "crypto", ""),
+                new Ticker("NESN", "Nestlé S.A.", "otc", "ADRC"),
+                new Ticker("AAPL", "duplicate", "stocks", "CS"),
+                new Ticker("A", "Agilent Technologies Inc.", "stocks", "CS")));
+    }
+
+    @Test
+    void testSortedAndDeduplicated() {
+        TickerUniverse universe = sampleUniverse();
+
+        assertEquals(5, universe.size());
+        assertEquals(List.of("A", "AAPL", "NESN", "SPY", "X:BTCUSD"),
+                universe.stream().map(Ticker::getTicker).toList());
+        assertEquals("Apple Inc.", universe.get(1).getName());
+    }
+
+    @Test
+    void testLookup() {
+        TickerUniverse universe = sampleUniverse();
+
+        assertEquals(2, universe.indexOf("NESN"));
+        assertTrue(universe.indexOf("MSFT") < 0);
+        assertTrue(universe.indexOf("") < 0);
+        assertTrue(universe.contains(new Ticker("SPY")));
+        assertFalse(universe.contains(new Ticker("QQQ")));
+
+        Ticker nesn = universe.find("NESN").orElseThrow();
+        assertEquals("Nestlé S.A.", nesn.getName());
+        assertEquals("otc", nesn.getMarket());
+        assertEquals("ADRC", nesn.getType());
+        assertTrue(universe.find("MSFT").isEmpty());
+    }
+
+    @Test
+    void testDictionaries() {
+        TickerUniverse universe = sampleUniverse();
+
+        assertEquals(3, universe.getMarkets().size());
+        int stocks = universe.marketIdOf("stocks");
+        assertEquals(3, universe.stream().filter(t -> t.getMarket().equals("stocks")).count());
+        assertEquals(stocks, universe.getMarketId(universe.indexOf("SPY")));
+        assertEquals(-1, universe.marketIdOf("fx"));
+        // market and type instances are shared across all tickers
+        assertSame(universe.get(0).getMarket(), universe.get(1).getMarket());
+        assertSame(universe.get(0).getType(), universe.get(1).getType());
+    }
+
+    @Test
+    void testEmpty() {
+        assertTrue(TickerUniverse.EMPTY.isEmpty());
+        assertTrue(TickerUniverse.EMPTY.indexOf("A") < 0);
+        assertTrue(TickerUniverse.EMPTY.getMarkets().isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+package org.kr.stocksmonitor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kr.stocksmonitor.polygon.Ticker;
+import org.kr.stocksmonitor.polygon.TickerUniverse;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUtilsTest {
+
+    @TempDir
+    Path dir;
+
+    private static Set<Ticker> sampleTickers() {
+        Set<Ticker> tickers = new HashSet<>();
+        tickers.add(new Ticker("AAPL", "Apple Inc.", "stocks", "CS"));
+        tickers.add(new Ticker("X:BTCUSD", "Bitcoin - United States dollar", "crypto", ""));
+        tickers.add(new Ticker("NESN", "Nestlé S.A. – Namensaktien", "stocks", "ADRC"));
+        tickers.add(new Ticker("SPY", "", "stocks", "ETF"));
+        return tickers;
+    }
+
+    @Test
+    void testRoundTrip() throws IOException, ClassNotFoundException {
+        Path file = dir.resolve("tickers.dat");
+        Set<Ticker> tickers = sampleTickers();
+
+        FileUtils.writeTickers(file, tickers);
+        TickerUniverse loaded = FileUtils.readTickers(file);
+
+        assertEquals(tickers, new HashSet<>(loaded));
+        for (Ticker ticker : tickers) {
+            Ticker other = loaded.stream().filter(ticker::equals).findFirst().orElseThrow();
+            assertEquals(ticker.getName(), other.getName());
+            assertEquals(ticker.getMarket(), other.getMarket());
+            assertEquals(ticker.getType(), other.getType());
+        }
+        assertFalse(Files.exists(dir.resolve("tickers.dat.tmp")));
+    }
+
+    @Test
+    void testRoundTripEmpty() throws IOException, ClassNotFoundException {
+        Path file = dir.resolve("tickers.dat");
+        FileUtils.writeTickers(file, Set.of());
+        assertTrue(FileUtils.readTickers(file).isEmpty());
+    }
+
+    @Test
+    void testReadsLegacySerializedFile() throws IOException, ClassNotFoundException {
+        Path file = dir.resolve("tickers.dat");
+        Set<Ticker> tickers = sampleTickers();
+        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(file))) {
+            oos.writeObject(tickers);
+        }
+
+        assertEquals(tickers, new HashSet<>(FileUtils.readTickers(file)));
+    }
+
+    @Test
+    void testRejectsTruncatedFile() throws IOException {
+        Path file = dir.resolve("tickers.dat");
+        FileUtils.writeTickers(file, sampleTickers());
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 5));
+
+        assertThrows(StreamCorruptedException.class, () -> FileUtils.readTickers(file));
+    }
+}
@@ -0,0 +1,82 @@
+package org.kr.stocksmonitor.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final Duration PERIOD = Duration.ofMillis(300);
+
+    @Test
+    void testInteractiveCallsJumpAheadOfBulk() throws Exception {
+        final RateLimiter limiter = new RateLimiter(Map.of(), 1, PERIOD);
+        final CompletableFuture<Void> first = limiter.acquire(RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.BULK);
+        assertTrue(first.isDone());
+
+        final CompletableFuture<Void> bulk = limiter.acquire(RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.BULK);
+        final CompletableFuture<Void> interactive = limiter.acquire(RateLimiter.EndpointClass.NEWS, RateLimiter.Priority.INTERACTIVE);
+        assertFalse(bulk.isDone());
+        assertFalse(interactive.isDone());
+        assertEquals(2, limiter.getQueueDepth());
+
+        interactive.get(2, TimeUnit.SECONDS);
+        assertFalse(bulk.isDone());
+        bulk.get(2, TimeUnit.SECONDS);
+        assertEquals(0, limiter.getQueueDepth());
+        assertTrue(limiter.getMaxWaitMillis(RateLimiter.EndpointClass.REFERENCE) > 0);
+    }
+
+    @Test
+    void testEndpointClassBudgetsAreSeparate() {
+        final RateLimiter limiter = new RateLimiter(Map.of(RateLimiter.EndpointClass.NEWS, 1), 10, PERIOD);
+        assertTrue(limiter.acquire(RateLimiter.EndpointClass.NEWS, RateLimiter.Priority.INTERACTIVE).isDone());
+        assertFalse(limiter.acquire(RateLimiter.EndpointClass.NEWS, RateLimiter.Priority.INTERACTIVE).isDone());
+        assertTrue(limiter.acquire(RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.BULK).isDone());
+        assertEquals(1, limiter.getQueueDepth(RateLimiter.EndpointClass.NEWS));
+    }
+
+    @Test
+    void testCancelledWaiterLeavesTheQueue() {
+        final RateLimiter limiter = new RateLimiter(Map.of(), 1, Duration.ofMinutes(1));
+        limiter.acquire(RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.BULK);
+        final CompletableFuture<Void> waiting = limiter.acquire(RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.BULK);
+        assertEquals(1, limiter.getQueueDepth());
+        waiting.cancel(false);
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    void testNoWindowGetsMoreThanTheBudget() throws Exception {
+        final int budget = 3;
+        final RateLimiter limiter = new RateLimiter(Map.of(), budget, PERIOD);
+        final List<Long> grantedAt = Collections.synchronizedList(new ArrayList<>());
+        final List<CompletableFuture<Void>> permits = new ArrayList<>();
+        for (int i = 0; i < budget; i++)
+            permits.add(limiter.acquire(RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.BULK)
+                    .thenRun(() -> grantedAt.add(System.nanoTime())));
+        // a bucket refilled by now would let the next calls through within the same period
+        Thread.sleep(PERIOD.toMillis() / 2);
+        for (int i = 0; i < 2 * budget; i++)
+            permits.add(limiter.acquire(RateLimiter.EndpointClass.REFERENCE, RateLimiter.Priority.BULK)
+                    .thenRun(() -> grantedAt.add(System.nanoTime())));
+        CompletableFuture.allOf(permits.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        final List<Long> sorted = new ArrayList<>(grantedAt);
+        Collections.sort(sorted);
+        // the futures complete a little after their grant, allow for that
+        final long window = PERIOD.toNanos() - TimeUnit.MILLISECONDS.toNanos(50);
+        for (int i = budget; i < sorted.size(); i++)
+            assertTrue(sorted.get(i) - sorted.get(i - budget) >= window,
+                    "permit " + i + " granted " + TimeUnit.NANOSECONDS.toMillis(sorted.get(i) - sorted.get(i - budget))
+                            + " ms after permit " + (i - budget));
+    }
+}
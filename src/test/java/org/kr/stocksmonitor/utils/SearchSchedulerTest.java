@@ -0,0 +1,64 @@
+package org.kr.stocksmonitor.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchSchedulerTest {
+
+    @Test
+    void testOnlyLatestResultIsPublished() throws InterruptedException {
+        List<String> published = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        SearchScheduler<String, String> scheduler = new SearchScheduler<>(query -> {
+            if (query.equals("slow")) Thread.sleep(2_000);
+            return query.toUpperCase();
+        }, result -> {
+            published.add(result);
+            done.countDown();
+        }, Runnable::run);
+
+        scheduler.submit("slow");
+        scheduler.submit("fast");
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(List.of("FAST"), published);
+    }
+
+    @Test
+    void testDebounceCoalescesKeystrokes() throws InterruptedException {
+        List<String> searched = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        SearchScheduler<String, String> scheduler = new SearchScheduler<>(query -> {
+            searched.add(query);
+            return query;
+        }, _ -> done.countDown(), Runnable::run, Duration.ofMillis(200));
+
+        scheduler.submit("a");
+        scheduler.submit("ap");
+        scheduler.submit("app");
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("app"), searched);
+    }
+
+    @Test
+    void testCancelDropsPendingQuery() throws InterruptedException {
+        List<String> published = new CopyOnWriteArrayList<>();
+        SearchScheduler<String, String> scheduler = new SearchScheduler<>(query -> query, published::add,
+                Runnable::run, Duration.ofMillis(100));
+
+        scheduler.submit("a");
+        scheduler.cancel();
+
+        Thread.sleep(300);
+        assertTrue(published.isEmpty());
+    }
+}
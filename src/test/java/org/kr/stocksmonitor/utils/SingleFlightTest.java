@@ -0,0 +1,140 @@
+package org.kr.stocksmonitor.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallsShareOneLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> first = executor.submit(() -> flight.call("aapl", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "Apple";
+            }));
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+            List<Future<String>> others = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                others.add(executor.submit(() -> flight.call("aapl", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("Apple", first.get(1, TimeUnit.SECONDS));
+            for (Future<String> other : others)
+                assertEquals("Apple", other.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void testFailureIsSharedAndNotRemembered() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> first = executor.submit(() -> flight.call("x", () -> {
+                started.countDown();
+                release.await();
+                throw new IOException("boom");
+            }));
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+            Future<String> second = executor.submit(() -> flight.<IOException>call("x", () -> "unused"));
+            Thread.sleep(100);
+            release.countDown();
+
+            ExecutionException e1 = assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+            ExecutionException e2 = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e1.getCause());
+            assertSame(e1.getCause(), e2.getCause());
+        }
+        assertEquals("ok", flight.call("x", () -> "ok"));
+    }
+
+    @Test
+    void testAsyncCallersShareOneCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return source;
+        });
+        CompletableFuture<String> second = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        assertNotSame(first, second);
+        assertEquals(1, flight.inFlight());
+
+        source.complete("v");
+        assertEquals("v", first.join());
+        assertEquals("v", second.join());
+        assertEquals(1, calls.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void testCancellingOneCallerKeepsTheSharedCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.execute("k", () -> source);
+        CompletableFuture<String> second = flight.execute("k", CompletableFuture::new);
+
+        first.cancel(true);
+        assertFalse(source.isCancelled());
+
+        source.complete("v");
+        assertEquals("v", second.join());
+        assertTrue(first.isCancelled());
+    }
+
+    @Test
+    void testCancellingAllCallersCancelsTheCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.execute("k", () -> source);
+        CompletableFuture<String> second = flight.execute("k", CompletableFuture::new);
+        first.cancel(true);
+        second.cancel(true);
+
+        assertTrue(source.isCancelled());
+        assertEquals(0, flight.inFlight());
+
+        CompletableFuture<String> fresh = new CompletableFuture<>();
+        CompletableFuture<String> third = flight.execute("k", () -> fresh);
+        fresh.complete("again");
+        assertEquals("again", third.join());
+    }
+
+    @Test
+    void testDifferentKeysDoNotShare() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> a = flight.execute("a", () -> CompletableFuture.completedFuture("A"));
+        CompletableFuture<String> b = flight.execute("b", () -> CompletableFuture.completedFuture("B"));
+        assertEquals("A", a.join());
+        assertEquals("B", b.join());
+        assertEquals(0, flight.inFlight());
+    }
+}
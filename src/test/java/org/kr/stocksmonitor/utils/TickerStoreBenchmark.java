@@ -0,0 +1,87 @@
+package org.kr.stocksmonitor.utils;
+
+import org.kr.stocksmonitor.polygon.Ticker;
+import org.kr.stocksmonitor.polygon.TickerUniverse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary ticker store of {@link FileUtils} with the ObjectOutputStream serialization it replaced,
+ * for a universe of the size Polygon returns. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=TickerStoreBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickerStoreBenchmark {
+
+    @Param("100000")
+    public int tickers;
+
+    private Set<Ticker> universe;
+    private Path dir;
+    private Path binaryFile;
+    private Path serializedFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        final String[] markets = {"stocks", "crypto", "fx", "otc", "indices"};
+        final String[] types = {"CS", "ETF", "ADRC", "PFD", "WARRANT", "FUND", ""};
+        universe = new HashSet<>();
+        for (int i = 0; i < tickers; i++)
+            universe.add(new Ticker("T" + Integer.toString(i, 36).toUpperCase(), "Ticker number " + i + " Inc.",
+                    markets[i % markets.length], types[i % types.length]));
+
+        dir = Files.createTempDirectory("ticker-store");
+        binaryFile = dir.resolve("tickers.dat");
+        serializedFile = dir.resolve("tickers.ser");
+        FileUtils.writeTickers(binaryFile, universe);
+        writeSerialized(serializedFile, universe);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList())
+                Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public TickerUniverse readBinary() throws IOException, ClassNotFoundException {
+        return FileUtils.readTickers(binaryFile);
+    }
+
+    @Benchmark
+    public Object readSerialized() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(serializedFile)))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public void writeBinary() throws IOException {
+        FileUtils.writeTickers(dir.resolve("write.dat"), universe);
+    }
+
+    @Benchmark
+    public void writeSerialized() throws IOException {
+        writeSerialized(dir.resolve("write.ser"), universe);
+    }
+
+    private static void writeSerialized(Path file, Set<Ticker> tickers) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeObject(tickers);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.kr.stocksmonitor.utils;
+
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private TtlCache<String, String> cache(int maxEntries, long maxWeight) {
+        return new TtlCache<>(maxEntries, maxWeight, Duration.ofSeconds(10), (_, value) -> value.length(), now::get);
+    }
+
+    @Test
+    void testHitsAndMisses() {
+        TtlCache<String, String> cache = cache(10, 100);
+        assertNull(cache.get("a"));
+        cache.put("a", "alpha");
+        assertEquals("alpha", cache.get("a"));
+        assertEquals("alpha", cache.get("a"));
+
+        TtlCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(2.0 / 3, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    void testExpiry() {
+        TtlCache<String, String> cache = cache(10, 100);
+        cache.put("a", "alpha");
+        cache.put("b", "beta", Duration.ofSeconds(30));
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertNull(cache.get("a"));
+        assertEquals("beta", cache.get("b"));
+        assertEquals(1, cache.getStats().expirations());
+        assertEquals(1, cache.size());
+        assertEquals(4, cache.weight());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedByCount() {
+        TtlCache<String, String> cache = cache(2, 100);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.getStats().evictions());
+    }
+
+    @Test
+    void testEvictsByWeight() {
+        TtlCache<String, String> cache = cache(100, 10);
+        cache.put("a", "12345");
+        cache.put("b", "12345");
+        cache.put("c", "123");
+
+        assertNull(cache.get("a"));
+        assertEquals(8, cache.weight());
+        // heavier than the whole cache, not stored at all
+        cache.put("d", "12345678901");
+        assertNull(cache.get("d"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testReplaceUpdatesWeight() {
+        TtlCache<String, String> cache = cache(10, 100);
+        cache.put("a", "12345");
+        cache.put("a", "12");
+        assertEquals(2, cache.weight());
+        cache.invalidate("a");
+        assertEquals(0, cache.weight());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void testRequestKey() {
+        RequestKey a = RequestKey.of("https://query1.finance.yahoo.com/v1/finance/search",
+                new BasicNameValuePair("q", "STOXX"), new BasicNameValuePair("lang", "de-de"));
+        RequestKey b = RequestKey.of("https://query1.finance.yahoo.com/v1/finance/search",
+                new BasicNameValuePair("q", "STOXX"), new BasicNameValuePair("lang", "de-de"));
+        RequestKey c = RequestKey.of("https://query1.finance.yahoo.com/v1/finance/search",
+                new BasicNameValuePair("q", "STOXX"), new BasicNameValuePair("lang", null));
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, c);
+    }
+}
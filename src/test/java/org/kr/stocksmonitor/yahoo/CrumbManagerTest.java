@@ -1,14 +1,25 @@
 package org.kr.stocksmonitor.yahoo;
 
+import org.apache.hc.client5.http.cookie.Cookie;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.cookie.BasicClientCookie;
 import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,4 +51,86 @@ class CrumbManagerTest {
             });
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSessionRoundTrip(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("session.json");
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        BasicClientCookie a3 = new BasicClientCookie("A3", "d=AQABBA");
+        a3.setDomain(".yahoo.com");
+        a3.setPath("/");
+        a3.setExpiryDate(now.plus(Duration.ofDays(365)));
+        BasicClientCookie gucs = new BasicClientCookie("GUCS", "ARxe");
+        gucs.setDomain(".yahoo.com");
+        gucs.setPath("/");
+
+        CrumbManager.writeSession(file, new CrumbManager.Session("abc.DEF", List.of(a3, gucs), now, now.plus(Duration.ofDays(7))));
+        CrumbManager.Session read = CrumbManager.readSession(file);
+
+        assertNotNull(read);
+        assertEquals("abc.DEF", read.crumb());
+        assertEquals(now, read.capturedAt());
+        assertEquals(now.plus(Duration.ofDays(7)), read.expiresAt());
+        assertEquals(2, read.cookies().size());
+        Cookie first = read.cookies().get(0);
+        assertEquals("A3", first.getName());
+        assertEquals("d=AQABBA", first.getValue());
+        assertEquals(".yahoo.com", first.getDomain());
+        assertEquals(a3.getExpiryInstant(), first.getExpiryInstant());
+        assertNull(read.cookies().get(1).getExpiryInstant());
+    }
+
+    @Test
+    public void testMissingSessionFile(@TempDir Path dir) throws IOException {
+        assertNull(CrumbManager.readSession(dir.resolve("none.json")));
+    }
+
+    @Test
+    public void testSessionExpiry() {
+        Instant now = Instant.now();
+        assertTrue(new CrumbManager.Session("crumb", List.of(), now, now.plusSeconds(60)).isValid(now));
+        assertFalse(new CrumbManager.Session("crumb", List.of(), now, now.minusSeconds(1)).isValid(now));
+        assertFalse(new CrumbManager.Session("", List.of(), now, now.plusSeconds(60)).isValid(now));
+    }
+
+    @Test
+    public void testPersistedSessionIsUsedWithoutCapturing(@TempDir Path dir) throws URISyntaxException {
+        Path file = dir.resolve("session.json");
+        Instant now = Instant.now();
+        BasicClientCookie a3 = new BasicClientCookie("A3", "token");
+        a3.setDomain(".yahoo.com");
+        CrumbManager.writeSession(file, new CrumbManager.Session("persisted", List.of(a3), now, now.plus(Duration.ofDays(1))));
+
+        CrumbManager crumbManager = new CrumbManager(file);
+        assertTrue(crumbManager.isInstantiated());
+        ClassicHttpRequest httpGet = ClassicRequestBuilder.get(AAPL_SYMBOL_URL).build();
+        crumbManager.prepareRequest(httpGet);
+
+        assertTrue(httpGet.getUri().getQuery().contains("crumb=persisted"));
+        Header cookie = httpGet.getFirstHeader("Cookie");
+        assertNotNull(cookie);
+        assertEquals("A3=token; Domain=.yahoo.com", cookie.getValue());
+    }
+
+    @Test
+    public void testFailedCaptureIsNotRetriedImmediately(@TempDir Path dir) throws URISyntaxException {
+        AtomicInteger captures = new AtomicInteger();
+        CrumbManager crumbManager = new CrumbManager(dir.resolve("session.json")) {
+            @Override
+            Session capture() throws IOException {
+                captures.incrementAndGet();
+                throw new IOException("button 'Accept Cookies' is not found");
+            }
+        };
+
+        assertFalse(crumbManager.isInstantiated());
+        assertFalse(crumbManager.isInstantiated());
+        ClassicHttpRequest httpGet = ClassicRequestBuilder.get(AAPL_SYMBOL_URL).build();
+        crumbManager.prepareRequest(httpGet);
+        assertFalse(crumbManager.onUnauthorized().join());
+
+        assertEquals(1, captures.get());
+        assertFalse(httpGet.getUri().getQuery().contains("crumb="));
+        assertNull(httpGet.getFirstHeader("Cookie"));
+    }
+}
@@ -0,0 +1,83 @@
+package yahoofinance;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UtilsTest {
+
+    @Test
+    void testChunk() {
+        String[] symbols = {"AAPL", " MSFT ", "", null, "GOOG", "AAPL", "  ", "TSLA", "MSFT", "IBM"};
+        assertEquals(List.of(List.of("AAPL", "MSFT"), List.of("GOOG", "TSLA"), List.of("IBM")), Utils.chunk(symbols, 2));
+        assertEquals(List.of(List.of("AAPL", "MSFT", "GOOG", "TSLA", "IBM")), Utils.chunk(symbols, 50));
+        assertEquals(5, Utils.chunk(symbols, 0).size());
+        assertTrue(Utils.chunk(new String[]{"", null}, 50).isEmpty());
+    }
+
+    @Test
+    void testParseLocalDate() {
+        assertEquals(LocalDate.of(2024, 2, 29), Utils.parseLocalDate("2024-02-29", 0, 10));
+        assertEquals(LocalDate.of(2024, 3, 5), Utils.parseLocalDate("x,2024-03-05,y", 2, 12));
+        assertEquals(LocalDate.of(2024, 3, 5), Utils.parseLocalDate("2024-3-5", 0, 8));
+        assertNull(Utils.parseLocalDate("2023-02-29", 0, 10));
+        assertNull(Utils.parseLocalDate("null", 0, 4));
+    }
+
+    @Test
+    void testParseHistDateMatchesSimpleDateFormat() throws ParseException {
+        Calendar expected = Calendar.getInstance();
+        expected.setTime(new SimpleDateFormat("yyyy-MM-dd", Locale.US).parse("2024-01-02"));
+
+        Calendar parsed = Utils.parseHistDate("2024-01-02");
+        assertEquals(expected.getTimeInMillis(), parsed.getTimeInMillis());
+        assertEquals(0, parsed.get(Calendar.HOUR_OF_DAY));
+        assertNull(Utils.parseHistDate("N/A"));
+        assertNull(Utils.parseHistDate("2024-13-01"));
+    }
+
+    @Test
+    void testParseDateTime() throws ParseException {
+        TimeZone newYork = TimeZone.getTimeZone("America/New_York");
+        SimpleDateFormat format = new SimpleDateFormat("M/d/yyyy h:mma", Locale.US);
+        format.setTimeZone(newYork);
+
+        Calendar parsed = Utils.parseDateTime("3/15/2024", "4:00pm", newYork);
+        assertEquals(format.parse("3/15/2024 4:00pm").getTime(), parsed.getTimeInMillis());
+        assertNull(Utils.parseDateTime("N/A", "4:00pm", newYork));
+        assertNull(Utils.parseDateTime("3/15/2024", "later", newYork));
+    }
+
+    @Test
+    void testParseDividendDate() throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone(YahooFinance.TIMEZONE));
+
+        assertEquals(format.parse("2024-02-05").getTime(), Utils.parseDividendDate("05-Feb-24").getTimeInMillis());
+        assertEquals(format.parse("2024-02-05").getTime(), Utils.parseDividendDate("5-FEB-24").getTimeInMillis());
+        assertEquals(format.parse("2024-03-15").getTime(), Utils.parseDividendDate("3/15/24").getTimeInMillis());
+        assertEquals(YahooFinance.TIMEZONE, Utils.parseDividendDate("3/15/24").getTimeZone().getID());
+
+        Calendar monthDay = Utils.parseDividendDate("Feb  5");
+        assertEquals(Calendar.FEBRUARY, monthDay.get(Calendar.MONTH));
+        assertEquals(5, monthDay.get(Calendar.DAY_OF_MONTH));
+        int thisYear = Calendar.getInstance(TimeZone.getTimeZone(YahooFinance.TIMEZONE)).get(Calendar.YEAR);
+        assertTrue(Math.abs(monthDay.get(Calendar.YEAR) - thisYear) <= 1);
+
+        assertNull(Utils.parseDividendDate("N/A"));
+        assertNull(Utils.parseDividendDate("soon"));
+    }
+
+    @Test
+    void testUnixToCalendar() {
+        assertEquals(1704205800_000L, Utils.unixToCalendar(1704205800L).getTimeInMillis());
+    }
+}
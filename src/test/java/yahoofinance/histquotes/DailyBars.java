@@ -0,0 +1,103 @@
+package yahoofinance.histquotes;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic daily bars for tests, one bar per day at the market open in New York like the bars
+ * of the v8 chart. The prices of every bar are set by a {@link Filler}.
+ */
+public final class DailyBars {
+
+    public static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    /**
+     * The values of one bar, the adjusted close is the close unless it is set.
+     */
+    public static final class Bar {
+        public double open;
+        public double high;
+        public double low;
+        public double close;
+        public double adjClose = Double.NaN;
+        public long volume;
+    }
+
+    public interface Filler {
+        void fill(int index, LocalDate day, Bar bar);
+    }
+
+    private DailyBars() {
+    }
+
+    /**
+     * @return the calendar days from {@code from} until the day before {@code to}
+     */
+    public static List<LocalDate> days(LocalDate from, LocalDate to) {
+        List<LocalDate> days = new ArrayList<LocalDate>();
+        for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+            days.add(day);
+        }
+        return days;
+    }
+
+    /**
+     * @return the weekdays from {@code from} until the day before {@code to}
+     */
+    public static List<LocalDate> weekdays(LocalDate from, LocalDate to) {
+        List<LocalDate> days = new ArrayList<LocalDate>();
+        for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+            if (day.getDayOfWeek().getValue() <= 5) days.add(day);
+        }
+        return days;
+    }
+
+    /**
+     * @return the first {@code n} weekdays on or after {@code from}
+     */
+    public static List<LocalDate> weekdays(LocalDate from, int n) {
+        List<LocalDate> days = new ArrayList<LocalDate>(n);
+        for (LocalDate day = from; days.size() < n; day = day.plusDays(1)) {
+            if (day.getDayOfWeek().getValue() <= 5) days.add(day);
+        }
+        return days;
+    }
+
+    /**
+     * @return the market open of a day, in milliseconds since the epoch
+     */
+    public static long marketOpen(LocalDate day) {
+        return day.atTime(9, 30).atZone(NEW_YORK).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @param days      the day of every bar, in chronological order
+     * @param filler    sets the values of every bar
+     * @return a series of AAPL with one bar per day
+     */
+    public static PriceSeries bars(List<LocalDate> days, Filler filler) {
+        int n = days.size();
+        long[] epochMillis = new long[n];
+        double[] open = new double[n];
+        double[] high = new double[n];
+        double[] low = new double[n];
+        double[] close = new double[n];
+        double[] adjClose = new double[n];
+        long[] volume = new long[n];
+        for (int i = 0; i < n; i++) {
+            LocalDate day = days.get(i);
+            Bar bar = new Bar();
+            filler.fill(i, day, bar);
+            epochMillis[i] = marketOpen(day);
+            open[i] = bar.open;
+            high[i] = bar.high;
+            low[i] = bar.low;
+            close[i] = bar.close;
+            adjClose[i] = Double.isNaN(bar.adjClose) ? bar.close : bar.adjClose;
+            volume[i] = bar.volume;
+        }
+        return new PriceSeries("AAPL", epochMillis, open, high, low, close, adjClose, volume);
+    }
+}
@@ -0,0 +1,109 @@
+package yahoofinance.histquotes;
+
+import org.junit.jupiter.api.Test;
+import yahoofinance.Utils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceSeriesTest {
+
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    void testSliceSharesArrays() {
+        PriceSeries series = series(10);
+        PriceSeries slice = series.slice(2, 5);
+
+        assertEquals(3, slice.size());
+        assertEquals(2, slice.getOffset());
+        assertSame(series.getCloseArray(), slice.getCloseArray());
+        assertEquals(series.getEpochMillis(2), slice.getEpochMillis(0));
+        assertEquals(4.5, slice.getClose(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.getClose(3));
+
+        PriceSeries nested = slice.slice(1, 3);
+        assertEquals(3, nested.getOffset());
+        assertEquals(3.5, nested.getClose(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.slice(1, 4));
+    }
+
+    @Test
+    void testRange() {
+        PriceSeries series = series(10);
+
+        PriceSeries range = series.range(series.getEpochMillis(3), series.getEpochMillis(6));
+        assertEquals(3, range.size());
+        assertEquals(series.getEpochMillis(3), range.getEpochMillis(0));
+
+        PriceSeries between = series.range(series.getEpochMillis(3) + 1, series.getEpochMillis(5) + 1);
+        assertEquals(2, between.size());
+        assertEquals(series.getEpochMillis(4), between.getEpochMillis(0));
+
+        assertTrue(series.range(series.getEpochMillis(9) + 1, series.getEpochMillis(9) + 10 * DAY).isEmpty());
+        assertTrue(series.range(series.getEpochMillis(5), series.getEpochMillis(2)).isEmpty());
+        assertEquals(1, range.range(series.getEpochMillis(4), series.getEpochMillis(5)).size());
+    }
+
+    @Test
+    void testQuoteConversion() {
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(DAY);
+        List<HistoricalQuote> quotes = List.of(
+                new HistoricalQuote("AAPL", date, new BigDecimal("1.5"), new BigDecimal("1.25"),
+                        new BigDecimal("2.0"), new BigDecimal("1.75"), null, 1000L),
+                new HistoricalQuote("AAPL", date, null, null, null, null, null, null));
+
+        PriceSeries series = PriceSeries.fromQuotes("AAPL", quotes);
+        assertEquals(2, series.size());
+        assertEquals(1.25, series.getLow(0));
+        assertTrue(Double.isNaN(series.getAdjClose(0)));
+        assertEquals(PriceSeries.MISSING_VOLUME, series.getVolume(1));
+
+        List<HistoricalQuote> back = series.toQuotes();
+        assertEquals(DAY, back.get(0).getDate().getTimeInMillis());
+        assertEquals(0, new BigDecimal("1.75").compareTo(back.get(0).getClose()));
+        assertNull(back.get(0).getAdjClose());
+        assertEquals(1000L, back.get(0).getVolume());
+        assertNull(back.get(1).getOpen());
+        assertNull(back.get(1).getVolume());
+    }
+
+    @Test
+    void testAtStartOfDay() {
+        long open = DailyBars.marketOpen(LocalDate.of(2024, 5, 6));
+        // 19:00 in New York is already the next day in UTC
+        long evening = LocalDate.of(2024, 5, 7).atTime(19, 0).atZone(DailyBars.NEW_YORK).toInstant().toEpochMilli();
+        PriceSeries series = new PriceSeries("AAPL", new long[]{0, open, evening}, new double[]{1, 2, 3},
+                new double[]{1, 2, 3}, new double[]{1, 2, 3}, new double[]{1, 2, 3}, new double[]{1, 2, 3},
+                new long[]{1, 2, 3}).slice(1, 3);
+
+        PriceSeries days = series.atStartOfDay(DailyBars.NEW_YORK);
+        assertEquals(2, days.size());
+        assertEquals(Utils.toCalendar(LocalDate.of(2024, 5, 6)).getTimeInMillis(), days.getEpochMillis(0));
+        assertEquals(Utils.toCalendar(LocalDate.of(2024, 5, 7)).getTimeInMillis(), days.getEpochMillis(1));
+        assertSame(series.getCloseArray(), days.getCloseArray());
+        assertEquals(open, series.getEpochMillis(0));
+    }
+
+    @Test
+    void testColumnsMustHaveSameLength() {
+        assertThrows(IllegalArgumentException.class, () -> new PriceSeries("AAPL", new long[2],
+                new double[2], new double[2], new double[1], new double[2], new double[2], new long[2]));
+    }
+
+    private static PriceSeries series(int size) {
+        LocalDate from = LocalDate.of(2024, 5, 1);
+        return DailyBars.bars(DailyBars.days(from, from.plusDays(size)), (i, day, bar) -> {
+            bar.open = i + 0.5;
+            bar.high = i + 0.5;
+            bar.low = i + 0.5;
+            bar.close = i + 0.5;
+            bar.volume = i * 100L;
+        });
+    }
+}
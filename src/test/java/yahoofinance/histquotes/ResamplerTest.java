@@ -0,0 +1,100 @@
+package yahoofinance.histquotes;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResamplerTest {
+
+    private static final ZoneId NEW_YORK = DailyBars.NEW_YORK;
+
+    @Test
+    void testWeeklyBars() {
+        // Wednesday 2024-05-01 until Tuesday 2024-05-14, without weekends
+        PriceSeries daily = weekdays(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 15));
+        PriceSeries weekly = Resampler.resample(daily, Interval.WEEKLY, NEW_YORK);
+
+        assertEquals(3, weekly.size());
+        assertEquals(daily.getEpochMillis(0), weekly.getEpochMillis(0));
+        assertEquals(open(LocalDate.of(2024, 5, 1)), weekly.getOpen(0));
+        assertEquals(close(LocalDate.of(2024, 5, 3)), weekly.getClose(0));
+        assertEquals(close(LocalDate.of(2024, 5, 3)) + 1, weekly.getHigh(0));
+        assertEquals(open(LocalDate.of(2024, 5, 1)) - 1, weekly.getLow(0));
+        assertEquals(1 + 2 + 3, weekly.getVolume(0));
+
+        assertEquals(DailyBars.marketOpen(LocalDate.of(2024, 5, 6)), weekly.getEpochMillis(1));
+        assertEquals(open(LocalDate.of(2024, 5, 6)), weekly.getOpen(1));
+        assertEquals(close(LocalDate.of(2024, 5, 10)), weekly.getClose(1));
+        assertEquals(close(LocalDate.of(2024, 5, 14)), weekly.getAdjClose(2));
+    }
+
+    @Test
+    void testMonthlyBarsUseTheExchangeDate() {
+        // 2024-06-01 00:30 in Tokyo is still May in New York
+        long lateMay = LocalDate.of(2024, 5, 31).atTime(11, 30).atZone(NEW_YORK).toInstant().toEpochMilli();
+        long june = DailyBars.marketOpen(LocalDate.of(2024, 6, 3));
+        PriceSeries bars = new PriceSeries("AAPL", new long[]{lateMay, june}, new double[]{1, 2},
+                new double[]{1, 2}, new double[]{1, 2}, new double[]{1, 2}, new double[]{1, 2}, new long[]{1, 2});
+
+        assertEquals(2, Resampler.resample(bars, Interval.MONTHLY, NEW_YORK).size());
+        assertEquals(1, Resampler.resample(bars, Interval.MONTHLY, ZoneId.of("Asia/Tokyo")).size());
+    }
+
+    @Test
+    void testMissingValuesAreSkipped() {
+        PriceSeries daily = weekdays(LocalDate.of(2024, 5, 6), LocalDate.of(2024, 5, 11));
+        daily.getOpenArray()[0] = Double.NaN;
+        daily.getHighArray()[4] = Double.NaN;
+        daily.getLowArray()[0] = Double.NaN;
+        daily.getCloseArray()[4] = Double.NaN;
+        daily.getVolumeArray()[1] = PriceSeries.MISSING_VOLUME;
+
+        PriceSeries weekly = Resampler.resample(daily, Interval.WEEKLY, NEW_YORK);
+        assertEquals(1, weekly.size());
+        assertEquals(open(LocalDate.of(2024, 5, 7)), weekly.getOpen(0));
+        assertEquals(close(LocalDate.of(2024, 5, 9)) + 1, weekly.getHigh(0));
+        assertEquals(open(LocalDate.of(2024, 5, 7)) - 1, weekly.getLow(0));
+        assertEquals(close(LocalDate.of(2024, 5, 9)), weekly.getClose(0));
+        assertEquals(1 + 3 + 4 + 5, weekly.getVolume(0));
+
+        PriceSeries missing = Resampler.resample(daily.slice(0, 1), Interval.WEEKLY, NEW_YORK);
+        assertTrue(Double.isNaN(missing.getOpen(0)));
+        assertTrue(Double.isNaN(missing.getLow(0)));
+        assertEquals(close(LocalDate.of(2024, 5, 6)), missing.getClose(0));
+    }
+
+    @Test
+    void testDailyBarsAreUnchanged() {
+        PriceSeries daily = weekdays(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 6, 1));
+        PriceSeries resampled = Resampler.resample(daily, Interval.DAILY, NEW_YORK);
+        assertEquals(daily.size(), resampled.size());
+        for (int i = 0; i < daily.size(); i++) {
+            assertEquals(daily.getQuote(i).toString(), resampled.getQuote(i).toString());
+        }
+        assertTrue(Resampler.resample(daily.slice(0, 0), Interval.MONTHLY, NEW_YORK).isEmpty());
+    }
+
+    /**
+     * A bar per weekday at the market open, the volume counts the bars from 1.
+     */
+    private static PriceSeries weekdays(LocalDate from, LocalDate to) {
+        return DailyBars.bars(DailyBars.weekdays(from, to), (i, day, bar) -> {
+            bar.open = open(day);
+            bar.close = close(day);
+            bar.high = bar.close + 1;
+            bar.low = bar.open - 1;
+            bar.volume = i + 1;
+        });
+    }
+
+    private static double open(LocalDate day) {
+        return day.getDayOfMonth() * 10;
+    }
+
+    private static double close(LocalDate day) {
+        return day.getDayOfMonth() * 10 + 5;
+    }
+}
@@ -0,0 +1,96 @@
+package yahoofinance.histquotes.store;
+
+import org.junit.jupiter.api.Test;
+import yahoofinance.histquotes.DailyBars;
+import yahoofinance.histquotes.PriceSeries;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BarBlockCodecTest {
+
+    // a bar stored as it is held in memory: a long timestamp, five double prices and a long volume
+    private static final int RAW_BAR_SIZE = 56;
+
+    @Test
+    void testRoundTrip() {
+        PriceSeries bars = tradingDays(LocalDate.of(2019, 1, 2), 1300);
+        bars.getOpenArray()[10] = Double.NaN;
+        bars.getAdjCloseArray()[11] = -0.0;
+        bars.getHighArray()[12] = Double.MAX_VALUE;
+        bars.getVolumeArray()[13] = PriceSeries.MISSING_VOLUME;
+        bars.getVolumeArray()[14] = Long.MAX_VALUE;
+        bars.getEpochMillisArray()[15] += 1; // an irregular timestamp
+
+        assertEqualBars(bars, decode(BarBlockCodec.encode(bars), Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testSmallSeries() {
+        PriceSeries empty = new PriceSeries("AAPL", new long[0], new double[0], new double[0], new double[0],
+                new double[0], new double[0], new long[0]);
+        assertTrue(decode(BarBlockCodec.encode(empty), Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+
+        PriceSeries one = tradingDays(LocalDate.of(2024, 1, 2), 1);
+        assertEqualBars(one, decode(BarBlockCodec.encode(one), Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testOnlyOverlappingBlocksAreDecoded() {
+        PriceSeries bars = tradingDays(LocalDate.of(2019, 1, 2), 3 * BarBlockCodec.BLOCK_SIZE);
+        byte[] encoded = BarBlockCodec.encode(bars);
+
+        int index = BarBlockCodec.BLOCK_SIZE + 7;
+        PriceSeries decoded = decode(encoded, bars.getEpochMillis(index), bars.getEpochMillis(index + 1));
+        assertEqualBars(bars.slice(BarBlockCodec.BLOCK_SIZE, 2 * BarBlockCodec.BLOCK_SIZE), decoded);
+
+        decoded = decode(encoded, bars.getEpochMillis(index), bars.getEpochMillis(2 * BarBlockCodec.BLOCK_SIZE + 1));
+        assertEqualBars(bars.slice(BarBlockCodec.BLOCK_SIZE, bars.size()), decoded);
+
+        assertTrue(decode(encoded, 0, bars.getEpochMillis(0)).isEmpty());
+    }
+
+    @Test
+    void testCompression() {
+        PriceSeries bars = tradingDays(LocalDate.of(2004, 1, 2), 5000);
+        int encoded = BarBlockCodec.encode(bars).length;
+        assertTrue(encoded < bars.size() * RAW_BAR_SIZE / 2,
+                "encoded " + encoded + " bytes for " + bars.size() + " bars");
+    }
+
+    private static PriceSeries decode(byte[] encoded, long fromMillis, long toMillis) {
+        return BarBlockCodec.decode(ByteBuffer.wrap(encoded), "AAPL", fromMillis, toMillis);
+    }
+
+    /**
+     * Daily bars at the market open on weekdays, with prices in cents.
+     */
+    private static PriceSeries tradingDays(LocalDate from, int n) {
+        Random random = new Random(42);
+        long[] cents = {10_000};
+        return DailyBars.bars(DailyBars.weekdays(from, n), (i, day, bar) -> {
+            bar.open = cents[0] / 100.0;
+            cents[0] = Math.max(100, cents[0] + random.nextInt(401) - 200);
+            bar.close = cents[0] / 100.0;
+            bar.high = Math.max(bar.open, bar.close) + random.nextInt(100) / 100.0;
+            bar.low = Math.min(bar.open, bar.close) - random.nextInt(100) / 100.0;
+            bar.volume = 1_000_000 + random.nextInt(50_000_000);
+        });
+    }
+
+    private static void assertEqualBars(PriceSeries expected, PriceSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getEpochMillis(i), actual.getEpochMillis(i));
+            assertEquals(Double.doubleToRawLongBits(expected.getOpen(i)), Double.doubleToRawLongBits(actual.getOpen(i)));
+            assertEquals(Double.doubleToRawLongBits(expected.getHigh(i)), Double.doubleToRawLongBits(actual.getHigh(i)));
+            assertEquals(Double.doubleToRawLongBits(expected.getLow(i)), Double.doubleToRawLongBits(actual.getLow(i)));
+            assertEquals(Double.doubleToRawLongBits(expected.getClose(i)), Double.doubleToRawLongBits(actual.getClose(i)));
+            assertEquals(Double.doubleToRawLongBits(expected.getAdjClose(i)), Double.doubleToRawLongBits(actual.getAdjClose(i)));
+            assertEquals(expected.getVolume(i), actual.getVolume(i));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package yahoofinance.histquotes.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import yahoofinance.histquotes.DailyBars;
+import yahoofinance.histquotes.Interval;
+import yahoofinance.histquotes.PriceSeries;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryStoreTest {
+
+    private static final ZoneId NEW_YORK = DailyBars.NEW_YORK;
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 12); // a Wednesday
+
+    @TempDir
+    Path directory;
+
+    private final List<DateRange> fetched = new ArrayList<DateRange>();
+    private double closeOffset = 0;
+
+    @Test
+    void testOnlyGapsAreFetched() throws IOException {
+        HistoryStore store = store();
+
+        PriceSeries first = store.getHistory("AAPL", Interval.DAILY, date(1), date(11), this::fetch);
+        assertEquals(List.of(new DateRange(date(1), date(11))), fetched);
+        assertEquals(10, first.size());
+
+        PriceSeries again = store.getHistory("AAPL", Interval.DAILY, date(3), date(8), this::fetch);
+        assertEquals(1, fetched.size());
+        assertEquals(5, again.size());
+        assertEquals(date(3).toEpochDay(), again.getClose(0));
+
+        PriceSeries wider = store.getHistory("AAPL", Interval.DAILY, LocalDate.of(2024, 4, 25), date(15), this::fetch);
+        assertEquals(List.of(new DateRange(LocalDate.of(2024, 4, 25), date(1)), new DateRange(date(11), date(15))),
+                fetched.subList(1, 3));
+        assertEquals(6 + 14, wider.size());
+        assertEquals(List.of(new DateRange(LocalDate.of(2024, 4, 25), date(15))), store.getCoverage("AAPL", Interval.DAILY));
+
+        // a new store on the same directory reads what was stored
+        assertEquals(20, store().getHistory("AAPL", Interval.DAILY, LocalDate.of(2024, 4, 25), date(15), this::fetch).size());
+        assertEquals(3, fetched.size());
+    }
+
+    @Test
+    void testTodayIsNeverCovered() throws IOException {
+        HistoryStore store = store();
+
+        store.getHistory("MSFT", Interval.DAILY, LocalDate.of(2024, 6, 1), TODAY.plusDays(1), this::fetch);
+        assertEquals(List.of(new DateRange(LocalDate.of(2024, 6, 1), TODAY)), store.getCoverage("MSFT", Interval.DAILY));
+
+        closeOffset = 1000;
+        PriceSeries refreshed = store.getHistory("MSFT", Interval.DAILY, LocalDate.of(2024, 6, 1), TODAY.plusDays(1), this::fetch);
+        assertEquals(new DateRange(TODAY, TODAY.plusDays(1)), fetched.get(1));
+        assertEquals(12, refreshed.size());
+        assertEquals(TODAY.toEpochDay() + 1000, refreshed.getClose(11));
+        assertEquals(TODAY.minusDays(1).toEpochDay(), refreshed.getClose(10));
+
+        // refreshing only today writes nothing
+        Path file = directory.resolve("MSFT.1d.hist");
+        long size = Files.size(file);
+        for (int i = 0; i < HistoryStore.MAX_SEGMENTS + 1; i++) {
+            assertEquals(1, store.getHistory("MSFT", Interval.DAILY, TODAY, TODAY.plusDays(1), this::fetch).size());
+        }
+        assertEquals(size, Files.size(file));
+        assertEquals(1, new SegmentFile(file, "MSFT").read().size());
+        assertEquals(11, new SegmentFile(file, "MSFT").read().get(0).bars().size());
+    }
+
+    @Test
+    void testWeeklyGapsAreAlignedToWeeks() throws IOException {
+        HistoryStore store = store();
+
+        store.getHistory("AAPL", Interval.WEEKLY, LocalDate.of(2024, 5, 8), LocalDate.of(2024, 5, 22), this::fetch);
+        assertEquals(new DateRange(LocalDate.of(2024, 5, 6), LocalDate.of(2024, 5, 27)), fetched.get(0));
+
+        // the current week stays uncovered
+        store.getHistory("AAPL", Interval.WEEKLY, LocalDate.of(2024, 5, 27), TODAY, this::fetch);
+        assertEquals(List.of(new DateRange(LocalDate.of(2024, 5, 6), LocalDate.of(2024, 6, 10))),
+                store.getCoverage("AAPL", Interval.WEEKLY));
+    }
+
+    @Test
+    void testCoarserIntervalsAreResampledFromDailyBars() throws IOException {
+        HistoryStore store = store();
+        store.getHistory("AAPL", Interval.DAILY, date(1), LocalDate.of(2024, 6, 1), this::fetch);
+
+        PriceSeries weekly = store.getResampledHistory("AAPL", Interval.WEEKLY, date(8), date(22), this::fetch);
+        assertEquals(3, weekly.size());
+        assertEquals(date(6).toEpochDay(), weekly.getOpen(0));
+        assertEquals(date(12).toEpochDay(), weekly.getClose(0));
+        assertEquals(5 + 6 + 7 + 8 + 9 + 10 + 11, weekly.getVolume(0));
+
+        PriceSeries monthly = store.getResampledHistory("AAPL", Interval.MONTHLY, date(1), LocalDate.of(2024, 6, 1), this::fetch);
+        assertEquals(1, monthly.size());
+        assertEquals(date(31).toEpochDay(), monthly.getClose(0));
+        assertEquals(1, fetched.size());
+        assertTrue(store.getCoverage("AAPL", Interval.WEEKLY).isEmpty());
+    }
+
+    @Test
+    void testIncompleteSegmentIsIgnored() throws IOException {
+        HistoryStore store = store();
+        store.getHistory("AAPL", Interval.DAILY, date(1), date(5), this::fetch);
+        Path file = directory.resolve("AAPL.1d.hist");
+        long size = Files.size(file);
+        Files.write(file, new byte[]{0x48, 0x53, 0x45, 0x47, 1, 0, 0}, StandardOpenOption.APPEND);
+
+        assertEquals(4, store.getHistory("AAPL", Interval.DAILY, date(1), date(5), this::fetch).size());
+        store.getHistory("AAPL", Interval.DAILY, date(5), date(6), this::fetch);
+        assertTrue(Files.size(file) > size);
+        assertEquals(5, store().getHistory("AAPL", Interval.DAILY, date(1), date(6), this::fetch).size());
+        assertEquals(2, fetched.size());
+    }
+
+    @Test
+    void testSegmentsAreCompacted() throws IOException {
+        HistoryStore store = store();
+        for (int day = 1; day <= HistoryStore.MAX_SEGMENTS + 4; day++) {
+            store.getHistory("AAPL", Interval.DAILY, date(day), date(day + 1), this::fetch);
+        }
+
+        SegmentFile file = new SegmentFile(directory.resolve("AAPL.1d.hist"), "AAPL");
+        assertTrue(file.read().size() <= HistoryStore.MAX_SEGMENTS);
+        PriceSeries all = store.getHistory("AAPL", Interval.DAILY, date(1), date(HistoryStore.MAX_SEGMENTS + 5), this::fetch);
+        assertEquals(HistoryStore.MAX_SEGMENTS + 4, all.size());
+        assertEquals(List.of(new DateRange(date(1), date(HistoryStore.MAX_SEGMENTS + 5))), store.getCoverage("AAPL", Interval.DAILY));
+    }
+
+    @Test
+    void testDateRanges() {
+        List<DateRange> covered = DateRange.union(List.of(
+                new DateRange(date(5), date(8)), new DateRange(date(1), date(3)), new DateRange(date(3), date(4))));
+        assertEquals(List.of(new DateRange(date(1), date(4)), new DateRange(date(5), date(8))), covered);
+        assertEquals(List.of(new DateRange(date(4), date(5)), new DateRange(date(8), date(10))),
+                new DateRange(date(2), date(10)).minus(covered));
+        assertTrue(new DateRange(date(1), date(8)).minus(List.of(new DateRange(date(1), date(8)))).isEmpty());
+    }
+
+    private HistoryStore store() {
+        return new HistoryStore(directory, Clock.fixed(TODAY.atTime(15, 0).atZone(NEW_YORK).toInstant(), NEW_YORK));
+    }
+
+    /**
+     * One bar per calendar day at the market open, like the v8 chart.
+     */
+    private PriceSeries fetch(LocalDate from, LocalDate to) {
+        fetched.add(new DateRange(from, to));
+        return DailyBars.bars(DailyBars.days(from, to), (i, day, bar) -> {
+            bar.close = day.toEpochDay() + closeOffset;
+            bar.open = bar.close;
+            bar.high = bar.close;
+            bar.low = bar.close;
+            bar.volume = i;
+        });
+    }
+
+    private static LocalDate date(int dayOfMay) {
+        return LocalDate.of(2024, 5, 1).plusDays(dayOfMay - 1);
+    }
+}
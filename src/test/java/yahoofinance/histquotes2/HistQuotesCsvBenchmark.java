@@ -0,0 +1,79 @@
+package yahoofinance.histquotes2;
+
+import org.openjdk.jmh.annotations.*;
+import yahoofinance.Utils;
+import yahoofinance.YahooFinance;
+import yahoofinance.histquotes.HistoricalQuote;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HistQuotesCsvDecoder} with the line by line parsing HistQuotes2Request used before:
+ * split every line into Strings and parse the fields with {@link Utils#parseHistDate},
+ * {@link Utils#getBigDecimal} and {@link Utils#getLong}. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=HistQuotesCsvBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistQuotesCsvBenchmark {
+
+    // about 20 years of daily quotes
+    @Param("5000")
+    public int rows;
+
+    private String csv;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("Date,Open,High,Low,Close,Adj Close,Volume\n");
+        LocalDate date = LocalDate.of(2004, 1, 2);
+        double price = 100;
+        for (int i = 0; i < rows; i++) {
+            double close = Math.max(1, price + random.nextGaussian());
+            sb.append(date).append(',')
+                    .append(String.format(Locale.US, "%.6f,%.6f,%.6f,%.6f,%.6f,",
+                            price, Math.max(price, close) + 0.5, Math.min(price, close) - 0.5, close, close * 0.98))
+                    .append(1_000_000 + random.nextInt(50_000_000)).append('\n');
+            price = close;
+            date = date.plusDays(1);
+        }
+        csv = sb.toString();
+    }
+
+    @Benchmark
+    public List<HistoricalQuote> decoder() throws IOException {
+        return new HistQuotesCsvDecoder("AAPL").decode(new StringReader(csv));
+    }
+
+    @Benchmark
+    public List<HistoricalQuote> splitLines() throws IOException {
+        BufferedReader br = new BufferedReader(new StringReader(csv));
+        List<HistoricalQuote> res = new ArrayList<>();
+        br.readLine(); // skip the first line
+        for (String line = br.readLine(); line != null; line = br.readLine()) {
+            String[] data = line.split(YahooFinance.QUOTES_CSV_DELIMITER);
+            res.add(new HistoricalQuote("AAPL",
+                    Utils.parseHistDate(data[0]),
+                    Utils.getBigDecimal(data[1]),
+                    Utils.getBigDecimal(data[3]),
+                    Utils.getBigDecimal(data[2]),
+                    Utils.getBigDecimal(data[4]),
+                    Utils.getBigDecimal(data[5]),
+                    Utils.getLong(data[6])));
+        }
+        return res;
+    }
+}
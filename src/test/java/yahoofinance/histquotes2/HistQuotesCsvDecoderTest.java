@@ -0,0 +1,89 @@
+package yahoofinance.histquotes2;
+
+import org.junit.jupiter.api.Test;
+import yahoofinance.Utils;
+import yahoofinance.histquotes.HistoricalQuote;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistQuotesCsvDecoderTest {
+
+    private static final String HEADER = "Date,Open,High,Low,Close,Adj Close,Volume\n";
+
+    @Test
+    void testDecodesColumns() throws IOException {
+        List<HistoricalQuote> quotes = decode(HEADER
+                + "2024-01-02,187.149994,188.440002,183.889999,185.639999,185.152283,82488700\r\n"
+                + "2024-01-03,184.220001,185.880005,183.429993,184.250000,183.765900,58414500\r\n");
+
+        assertEquals(2, quotes.size());
+        HistoricalQuote quote = quotes.get(0);
+        assertEquals("AAPL", quote.getSymbol());
+        assertEquals(new BigDecimal("187.149994"), quote.getOpen());
+        assertEquals(new BigDecimal("188.440002"), quote.getHigh());
+        assertEquals(new BigDecimal("183.889999"), quote.getLow());
+        assertEquals(new BigDecimal("185.639999"), quote.getClose());
+        assertEquals(new BigDecimal("185.152283"), quote.getAdjClose());
+        assertEquals(82488700L, quote.getVolume());
+        assertEquals(Utils.parseHistDate("2024-01-02").getTimeInMillis(), quote.getDate().getTimeInMillis());
+        assertEquals(Utils.parseHistDate("2024-01-03").getTimeInMillis(), quotes.get(1).getDate().getTimeInMillis());
+    }
+
+    @Test
+    void testMissingValues() throws IOException {
+        List<HistoricalQuote> quotes = decode(HEADER
+                + "2024-01-02,null,null,null,null,null,null\n"
+                + "2024-01-03,N/A,-,,nan,1.5,\n");
+
+        assertEquals(2, quotes.size());
+        assertNull(quotes.get(0).getOpen());
+        assertNull(quotes.get(0).getVolume());
+        assertNull(quotes.get(1).getOpen());
+        assertNull(quotes.get(1).getHigh());
+        assertNull(quotes.get(1).getLow());
+        assertNull(quotes.get(1).getClose());
+        assertEquals(new BigDecimal("1.5"), quotes.get(1).getAdjClose());
+        assertNull(quotes.get(1).getVolume());
+    }
+
+    @Test
+    void testSkipsMalformedRows() throws IOException {
+        List<HistoricalQuote> quotes = decode(HEADER
+                + "2024-01-02,1,2,3\n"
+                + "\n"
+                + "2024-01-03,1,2,0.5,1.5,1.5,100");
+
+        assertEquals(1, quotes.size());
+        assertEquals(100L, quotes.get(0).getVolume());
+    }
+
+    @Test
+    void testRowsAcrossBufferBoundaries() throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER);
+        Calendar day = Utils.parseHistDate("2000-01-01");
+        for (int i = 0; i < 2000; i++) {
+            csv.append(String.format("%tF,%d.25,%d.5,%d.125,%d.75,%d.7,%d%n", day, i, i, i, i, i, i * 1000L));
+            day.add(Calendar.DATE, 1);
+        }
+
+        List<HistoricalQuote> quotes = decode(csv.toString());
+
+        assertEquals(2000, quotes.size());
+        for (int i = 0; i < quotes.size(); i++) {
+            assertEquals(new BigDecimal(i + ".75"), quotes.get(i).getClose());
+            assertEquals(i * 1000L, quotes.get(i).getVolume());
+        }
+        assertEquals(Utils.parseHistDate("2005-06-22").getTimeInMillis(),
+                quotes.get(quotes.size() - 1).getDate().getTimeInMillis());
+    }
+
+    private static List<HistoricalQuote> decode(String csv) throws IOException {
+        return new HistQuotesCsvDecoder("AAPL").decode(new StringReader(csv));
+    }
+}
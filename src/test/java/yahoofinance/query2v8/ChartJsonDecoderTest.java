@@ -0,0 +1,118 @@
+package yahoofinance.query2v8;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import yahoofinance.histquotes.HistoricalQuote;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartJsonDecoderTest {
+
+    @Test
+    void testDecodesDailyChart() throws IOException {
+        ChartData chart = decode("""
+                {"chart":{"result":[{"meta":{"currency":"USD","symbol":"AAPL","validRanges":["1d","5d"]},
+                "timestamp":[1704205800,1704292200,1704378600],
+                "events":{"dividends":{"1707489000":{"amount":0.24,"date":1707489000}}},
+                "indicators":{"quote":[{"low":[183.88,183.42,null],"volume":[82488700,58414500,null],
+                "open":[187.15,184.22,null],"high":[188.44,185.88,null],"close":[185.64,184.25,null]}],
+                "adjclose":[{"adjclose":[185.15,183.76,null]}]}}],"error":null}}
+                """);
+
+        assertEquals(3, chart.size());
+        assertArrayEquals(new long[]{1704205800, 1704292200, 1704378600}, chart.getTimestamps());
+        assertEquals(188.44, chart.getHighs()[0]);
+        assertEquals(58414500L, chart.getVolumes()[1]);
+        assertTrue(Double.isNaN(chart.getCloses()[2]));
+        assertEquals(ChartData.MISSING_VOLUME, chart.getVolumes()[2]);
+
+        List<HistoricalQuote> quotes = chart.toQuotes();
+        HistoricalQuote first = quotes.get(0);
+        assertEquals("AAPL", first.getSymbol());
+        assertEquals(1704205800_000L, first.getDate().getTimeInMillis());
+        assertEquals(new BigDecimal("187.15"), first.getOpen());
+        assertEquals(new BigDecimal("183.88"), first.getLow());
+        assertEquals(new BigDecimal("185.64"), first.getClose());
+        assertEquals(new BigDecimal("185.15"), first.getAdjClose());
+        assertEquals(82488700L, first.getVolume());
+        assertNull(quotes.get(2).getClose());
+        assertNull(quotes.get(2).getVolume());
+    }
+
+    @Test
+    void testIntradayChartWithoutAdjClose() throws IOException {
+        ChartData chart = decode("""
+                {"chart":{"result":[{"timestamp":[1704205800,1704206100],
+                "indicators":{"quote":[{"open":[1,2],"high":[1,2],"low":[1,2],"close":[1,2],"volume":[10,20]}]}}],
+                "error":null}}
+                """);
+
+        assertEquals(2, chart.size());
+        assertTrue(Double.isNaN(chart.getAdjCloses()[1]));
+        assertNull(chart.getQuote(1).getAdjClose());
+        assertEquals(new BigDecimal("2.0"), chart.getQuote(1).getClose());
+    }
+
+    @Test
+    void testEmptyRange() throws IOException {
+        ChartData chart = decode("""
+                {"chart":{"result":[{"meta":{"symbol":"AAPL"},"indicators":{"quote":[{}],"adjclose":[{}]}}],"error":null}}
+                """);
+
+        assertEquals(0, chart.size());
+        assertTrue(chart.toQuotes().isEmpty());
+    }
+
+    @Test
+    void testKeptDecimalsMatchTheTreeModel() throws IOException {
+        String json = """
+                {"chart":{"result":[{"timestamp":[1704205800,1704292200],
+                "indicators":{"quote":[{"open":[187,185.1500091552734],"high":[188.44000244140625,185.0],
+                "low":[183.88999938964844,null],"close":[185.63999938964844,184.25],"volume":[82488700,58414500]}],
+                "adjclose":[{"adjclose":[185.15,183.76]}]}}],"error":null}}
+                """;
+        JsonNode quote = new ObjectMapper().readTree(json).at("/chart/result/0/indicators/quote/0");
+        List<HistoricalQuote> quotes = new ChartJsonDecoder("AAPL", true)
+                .decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))).toQuotes();
+
+        assertEquals(quote.at("/open/0").decimalValue(), quotes.get(0).getOpen());
+        assertEquals(new BigDecimal("187"), quotes.get(0).getOpen());
+        assertEquals(quote.at("/open/1").decimalValue(), quotes.get(1).getOpen());
+        assertEquals(quote.at("/high/1").decimalValue(), quotes.get(1).getHigh());
+        assertEquals(new BigDecimal("185.0"), quotes.get(1).getHigh());
+        assertEquals(quote.at("/close/0").decimalValue(), quotes.get(0).getClose());
+        assertNull(quotes.get(1).getLow());
+        assertEquals(new BigDecimal("183.76"), quotes.get(1).getAdjClose());
+
+        // without kept decimals the quotes hold the decimals of the doubles
+        assertEquals(new BigDecimal("187.0"), decode(json).getQuote(0).getOpen());
+    }
+
+    @Test
+    void testErrorResponse() {
+        IOException e = assertThrows(IOException.class, () -> decode("""
+                {"chart":{"result":null,"error":{"code":"Not Found","description":"No data found, symbol may be delisted"}}}
+                """));
+        assertTrue(e.getMessage().contains("No data found"));
+    }
+
+    @Test
+    void testErrorBody() throws IOException {
+        String error = new ChartJsonDecoder("XXXX").decodeError(new ByteArrayInputStream("""
+                {"chart":{"result":null,"error":{"code":"Not Found","description":"No data found, symbol may be delisted"}}}
+                """.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("Chart request for XXXX failed: Not Found - No data found, symbol may be delisted", error);
+        assertNull(new ChartJsonDecoder("AAPL").decodeError(new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static ChartData decode(String json) throws IOException {
+        return new ChartJsonDecoder("AAPL").decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
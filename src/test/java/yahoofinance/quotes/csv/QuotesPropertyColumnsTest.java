@@ -0,0 +1,30 @@
+package yahoofinance.quotes.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuotesPropertyColumnsTest {
+
+    @Test
+    void testColumnsMatchPropertyList() {
+        List<QuotesProperty> properties = StockQuotesRequest.DEFAULT_PROPERTIES;
+        QuotesPropertyColumns columns = new QuotesPropertyColumns(properties);
+
+        for (QuotesProperty property : QuotesProperty.values()) {
+            assertEquals(properties.indexOf(property), columns.indexOf(property), property.name());
+        }
+    }
+
+    @Test
+    void testValuesOfCustomPropertyList() {
+        List<QuotesProperty> properties = List.of(QuotesProperty.Symbol, QuotesProperty.Open, QuotesProperty.Symbol);
+        StockQuotesData data = new StockQuotesData(new String[]{"AAPL", "187.15", "AAPL"}, new QuotesPropertyColumns(properties));
+
+        assertEquals("AAPL", data.getValue(QuotesProperty.Symbol));
+        assertEquals("187.15", data.getValue(QuotesProperty.Open));
+        assertNull(data.getValue(QuotesProperty.Volume));
+    }
+}
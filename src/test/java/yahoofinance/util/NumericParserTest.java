@@ -0,0 +1,110 @@
+package yahoofinance.util;
+
+import org.junit.jupiter.api.Test;
+import yahoofinance.Utils;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumericParserTest {
+
+    private final NumericParser parser = new NumericParser();
+
+    @Test
+    void testDecimals() {
+        assertTrue(parser.parse("187.149994"));
+        assertEquals(new BigDecimal("187.149994"), parser.bigDecimalValue());
+        assertEquals(187.149994, parser.doubleValue());
+
+        assertTrue(parser.parse("  -0.05 "));
+        assertEquals(new BigDecimal("-0.05"), parser.bigDecimalValue());
+        assertEquals(-0.05, parser.doubleValue());
+
+        assertTrue(parser.parse("+12"));
+        assertEquals(12L, parser.longValue(-1));
+
+        assertTrue(parser.parse("2.5E-3"));
+        assertEquals(new BigDecimal("2.5E-3"), parser.bigDecimalValue());
+        assertEquals(0.0025, parser.doubleValue());
+    }
+
+    @Test
+    void testSeparatorsAndSuffixes() {
+        assertTrue(parser.parse("1,234,567.5"));
+        assertEquals(new BigDecimal("1234567.5"), parser.bigDecimalValue());
+
+        assertTrue(parser.parse("1.50M"));
+        assertEquals(new BigDecimal("1.50").multiply(Utils.MILLION), parser.bigDecimalValue());
+        assertEquals("1500000.00", parser.bigDecimalValue().toString());
+        assertEquals(1_500_000L, parser.longValue(-1));
+
+        assertTrue(parser.parse("2.1B"));
+        assertEquals(2.1e9, parser.doubleValue());
+        assertTrue(parser.parse("12K"));
+        assertEquals(12_000L, parser.longValue(-1));
+
+        assertFalse(parser.parse("1.2.3"));
+        assertFalse(parser.parse("12X"));
+        assertFalse(parser.parse("1.5,0"));
+    }
+
+    @Test
+    void testMissingValues() {
+        for (String missing : new String[]{null, "", "  ", "N/A", "-", "nan", "null", "abc", "."}) {
+            assertFalse(parser.parse(missing), String.valueOf(missing));
+            assertNull(parser.bigDecimalValue());
+            assertTrue(Double.isNaN(parser.doubleValue()));
+            assertEquals(-1, parser.longValue(-1));
+        }
+    }
+
+    @Test
+    void testRanges() {
+        String row = "2024-01-02,187.149994,82488700";
+        assertTrue(parser.parse(row, 11, 21));
+        assertEquals(new BigDecimal("187.149994"), parser.bigDecimalValue());
+        assertTrue(parser.parse(row, 22, row.length()));
+        assertEquals(82488700L, parser.longValue(-1));
+    }
+
+    @Test
+    void testUnscaledValues() {
+        assertTrue(parser.parse("185.639999"));
+        assertEquals(18564L, parser.unscaledValue(2, -1));
+        assertEquals(185639999L, parser.unscaledValue(6, -1));
+        assertEquals(1856399990L, parser.unscaledValue(7, -1));
+        assertEquals(-1, parser.longValue(-1));
+
+        assertTrue(parser.parse("-0.125"));
+        assertEquals(-13L, parser.unscaledValue(2, 0));
+
+        assertTrue(parser.parse("92233720368547758"));
+        assertEquals(-1, parser.unscaledValue(3, -1));
+    }
+
+    @Test
+    void testLargeNumbers() {
+        assertTrue(parser.parse("123456789012345678901234.5"));
+        assertEquals(new BigDecimal("123456789012345678901234.5"), parser.bigDecimalValue());
+        assertEquals(1.234567890123456789e23, parser.doubleValue());
+        assertEquals(-1, parser.longValue(-1));
+
+        assertTrue(parser.parse("9,223,372,036,854,775,807"));
+        assertEquals(Long.MAX_VALUE, parser.longValue(-1));
+        assertTrue(parser.parse("9999999999999B"));
+        assertEquals(new BigDecimal("9999999999999000000000"), parser.bigDecimalValue());
+    }
+
+    @Test
+    void testUtilsDelegates() {
+        assertEquals(new BigDecimal("1234.5"), Utils.getBigDecimal("1,234.5"));
+        assertNull(Utils.getBigDecimal("N/A"));
+        assertEquals(2000.0, Utils.getDouble("2K"));
+        assertTrue(Double.isNaN(Utils.getDouble("-")));
+        assertEquals(1234L, Utils.getLong("1,234"));
+        assertNull(Utils.getLong("1.5"));
+        assertEquals(42, Utils.getInt("42"));
+        assertNull(Utils.getInt("3000000000"));
+    }
+}
@@ -0,0 +1,128 @@
+package yahoofinance.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelFetcherTest {
+
+    @Test
+    void testFailuresAreIsolated() throws IOException {
+        BatchResult<String, String> result = ParallelFetcher.fetchAll(List.of("AAPL", "BAD", "MSFT", "AAPL"), 4, symbol -> {
+            if (symbol.equals("BAD")) throw new IOException("not found");
+            return symbol.toLowerCase();
+        });
+
+        assertEquals(List.of("AAPL", "MSFT"), List.copyOf(result.getResults().keySet()));
+        assertEquals("msft", result.getResults().get("MSFT"));
+        assertFalse(result.isComplete());
+        assertEquals(1, result.getFailures().size());
+        assertInstanceOf(IOException.class, result.getFailures().get("BAD"));
+        assertDoesNotThrow(() -> ParallelFetcher.throwIfNothingSucceeded(result));
+    }
+
+    @Test
+    void testConcurrencyIsBounded() throws InterruptedIOException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<Integer> keys = IntStream.range(0, 40).boxed().toList();
+
+        BatchResult<Integer, Integer> result = ParallelFetcher.fetchAll(keys, 5, key -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return key * 2;
+        });
+
+        assertTrue(result.isComplete());
+        assertEquals(40, result.getResults().size());
+        assertTrue(maxInFlight.get() <= 5, "max in flight: " + maxInFlight.get());
+        assertTrue(maxInFlight.get() > 1, "requests did not run in parallel");
+    }
+
+    @Test
+    void testNothingSucceeded() throws InterruptedIOException {
+        BatchResult<String, String> result = ParallelFetcher.fetchAll(List.of("A", "B"), 2, symbol -> {
+            throw new IOException("down: " + symbol);
+        });
+
+        assertTrue(result.getResults().isEmpty());
+        IOException e = assertThrows(IOException.class, () -> ParallelFetcher.throwIfNothingSucceeded(result));
+        assertEquals("down: A", e.getMessage());
+    }
+
+    @Test
+    void testOnlyFailedKeysAreRetried() throws InterruptedIOException {
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        List<String> streamed = new CopyOnWriteArrayList<>();
+
+        BatchResult<String, String> result = ParallelFetcher.fetchAll(List.of("A", "FLAKY", "B", "DOWN"), 4, 3, 1, key -> {
+            int call = calls.computeIfAbsent(key, _ -> new AtomicInteger()).incrementAndGet();
+            if (key.equals("DOWN") || (key.equals("FLAKY") && call < 3)) throw new IOException(key + " " + call);
+            return key.toLowerCase();
+        }, (key, value) -> streamed.add(value));
+
+        assertEquals(1, calls.get("A").get());
+        assertEquals(1, calls.get("B").get());
+        assertEquals(3, calls.get("FLAKY").get());
+        assertEquals(4, calls.get("DOWN").get());
+        assertEquals(List.of("A", "B", "FLAKY"), List.copyOf(result.getResults().keySet()));
+        assertEquals(List.of("DOWN"), List.copyOf(result.getFailures().keySet()));
+        assertEquals("DOWN 4", result.getFailures().get("DOWN").getMessage());
+        assertEquals(3, streamed.size());
+    }
+
+    @Test
+    void testRetriesBackOff() throws InterruptedIOException {
+        List<Long> attempts = new CopyOnWriteArrayList<>();
+
+        BatchResult<String, String> result = ParallelFetcher.fetchAll(List.of("A"), 1, 2, 50, key -> {
+            attempts.add(System.nanoTime());
+            throw new IOException("down");
+        }, (_, _) -> {});
+
+        assertFalse(result.isComplete());
+        assertEquals(3, attempts.size());
+        assertTrue(attempts.get(1) - attempts.get(0) >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(attempts.get(2) - attempts.get(1) >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void testListenerSeesResultsBeforeTheBatchCompletes() throws InterruptedException {
+        CountDownLatch fastDone = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> streamed = new CopyOnWriteArrayList<>();
+
+        Thread batch = Thread.ofVirtual().start(() -> {
+            try {
+                ParallelFetcher.fetchAll(List.of("slow", "fast", "bad"), 3, key -> {
+                    if (key.equals("slow")) release.await();
+                    if (key.equals("bad")) throw new IOException("bad");
+                    return key;
+                }, (key, result) -> {
+                    streamed.add(result);
+                    if (key.equals("fast")) fastDone.countDown();
+                });
+            } catch (InterruptedIOException e) {
+                fail(e);
+            }
+        });
+
+        assertTrue(fastDone.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("fast"), streamed);
+        release.countDown();
+        batch.join(1000);
+        assertEquals(List.of("fast", "slow"), streamed);
+    }
+}